@@ -0,0 +1,46 @@
+package com.dascribs.backend;
+
+import com.dascribs.coreauth.service.auth.ActionTokenSigner;
+import com.dascribs.coreauth.service.auth.ActionTokenSigner.Purpose;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {ActionTokenSigner.class, SimpleMeterRegistry.class},
+        properties = "app.security.action-token.secret=action-token-test-secret")
+class ActionTokenSignerTest {
+
+    @Autowired
+    private ActionTokenSigner tokenSigner;
+
+    @Test
+    void signedTokenCarriesItsClaims() {
+        ActionTokenSigner.Claims claims = tokenSigner.issue(42L, Purpose.PASSWORD_RESET, LocalDateTime.now().plusHours(1));
+        String token = tokenSigner.sign(claims);
+
+        assertThat(tokenSigner.verify(token, Purpose.PASSWORD_RESET)).hasValueSatisfying(verified -> {
+            assertThat(verified.userId()).isEqualTo(42L);
+            assertThat(verified.nonce()).isEqualTo(claims.nonce());
+        });
+    }
+
+    @Test
+    void rejectsForgedExpiredAndMisusedTokens() {
+        String token = tokenSigner.sign(tokenSigner.issue(42L, Purpose.EMAIL_VERIFICATION, LocalDateTime.now().plusHours(1)));
+        // Changes bits of the user id
+        String tampered = token.substring(0, 10) + (token.charAt(10) == 'A' ? 'B' : 'A') + token.substring(11);
+
+        assertThat(tokenSigner.verify(tampered, Purpose.EMAIL_VERIFICATION)).isEmpty();
+        assertThat(tokenSigner.verify(token, Purpose.PASSWORD_RESET)).isEmpty();
+        assertThat(tokenSigner.verify("not-a-token", Purpose.EMAIL_VERIFICATION)).isEmpty();
+        assertThat(tokenSigner.verify(null, Purpose.EMAIL_VERIFICATION)).isEmpty();
+
+        String expired = tokenSigner.sign(tokenSigner.issue(42L, Purpose.EMAIL_VERIFICATION, LocalDateTime.now().minusSeconds(1)));
+        assertThat(tokenSigner.verify(expired, Purpose.EMAIL_VERIFICATION)).isEmpty();
+    }
+}
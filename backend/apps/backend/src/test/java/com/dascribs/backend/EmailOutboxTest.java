@@ -0,0 +1,192 @@
+package com.dascribs.backend;
+
+import com.dascribs.coreauth.entity.email.EmailOutboxMessage;
+import com.dascribs.coreauth.entity.email.EmailSuppression;
+import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.coreauth.repository.EmailOutboxRepository;
+import com.dascribs.coreauth.service.email.EmailService;
+import com.dascribs.coreauth.service.email.EmailSuppressionList;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the outbox against a local SMTP stand-in. Recipients starting with "reject" are refused
+ * with a permanent error so the retry and dead-letter path can be exercised.
+ */
+@SpringBootTest(properties = {
+        "app.email.outbox.poll-interval-ms=100",
+        "app.email.outbox.max-attempts=2",
+        "app.email.outbox.initial-backoff-seconds=0",
+        "app.email.digest.window-seconds=1"
+})
+@ActiveProfiles("production")
+class EmailOutboxTest {
+
+    private static final SmtpStandIn smtp = SmtpStandIn.start(0);
+
+    @DynamicPropertySource
+    static void mailProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.host", () -> "localhost");
+        registry.add("spring.mail.port", smtp::port);
+        registry.add("spring.mail.properties.mail.smtp.auth", () -> "false");
+    }
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private EmailSuppressionList suppressionList;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterAll
+    static void stopSmtp() throws IOException {
+        smtp.close();
+    }
+
+    @Test
+    void committedMessageIsDeliveredAndRemoved() throws InterruptedException {
+        String recipient = "outbox-delivered@test.local";
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                emailService.sendPasswordResetEmail(user(recipient), "outbox-reset-token"));
+
+        await(() -> smtp.received(recipient).isPresent());
+        assertThat(smtp.received(recipient).get()).contains("Subject: Password Reset Request");
+        await(() -> findByRecipient(recipient).isEmpty());
+    }
+
+    @Test
+    void notificationIsSentWithItsOwnSubject() throws InterruptedException {
+        String recipient = "outbox-notified@test.local";
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            emailService.sendTenantNotification(user(recipient), "Planned maintenance", "We will be down at 02:00.");
+            // Nothing else is waiting for the address, so it is not held for the digest window
+            assertThat(findByRecipient(recipient).orElseThrow().getNextAttemptAt())
+                    .isBeforeOrEqualTo(LocalDateTime.now());
+        });
+
+        await(() -> smtp.received(recipient).isPresent());
+        assertThat(smtp.received(recipient).get()).contains("Subject: Planned maintenance");
+        await(() -> findByRecipient(recipient).isEmpty());
+    }
+
+    @Test
+    void notificationsToTheSameAddressAreSentAsOneDigest() throws InterruptedException {
+        String recipient = "outbox-digest@test.local";
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            emailService.sendTenantNotification(user(recipient), "New workspace", "A workspace was shared with you.");
+            emailService.sendTenantNotification(user(recipient), "New comment", "Someone replied to your note.");
+        });
+
+        await(() -> smtp.received(recipient).isPresent());
+        assertThat(smtp.received(recipient).get()).contains("Subject: You have 2 updates from DaScribs");
+        await(() -> findByRecipient(recipient).isEmpty());
+    }
+
+    @Test
+    void broadcastPacedForLaterIsNotPulledIntoADigest() throws InterruptedException {
+        String recipient = "outbox-paced@test.local";
+        EmailOutboxMessage paced = EmailOutboxMessage.broadcast(-1L, null, null, recipient, "Outbox Test",
+                LocalDateTime.now().plusHours(1));
+        paced.holdForDigest(1);
+        outboxRepository.save(paced);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                emailService.sendTenantNotification(user(recipient), "Planned maintenance", "We will be down at 02:00."));
+
+        await(() -> smtp.received(recipient).isPresent());
+        assertThat(smtp.received(recipient).get()).contains("Subject: Planned maintenance");
+        EmailOutboxMessage stillHeld = outboxRepository.findById(paced.getId()).orElseThrow();
+        assertThat(stillHeld.getAttempts()).isZero();
+        outboxRepository.delete(stillHeld);
+    }
+
+    @Test
+    void rolledBackMessageIsNeverSent() throws InterruptedException {
+        String recipient = "outbox-rolled-back@test.local";
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            emailService.sendPasswordChangedNotification(user(recipient));
+            status.setRollbackOnly();
+        });
+
+        Thread.sleep(500);
+        assertThat(smtp.received(recipient)).isEmpty();
+        assertThat(findByRecipient(recipient)).isEmpty();
+    }
+
+    @Test
+    void suppressedAddressIsSkipped() throws InterruptedException {
+        String recipient = "outbox-bounced@test.local";
+        suppressionList.record("Outbox-Bounced@Test.local", EmailSuppression.Reason.HARD_BOUNCE, "550 no such user");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                emailService.sendPasswordChangedNotification(user(recipient)));
+
+        await(() -> findByRecipient(recipient).isEmpty());
+        assertThat(smtp.received(recipient)).isEmpty();
+
+        // Complaints still let through what the recipient asked for
+        String complained = "outbox-complained@test.local";
+        suppressionList.record(complained, EmailSuppression.Reason.COMPLAINT, null);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                emailService.sendPasswordResetEmail(user(complained), "outbox-complaint-token"));
+        await(() -> smtp.received(complained).isPresent());
+    }
+
+    @Test
+    void failingMessageIsDeadLetteredAfterMaxAttempts() throws InterruptedException {
+        String recipient = "reject-outbox@test.local";
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            emailService.sendWelcomeEmail(user(recipient), "outbox-temporary-password");
+            // Stored encrypted, before the dispatcher can see it
+            assertThat(findByRecipient(recipient).orElseThrow().getSecret())
+                    .isNotNull()
+                    .doesNotContain("outbox-temporary-password");
+        });
+
+        await(() -> findByRecipient(recipient)
+                .filter(message -> message.getStatus() == EmailOutboxMessage.Status.DEAD)
+                .isPresent());
+        EmailOutboxMessage dead = findByRecipient(recipient).orElseThrow();
+        assertThat(dead.getAttempts()).isEqualTo(2);
+        assertThat(dead.getLastError()).isNotBlank();
+        assertThat(dead.getSecret()).isNull();
+    }
+
+    private Optional<EmailOutboxMessage> findByRecipient(String recipient) {
+        return outboxRepository.findAll().stream()
+                .filter(message -> message.getRecipientEmail().equals(recipient))
+                .findFirst();
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setFullName("Outbox Test");
+        user.setEmail(email);
+        return user;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
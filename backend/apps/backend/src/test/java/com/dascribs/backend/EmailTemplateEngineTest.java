@@ -0,0 +1,123 @@
+package com.dascribs.backend;
+
+import com.dascribs.coreauth.service.email.EmailTemplate;
+import com.dascribs.coreauth.service.email.EmailTemplateEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static java.util.Map.entry;
+
+/**
+ * Checks the compiled templates against renderings of the ProductionEmailService text blocks they
+ * replaced, kept under email-baseline/. The render times are only measured with -Pbenchmarks.
+ */
+@SpringBootTest(classes = EmailTemplateEngine.class)
+class EmailTemplateEngineTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplateEngineTest.class);
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    // Variables of each template in the order render() takes them
+    private static final Map<EmailTemplate, List<String>> VARIABLES = Map.ofEntries(
+            entry(EmailTemplate.PASSWORD_RESET, List.of("userName", "resetLink")),
+            entry(EmailTemplate.PASSWORD_CHANGED, List.of("userName")),
+            entry(EmailTemplate.WELCOME, List.of("userName", "userEmail", "temporaryPassword")),
+            entry(EmailTemplate.EMAIL_VERIFICATION, List.of("userName", "verificationLink")),
+            entry(EmailTemplate.EMAIL_CHANGE_VERIFICATION, List.of("userName", "newEmail", "verificationLink")),
+            entry(EmailTemplate.EMAIL_CHANGE_NOTIFICATION, List.of("userName", "newEmail")),
+            entry(EmailTemplate.EMAIL_CHANGE_CONFIRMATION, List.of("userName", "newEmail")),
+            entry(EmailTemplate.USER_INVITATION, List.of("userName", "userEmail", "inviteLink")),
+            entry(EmailTemplate.TENANT_NOTIFICATION, List.of("userName", "subject", "message")),
+            entry(EmailTemplate.NOTIFICATION_DIGEST, List.of("userName", "count", "itemsHtml", "itemsText")),
+            entry(EmailTemplate.DIGEST_ITEM, List.of("title", "body")));
+
+    @Autowired
+    private EmailTemplateEngine templateEngine;
+
+    @Test
+    void escapesValuesAndDropsEmptySections() {
+        EmailTemplateEngine.RenderedEmail welcome = templateEngine.render(
+                EmailTemplate.WELCOME, null, "<b>Ana & Co</b>", "ana@test.local", null);
+        String html = new String(welcome.html(), StandardCharsets.UTF_8);
+        String text = new String(welcome.text(), StandardCharsets.UTF_8);
+
+        assertThat(html).contains("&lt;b&gt;Ana &amp; Co&lt;/b&gt;").doesNotContain("Temporary Password");
+        assertThat(text).contains("Hello <b>Ana & Co</b>,").doesNotContain("Temporary Password");
+
+        EmailTemplateEngine.RenderedEmail withPassword = templateEngine.render(
+                EmailTemplate.WELCOME, null, "Ana", "ana@test.local", "Tmp-Pässword1");
+        assertThat(new String(withPassword.html(), StandardCharsets.UTF_8)).contains("<code>Tmp-Pässword1</code>");
+    }
+
+    // The baselines were rendered with "value-of-<variable>" for every argument
+    @ParameterizedTest
+    @EnumSource(value = EmailTemplate.class, names = {"PASSWORD_RESET", "PASSWORD_CHANGED", "WELCOME",
+            "EMAIL_VERIFICATION", "EMAIL_CHANGE_VERIFICATION", "EMAIL_CHANGE_NOTIFICATION",
+            "EMAIL_CHANGE_CONFIRMATION", "USER_INVITATION"})
+    void rendersLikeTheTextBlocksItReplaced(EmailTemplate template) throws IOException {
+        // Nothing to escape, and every section is kept
+        String[] values = VARIABLES.get(template).stream().map(name -> "value-of-" + name).toArray(String[]::new);
+
+        EmailTemplateEngine.RenderedEmail rendered = templateEngine.render(template, null, values);
+
+        assertThat(new String(rendered.html(), StandardCharsets.UTF_8)).isEqualTo(baseline(template));
+        // The text part is new; it has to carry the same content
+        assertThat(new String(rendered.text(), StandardCharsets.UTF_8)).contains(values);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void reportsRenderTimes() throws IOException {
+        // The text block as it was, with its arguments back in place
+        String format = baseline(EmailTemplate.PASSWORD_RESET).replace("%", "%%")
+                .replace("value-of-userName", "%1$s")
+                .replace("value-of-resetLink", "%2$s");
+        String userName = "Benchmark User";
+        String resetLink = "http://localhost:3000/reset-password?token=0123456789abcdef0123456789abcdef";
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += format.formatted(userName, resetLink).getBytes(StandardCharsets.UTF_8).length;
+            sink += templateEngine.render(EmailTemplate.PASSWORD_RESET, null, userName, resetLink).html().length;
+        }
+
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += format.formatted(userName, resetLink).getBytes(StandardCharsets.UTF_8).length;
+        }
+        long formatNanos = System.nanoTime() - startedAt;
+
+        startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            // Renders the plain-text part as well, which the formatted version never had
+            EmailTemplateEngine.RenderedEmail rendered =
+                    templateEngine.render(EmailTemplate.PASSWORD_RESET, null, userName, resetLink);
+            sink += rendered.html().length + rendered.text().length;
+        }
+        long compiledNanos = System.nanoTime() - startedAt;
+
+        logger.info("Email templates, {} renders: String.format {} us/op, compiled {} us/op (sink {})", ITERATIONS,
+                String.format("%.2f", formatNanos / 1000.0 / ITERATIONS),
+                String.format("%.2f", compiledNanos / 1000.0 / ITERATIONS), sink);
+    }
+
+    private static String baseline(EmailTemplate template) throws IOException {
+        return new ClassPathResource("email-baseline/" + template.fileName() + ".html")
+                .getContentAsString(StandardCharsets.UTF_8);
+    }
+}
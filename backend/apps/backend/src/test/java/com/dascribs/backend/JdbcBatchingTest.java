@@ -0,0 +1,71 @@
+package com.dascribs.backend;
+
+import com.dascribs.coreauth.entity.tenant.Tenant;
+import com.dascribs.coreauth.entity.user.Role;
+import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.coreauth.entity.user.UserTenant;
+import com.dascribs.coreauth.repository.TenantRepository;
+import com.dascribs.coreauth.repository.UserRepository;
+import com.dascribs.coreauth.repository.UserTenantRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the pooled id sequences and JDBC batching: inserting many rows must prepare one statement
+ * per table and fetch ids in blocks, not one round trip per row.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Keep the outbox poller from preparing statements while the count is taken
+        "app.email.outbox.poll-interval-ms=600000"
+})
+@Transactional
+class JdbcBatchingTest {
+
+    private static final int USERS = 20;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserTenantRepository userTenantRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void insertsAreBatchedPerTable() {
+        Tenant tenant = tenantRepository.save(new Tenant("jdbc-batching", "JDBC Batching", null, Tenant.Plan.FREE));
+        entityManager.flush();
+        statistics().clear();
+
+        for (int i = 0; i < USERS; i++) {
+            User user = userRepository.save(new User("Batched " + i, "jdbc-batching-" + i + "@test.local",
+                    "hash", null, Role.AGENT));
+            userTenantRepository.save(new UserTenant(user, tenant, false));
+        }
+        entityManager.flush();
+
+        assertThat(statistics().getEntityInsertCount()).isEqualTo(2L * USERS);
+        // One insert per table after ordering, plus at most two id block fetches per sequence
+        assertThat(statistics().getPrepareStatementCount()).isLessThanOrEqualTo(6);
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
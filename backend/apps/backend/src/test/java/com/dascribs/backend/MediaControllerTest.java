@@ -0,0 +1,188 @@
+package com.dascribs.backend;
+
+import com.dascribs.coreauth.controller.media.MediaController;
+import com.dascribs.coreauth.service.media.MediaStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Uploads are stored once per content, and served with strong ETags, conditional requests and single byte ranges.
+ */
+@SpringBootTest(classes = {MediaStorageService.class, MediaController.class})
+class MediaControllerTest {
+
+    @TempDir
+    static Path storage;
+
+    @DynamicPropertySource
+    static void storagePath(DynamicPropertyRegistry registry) {
+        registry.add("app.media.storage-path", storage::toString);
+    }
+
+    @Autowired
+    private MediaStorageService mediaStorageService;
+
+    @Autowired
+    private MediaController mediaController;
+
+    private byte[] png;
+    private MediaStorageService.StoredMedia stored;
+    private String etag;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(3, 5, 0x336699);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        png = output.toByteArray();
+
+        stored = mediaStorageService.store(new ByteArrayInputStream(png));
+        etag = "\"" + stored.name().substring(0, stored.name().lastIndexOf('.')) + "\"";
+    }
+
+    @Test
+    void uploadIsNamedByContentAndStoredOnce() throws IOException {
+        assertThat(stored.name()).matches("[0-9a-f]{64}\\.png");
+        assertThat(stored.contentType()).isEqualTo("image/png");
+        assertThat(stored.size()).isEqualTo(png.length);
+
+        Path path = mediaStorageService.resolve(stored.name()).orElseThrow().path();
+        FileTime marker = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(path, marker);
+
+        // The same bytes again leave the stored file alone instead of replacing it
+        assertThat(mediaStorageService.store(new ByteArrayInputStream(png))).isEqualTo(stored);
+        assertThat(Files.getLastModifiedTime(path)).isEqualTo(marker);
+        try (var leftovers = Files.list(storage.resolve("tmp"))) {
+            assertThat(leftovers.filter(file -> file.getFileName().toString().startsWith("upload-"))).isEmpty();
+        }
+    }
+
+    @Test
+    void uploadThatIsNotAnImageIsRejected() {
+        assertThatThrownBy(() -> mediaStorageService.store(
+                new ByteArrayInputStream("<svg></svg>".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unsupported image type");
+    }
+
+    @Test
+    void servesTheWholeFileWithAStrongEtag() throws IOException {
+        MockHttpServletResponse response = get(new MockHttpServletRequest());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).contains("immutable");
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getContentType()).isEqualTo("image/png");
+        assertThat(response.getContentAsByteArray()).isEqualTo(png);
+    }
+
+    @Test
+    void matchingEtagIsNotModified() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + etag);
+
+        MockHttpServletResponse response = get(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void rangeReturnsPartialContent() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        MockHttpServletResponse response = get(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/" + png.length);
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(png, 2, 6));
+
+        MockHttpServletRequest suffix = new MockHttpServletRequest();
+        suffix.addHeader(HttpHeaders.RANGE, "bytes=-4");
+        assertThat(get(suffix).getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(png, png.length - 4, png.length));
+    }
+
+    @Test
+    void rangeIsHonouredOnlyWhenIfRangeMatches() throws IOException {
+        MockHttpServletRequest matching = new MockHttpServletRequest();
+        matching.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        matching.addHeader(HttpHeaders.IF_RANGE, etag);
+        assertThat(get(matching).getStatus()).isEqualTo(206);
+
+        // A stale validator gets the whole current file
+        MockHttpServletRequest stale = new MockHttpServletRequest();
+        stale.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+        MockHttpServletResponse response = get(stale);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsByteArray()).isEqualTo(png);
+    }
+
+    @Test
+    void rangeBeyondTheEndIsNotSatisfiable() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=" + png.length + "-");
+
+        MockHttpServletResponse response = get(request);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */" + png.length);
+    }
+
+    @Test
+    void thumbnailNotRenderedYetFallsBackToTheOriginal() throws IOException {
+        // WebP originals never get thumbnails, so the fallback is deterministic
+        byte[] webp = "RIFF\0\0\0\0WEBPVP8 media-controller-test".getBytes(StandardCharsets.ISO_8859_1);
+        MediaStorageService.StoredMedia original = mediaStorageService.store(new ByteArrayInputStream(webp));
+        String thumbnail = original.name().replace(".webp", "-64.png");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        mediaController.getMedia(thumbnail, new MockHttpServletRequest(), response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, max-age=60");
+        assertThat(response.getContentAsByteArray()).isEqualTo(webp);
+    }
+
+    @Test
+    void unknownOrMalformedNamesAreNotFound() throws IOException {
+        for (String name : new String[]{"0".repeat(64) + ".png", "../etc/passwd"}) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            mediaController.getMedia(name, new MockHttpServletRequest(), response);
+            assertThat(response.getStatus()).isEqualTo(404);
+        }
+    }
+
+    private MockHttpServletResponse get(MockHttpServletRequest request) throws IOException {
+        request.setMethod("GET");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        mediaController.getMedia(stored.name(), request, response);
+        return response;
+    }
+}
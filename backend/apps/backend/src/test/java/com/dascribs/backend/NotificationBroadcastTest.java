@@ -0,0 +1,197 @@
+package com.dascribs.backend;
+
+import com.dascribs.coreauth.entity.email.EmailOutboxMessage;
+import com.dascribs.coreauth.entity.email.NotificationBroadcast;
+import com.dascribs.coreauth.entity.tenant.Tenant;
+import com.dascribs.coreauth.entity.user.Role;
+import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.coreauth.entity.user.UserTenant;
+import com.dascribs.coreauth.repository.EmailOutboxRepository;
+import com.dascribs.coreauth.repository.NotificationBroadcastRepository;
+import com.dascribs.coreauth.repository.TenantRepository;
+import com.dascribs.coreauth.repository.UserRepository;
+import com.dascribs.coreauth.repository.UserTenantRepository;
+import com.dascribs.coreauth.security.CurrentUserContext;
+import com.dascribs.coreauth.security.CustomUserDetailsService;
+import com.dascribs.coreauth.service.email.NotificationBroadcastService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fans broadcasts out to a few committed users. Rows are held for an hour by the digest window,
+ * so the dispatcher leaves them in the outbox for the assertions.
+ */
+@SpringBootTest(properties = {
+        "app.email.broadcast.batch-size=2",
+        "app.email.broadcast.max-messages-per-second=10",
+        "app.email.broadcast.tenant-messages-per-minute=30",
+        "app.email.broadcast.lookahead-seconds=3600",
+        "app.email.digest.window-seconds=3600",
+        // Only the test resumes broadcasts
+        "app.email.broadcast.resume-cron=-"
+})
+class NotificationBroadcastTest {
+
+    private static final int MEMBERS = 5;
+
+    @Autowired
+    private NotificationBroadcastService broadcastService;
+
+    @Autowired
+    private NotificationBroadcastRepository broadcastRepository;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserTenantRepository userTenantRepository;
+
+    @Autowired
+    private CurrentUserContext currentUserContext;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Long tenantId;
+    private Long otherTenantId;
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<Long> broadcastIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        currentUserContext.populate(new CustomUserDetailsService.UserPrincipal(
+                0L, "broadcast@test.local", "", Role.SUPER_ADMIN, null, List.of(), true));
+
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        String run = Long.toString(System.nanoTime(), 36);
+        transactionTemplate.executeWithoutResult(status -> {
+            Tenant tenant = tenantRepository.save(new Tenant("broadcast-" + run, "Broadcast", null, Tenant.Plan.FREE));
+            Tenant other = tenantRepository.save(new Tenant("broadcast-other-" + run, "Broadcast Other", null, Tenant.Plan.FREE));
+            tenantId = tenant.getId();
+            otherTenantId = other.getId();
+            for (int i = 0; i < MEMBERS; i++) {
+                User user = userRepository.save(new User("Broadcast " + i,
+                        "broadcast-" + run + "-" + i + "@test.local", "hash", null, Role.AGENT));
+                // Only the first member is primary, as for self-registered users; the rest were added by an admin
+                userTenantRepository.save(new UserTenant(user, tenant, i == 0));
+                userIds.add(user.getId());
+            }
+            User first = userRepository.findById(userIds.get(0)).orElseThrow();
+            userTenantRepository.save(new UserTenant(first, other, false));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            broadcastIds.forEach(outboxRepository::deletePendingByBroadcastId);
+            userTenantRepository.deleteAll(userTenantRepository.findByTenantId(tenantId));
+            userTenantRepository.deleteAll(userTenantRepository.findByTenantId(otherTenantId));
+            userRepository.deleteAllById(userIds);
+            tenantRepository.deleteAllById(List.of(tenantId, otherTenantId));
+        });
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void tenantBroadcastReachesEveryMemberAtTheTenantRate() throws InterruptedException {
+        Long broadcastId = broadcastService.notifyTenant(tenantId, "Maintenance", "Down at 02:00.").getId();
+        broadcastIds.add(broadcastId);
+        awaitCompleted(broadcastId);
+
+        List<EmailOutboxMessage> messages = messagesOf(broadcastId);
+        assertThat(messages).extracting(EmailOutboxMessage::getUserId).containsExactlyElementsOf(userIds);
+        // 30 per minute for one tenant: at least two seconds apart, although the broadcast rate allows ten per second
+        for (int i = 1; i < messages.size(); i++) {
+            assertThat(Duration.between(messages.get(i - 1).getNextAttemptAt(), messages.get(i).getNextAttemptAt()))
+                    .isGreaterThanOrEqualTo(Duration.ofSeconds(2));
+        }
+    }
+
+    @Test
+    void resumedBroadcastContinuesAfterItsCheckpoint() throws InterruptedException {
+        // As left by a node that stopped after enqueuing the first two members
+        LocalDateTime nextSendAt = LocalDateTime.now().plusMinutes(10).truncatedTo(ChronoUnit.SECONDS);
+        Long broadcastId = transactionTemplate.execute(status -> {
+            NotificationBroadcast broadcast = new NotificationBroadcast(tenantId, "Maintenance", "Down at 02:00.", 0L, MEMBERS);
+            broadcast.setCursorUserId(userIds.get(1));
+            broadcast.setEnqueuedCount(2);
+            broadcast.setNextSendAt(nextSendAt);
+            return broadcastRepository.save(broadcast).getId();
+        });
+        broadcastIds.add(broadcastId);
+
+        assertThat(broadcastService.resumeStalled()).isPositive();
+        awaitCompleted(broadcastId);
+
+        List<EmailOutboxMessage> messages = messagesOf(broadcastId);
+        assertThat(messages).extracting(EmailOutboxMessage::getUserId).containsExactlyElementsOf(userIds.subList(2, MEMBERS));
+        // Paced on from the checkpointed send time, then held for the digest window
+        assertThat(messages.get(0).getNextAttemptAt()).isAfterOrEqualTo(nextSendAt.plusSeconds(3600));
+        assertThat(broadcastRepository.findById(broadcastId).orElseThrow().getEnqueuedCount()).isEqualTo(MEMBERS);
+    }
+
+    @Test
+    void allTenantBroadcastReachesNonPrimaryMembersOnce() throws InterruptedException {
+        Long broadcastId = broadcastService.notifyAllTenants("Release notes", "Version 2 is out.").getId();
+        broadcastIds.add(broadcastId);
+        awaitCompleted(broadcastId);
+
+        List<EmailOutboxMessage> messages = messagesOf(broadcastId).stream()
+                .filter(message -> userIds.contains(message.getUserId()))
+                .toList();
+        assertThat(messages).extracting(EmailOutboxMessage::getUserId).containsExactlyElementsOf(userIds);
+        // The member of two tenants is reached through their primary one
+        assertThat(messages.get(0).getTenantId()).isEqualTo(tenantId);
+
+        NotificationBroadcast broadcast = broadcastRepository.findById(broadcastId).orElseThrow();
+        assertThat(broadcast.getEnqueuedCount()).isEqualTo(broadcast.getTotalRecipients());
+    }
+
+    private List<EmailOutboxMessage> messagesOf(Long broadcastId) {
+        return outboxRepository.findAll().stream()
+                .filter(message -> broadcastId.equals(message.getBroadcastId()))
+                .sorted(Comparator.comparing(EmailOutboxMessage::getUserId))
+                .toList();
+    }
+
+    private void awaitCompleted(Long broadcastId) throws InterruptedException {
+        await(() -> broadcastRepository.findById(broadcastId)
+                .filter(broadcast -> broadcast.getStatus() == NotificationBroadcast.Status.COMPLETED)
+                .isPresent());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
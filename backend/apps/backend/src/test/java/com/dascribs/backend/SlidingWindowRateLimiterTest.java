@@ -0,0 +1,44 @@
+package com.dascribs.backend;
+
+import com.dascribs.coreauth.service.auth.SlidingWindowRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {SlidingWindowRateLimiter.class, SimpleMeterRegistry.class})
+class SlidingWindowRateLimiterTest {
+
+    @Autowired
+    private SlidingWindowRateLimiter rateLimiter;
+
+    @Test
+    void allowsUpToTheLimitWithinTheWindow() {
+        Duration window = Duration.ofMinutes(10);
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.tryAcquire("test-limit", 1L, 3, window)).isTrue();
+        }
+        assertThat(rateLimiter.tryAcquire("test-limit", 1L, 3, window)).isFalse();
+        assertThat(rateLimiter.retryAfter("test-limit", 1L, 3, window)).isPositive();
+
+        // Other keys and scopes keep their own windows
+        assertThat(rateLimiter.tryAcquire("test-limit", 2L, 3, window)).isTrue();
+        assertThat(rateLimiter.tryAcquire("other-limit", 1L, 3, window)).isTrue();
+    }
+
+    @Test
+    void eventsLeaveTheWindow() throws InterruptedException {
+        Duration window = Duration.ofMillis(200);
+        assertThat(rateLimiter.tryAcquire("test-expiry", 1L, 1, window)).isTrue();
+        assertThat(rateLimiter.tryAcquire("test-expiry", 1L, 1, window)).isFalse();
+
+        Thread.sleep(250);
+        assertThat(rateLimiter.retryAfter("test-expiry", 1L, 1, window)).isZero();
+        rateLimiter.evictIdle();
+        assertThat(rateLimiter.tryAcquire("test-expiry", 1L, 1, window)).isTrue();
+    }
+}
@@ -0,0 +1,127 @@
+package com.dascribs.backend;
+
+import com.dascribs.coreauth.service.email.SmtpConnectionPool;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends through the pooled transport and through a connection per email against an SMTP sink
+ * whose greeting is delayed to stand in for the TCP and STARTTLS handshake of a real provider.
+ * The send times are only measured with -Pbenchmarks.
+ */
+@SpringBootTest(properties = {
+        "app.email.smtp.pool-size=4",
+        "app.email.smtp.max-connections-per-minute=6000",
+        "app.email.smtp.max-messages-per-second=10000"
+})
+@ActiveProfiles("production")
+class SmtpConnectionPoolTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpConnectionPoolTest.class);
+
+    private static final int MESSAGES = 50;
+    private static final long HANDSHAKE_MS = 20;
+
+    private static final SmtpStandIn smtp = SmtpStandIn.start(HANDSHAKE_MS);
+
+    @DynamicPropertySource
+    static void mailProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.host", () -> "localhost");
+        registry.add("spring.mail.port", smtp::port);
+        registry.add("spring.mail.properties.mail.smtp.auth", () -> "false");
+    }
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private SmtpConnectionPool smtpConnectionPool;
+
+    @AfterAll
+    static void stopSmtp() throws IOException {
+        smtp.close();
+    }
+
+    @Test
+    void pooledTransportReusesConnections() throws Exception {
+        int connectionsBefore = smtp.connections();
+        sendUnpooled("unpooled");
+        int unpooledConnections = smtp.connections() - connectionsBefore;
+
+        connectionsBefore = smtp.connections();
+        sendPooled("pooled");
+        int pooledConnections = smtp.connections() - connectionsBefore;
+
+        assertThat(unpooledConnections).isEqualTo(MESSAGES);
+        assertThat(pooledConnections).isLessThanOrEqualTo(4).isLessThan(unpooledConnections);
+        assertThat(smtp.received("pooled-" + (MESSAGES - 1) + "@bench.local")).isPresent();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void reportsSendTimes() throws Exception {
+        long startedAt = System.nanoTime();
+        sendUnpooled("bench-unpooled");
+        long unpooledMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        startedAt = System.nanoTime();
+        sendPooled("bench-pooled");
+        long pooledMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        logger.info("SMTP, {} messages with a {} ms handshake: connection per send {} ms, pooled {} ms",
+                MESSAGES, HANDSHAKE_MS, unpooledMs, pooledMs);
+    }
+
+    private void sendUnpooled(String prefix) throws MessagingException {
+        for (int i = 0; i < MESSAGES; i++) {
+            mailSender.send(message(prefix + "-" + i + "@bench.local"));
+        }
+    }
+
+    private void sendPooled(String prefix) throws Exception {
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> sends = new ArrayList<>();
+            for (int i = 0; i < MESSAGES; i++) {
+                MimeMessage message = message(prefix + "-" + i + "@bench.local");
+                sends.add(senders.submit(() -> {
+                    smtpConnectionPool.send(message);
+                    return null;
+                }));
+            }
+            for (Future<?> send : sends) {
+                send.get();
+            }
+        }
+    }
+
+    private MimeMessage message(String recipient) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setTo(recipient);
+        helper.setFrom("bench@dascribs.local");
+        helper.setSubject("Benchmark");
+        helper.setText("<p>Benchmark message</p>", true);
+        return message;
+    }
+}
@@ -0,0 +1,119 @@
+package com.dascribs.backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Just enough SMTP to accept messages from JavaMail and keep them in memory. Recipients starting
+ * with "reject" are refused with a permanent error. The greeting can be delayed to stand in for
+ * the cost of a real connection setup.
+ */
+final class SmtpStandIn implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final long greetingDelayMs;
+    private final List<String[]> messages = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private SmtpStandIn(ServerSocket serverSocket, long greetingDelayMs) {
+        this.serverSocket = serverSocket;
+        this.greetingDelayMs = greetingDelayMs;
+    }
+
+    static SmtpStandIn start(long greetingDelayMs) {
+        try {
+            SmtpStandIn standIn = new SmtpStandIn(new ServerSocket(0), greetingDelayMs);
+            Thread.ofVirtual().start(standIn::acceptLoop);
+            return standIn;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    int connections() {
+        return connections.get();
+    }
+
+    int messageCount() {
+        return messages.size();
+    }
+
+    Optional<String> received(String recipient) {
+        return messages.stream()
+                .filter(message -> message[0].equalsIgnoreCase(recipient))
+                .map(message -> message[1])
+                .findFirst();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                Thread.ofVirtual().start(() -> handle(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+            if (greetingDelayMs > 0) {
+                Thread.sleep(greetingDelayMs);
+            }
+            reply(out, "220 localhost SMTP stand-in");
+            String recipient = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("RCPT TO:")) {
+                    recipient = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+                    reply(out, recipient.startsWith("reject") ? "550 mailbox unavailable" : "250 OK");
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 end with .");
+                    StringBuilder body = new StringBuilder();
+                    while ((line = in.readLine()) != null && !line.equals(".")) {
+                        body.append(line).append('\n');
+                    }
+                    messages.add(new String[]{recipient, body.toString()});
+                    reply(out, "250 OK");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 bye");
+                    return;
+                } else {
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // Client went away
+        }
+    }
+
+    private static void reply(Writer out, String line) throws IOException {
+        out.write(line + "\r\n");
+        out.flush();
+    }
+}
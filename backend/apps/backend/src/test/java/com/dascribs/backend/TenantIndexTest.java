@@ -0,0 +1,35 @@
+package com.dascribs.backend;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the tenant-led users index: a tenant, role and status predicate must be answered from
+ * idx_users_tenant_role_active, not by scanning users.
+ */
+@SpringBootTest
+@Transactional
+class TenantIndexTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void tenantRoleActivePredicateUsesTheTenantLedIndex() {
+        // The test database is too small for the planner to prefer an index on its own
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+
+        List<String> plan = jdbcTemplate.queryForList(
+                "EXPLAIN SELECT id FROM users WHERE tenant_id = ? AND role = 'AGENT' AND active = true",
+                String.class, 1L);
+
+        assertThat(String.join("\n", plan)).contains("idx_users_tenant_role_active");
+    }
+}
@@ -0,0 +1,126 @@
+package com.dascribs.backend;
+
+import com.dascribs.coreauth.dto.tenant.TenantResponse;
+import com.dascribs.coreauth.entity.tenant.Tenant;
+import com.dascribs.coreauth.entity.user.Role;
+import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.coreauth.entity.user.UserTenant;
+import com.dascribs.coreauth.repository.TenantRepository;
+import com.dascribs.coreauth.repository.UserRepository;
+import com.dascribs.coreauth.repository.UserTenantRepository;
+import com.dascribs.coreauth.security.CurrentUserContext;
+import com.dascribs.coreauth.security.CustomUserDetailsService;
+import com.dascribs.coreauth.service.tenant.TenantService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards tenant listings against N+1 user count queries.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class TenantServiceQueryCountTest {
+
+    private static final int TENANTS = 5;
+    private static final int USERS_PER_TENANT = 3;
+
+    @Autowired
+    private TenantService tenantService;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserTenantRepository userTenantRepository;
+
+    @Autowired
+    private CurrentUserContext currentUserContext;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long firstTenantId;
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        currentUserContext.populate(new CustomUserDetailsService.UserPrincipal(
+                0L, "query-count@test.local", "", Role.SUPER_ADMIN, null, List.of(), true));
+
+        for (int i = 0; i < TENANTS; i++) {
+            Tenant tenant = tenantRepository.save(
+                    new Tenant("query-count-" + i, "Query Count " + i, null, Tenant.Plan.FREE));
+            if (firstTenantId == null) {
+                firstTenantId = tenant.getId();
+            }
+            for (int j = 0; j < USERS_PER_TENANT; j++) {
+                User user = userRepository.save(new User("Agent " + i + "-" + j,
+                        "query-count-" + i + "-" + j + "@test.local", "hash", null, Role.AGENT));
+                userTenantRepository.save(new UserTenant(user, tenant, true));
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics().clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void getAllTenantsUsesSingleGroupedQuery() {
+        Page<TenantResponse> page = tenantService.getAllTenants(PageRequest.of(0, 100));
+
+        assertThat(page.getContent()).anyMatch(tenant -> tenant.getUserCount() == USERS_PER_TENANT);
+        // Grouped select only; the count query is skipped when the first page is not full
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getActiveTenantsUsesSingleGroupedQuery() {
+        tenantService.getActiveTenants(PageRequest.of(0, 100));
+
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void singleTenantLookupsUseOneQuery() {
+        TenantResponse byId = tenantService.getTenantById(firstTenantId);
+        assertThat(byId.getUserCount()).isEqualTo(USERS_PER_TENANT);
+
+        statistics().clear();
+        tenantService.getTenantByTenantId("query-count-0");
+
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
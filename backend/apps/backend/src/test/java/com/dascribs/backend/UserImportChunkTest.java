@@ -0,0 +1,79 @@
+package com.dascribs.backend;
+
+import com.dascribs.coreauth.dto.user.UserImportReport;
+import com.dascribs.coreauth.entity.tenant.Tenant;
+import com.dascribs.coreauth.entity.user.Role;
+import com.dascribs.coreauth.repository.TenantRepository;
+import com.dascribs.coreauth.security.CurrentUserContext;
+import com.dascribs.coreauth.security.CustomUserDetailsService;
+import com.dascribs.coreauth.service.user.UserImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A chunk that runs into the tenant's user limit imports the rows that still fit instead of failing them all.
+ */
+@SpringBootTest
+class UserImportChunkTest {
+
+    @Autowired
+    private UserImportService importService;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private CurrentUserContext currentUserContext;
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        currentUserContext.populate(new CustomUserDetailsService.UserPrincipal(
+                0L, "import-chunk@test.local", "", Role.SUPER_ADMIN, null, List.of(), true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void rowsOverTheUserLimitFailWithoutTakingTheChunkDown() throws IOException {
+        String run = Long.toString(System.nanoTime());
+        Tenant tenant = new Tenant("import-chunk-" + run, "Import Chunk", null, Tenant.Plan.FREE);
+        tenant.setMaxUsers(2);
+        tenant = tenantRepository.save(tenant);
+
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            rows.append("{\"fullName\":\"Chunk Agent ").append(i).append("\",\"email\":\"import-chunk-")
+                    .append(run).append('-').append(i).append("@test.local\",\"password\":\"Chunk-Passw0rd\",")
+                    .append("\"role\":\"AGENT\",\"commissionRate\":2.5}\n");
+        }
+        UserImportReport report = importService.importUsers(
+                new ByteArrayInputStream(rows.toString().getBytes(StandardCharsets.UTF_8)),
+                UserImportService.ImportFormat.NDJSON, tenant.getId());
+
+        assertThat(report.getCreated()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(1);
+        // Imported rows are only counted; the details list what needs attention
+        assertThat(report.getRows()).singleElement().satisfies(row -> {
+            assertThat(row.getRow()).isEqualTo(3);
+            assertThat(row.getStatus()).isEqualTo(UserImportReport.RowStatus.FAILED);
+        });
+        assertThat(tenantRepository.findById(tenant.getId()).orElseThrow().getActiveUserCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,77 @@
+package com.dascribs.backend;
+
+import com.dascribs.coreauth.dto.user.UserImportReport;
+import com.dascribs.coreauth.entity.user.Role;
+import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.coreauth.security.CurrentUserContext;
+import com.dascribs.coreauth.security.CustomUserDetailsService;
+import com.dascribs.coreauth.service.auth.PasswordResetService;
+import com.dascribs.coreauth.service.email.OutboxEmailService;
+import com.dascribs.coreauth.service.user.UserImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+
+/**
+ * An imported user without a password must be able to set one through the emailed invite link.
+ */
+@SpringBootTest
+class UserImportInviteTest {
+
+    @Autowired
+    private UserImportService importService;
+
+    @Autowired
+    private PasswordResetService passwordResetService;
+
+    @Autowired
+    private CurrentUserContext currentUserContext;
+
+    @SpyBean
+    private OutboxEmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        currentUserContext.populate(new CustomUserDetailsService.UserPrincipal(
+                0L, "import-invite@test.local", "", Role.SUPER_ADMIN, null, List.of(), true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void invitedUserSetsPasswordWithEmailedToken() throws IOException {
+        String row = "{\"fullName\":\"Invited Agent\",\"email\":\"import-invited@test.local\"," +
+                "\"role\":\"AGENT\",\"commissionRate\":2.5}\n";
+        UserImportReport report = importService.importUsers(
+                new ByteArrayInputStream(row.getBytes(StandardCharsets.UTF_8)), UserImportService.ImportFormat.NDJSON, null);
+        assertThat(report.getInvited()).isEqualTo(1);
+
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(emailService).sendUserInvitationEmail(any(User.class), token.capture());
+
+        assertThat(passwordResetService.validateResetToken(token.getValue())).isTrue();
+        assertThat(passwordResetService.resetPassword(token.getValue(), "Invited-Passw0rd")).isTrue();
+        // Single use
+        assertThat(passwordResetService.validateResetToken(token.getValue())).isFalse();
+    }
+}
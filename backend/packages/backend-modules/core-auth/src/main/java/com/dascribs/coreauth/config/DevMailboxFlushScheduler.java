@@ -0,0 +1,20 @@
+package com.dascribs.coreauth.config;
+
+import com.dascribs.coreauth.service.email.DevMailbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Profile("dev")
+public class DevMailboxFlushScheduler {
+
+    @Autowired
+    private DevMailbox devMailbox;
+
+    @Scheduled(cron = "${app.email-service.dev-storage.flush-cron:* * * * * ?}")
+    public void flushMailbox() {
+        devMailbox.flush();
+    }
+}
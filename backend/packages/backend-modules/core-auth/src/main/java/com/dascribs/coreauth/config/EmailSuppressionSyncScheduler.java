@@ -0,0 +1,18 @@
+package com.dascribs.coreauth.config;
+
+import com.dascribs.coreauth.service.email.EmailSuppressionList;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EmailSuppressionSyncScheduler {
+
+    @Autowired
+    private EmailSuppressionList suppressionList;
+
+    @Scheduled(cron = "${app.email.suppression.sync-cron:*/15 * * * * ?}")
+    public void syncSuppressions() {
+        suppressionList.sync();
+    }
+}
@@ -0,0 +1,18 @@
+package com.dascribs.coreauth.config;
+
+import com.dascribs.coreauth.service.auth.ExpiredTokenSweeper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ExpiredTokenSweepScheduler {
+
+    @Autowired
+    private ExpiredTokenSweeper tokenSweeper;
+
+    @Scheduled(cron = "${app.security.token-sweep.cron:0 */5 * * * ?}")
+    public void sweepExpiredTokens() {
+        tokenSweeper.sweepExpiredTokens();
+    }
+}
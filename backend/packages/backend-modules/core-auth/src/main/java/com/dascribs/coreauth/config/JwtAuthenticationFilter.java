@@ -1,5 +1,6 @@
 package com.dascribs.coreauth.config;
 
+import com.dascribs.coreauth.security.CurrentUserContext;
 import com.dascribs.coreauth.security.CustomUserDetailsService;
 import com.dascribs.coreauth.service.auth.JwtService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -35,6 +36,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private CurrentUserContext currentUserContext;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -86,6 +90,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     );
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
+                    populateCurrentUserContext(userDetails);
                     logger.debug("Successfully authenticated user: {}", userEmail);
                 } else {
                     logger.warn("Invalid or expired JWT token for user: {}", userEmail);
@@ -105,6 +110,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
     }
 
+    private void populateCurrentUserContext(UserDetails userDetails) {
+        if (userDetails instanceof CustomUserDetailsService.UserPrincipal principal) {
+            currentUserContext.populate(principal);
+        }
+    }
+
     private boolean isPublicEndpoint(HttpServletRequest request) {
         String path = request.getServletPath();
 
@@ -0,0 +1,18 @@
+package com.dascribs.coreauth.config;
+
+import com.dascribs.coreauth.service.email.NotificationBroadcastService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class NotificationBroadcastScheduler {
+
+    @Autowired
+    private NotificationBroadcastService broadcastService;
+
+    @Scheduled(cron = "${app.email.broadcast.resume-cron:0 * * * * ?}")
+    public void resumeStalledBroadcasts() {
+        broadcastService.resumeStalled();
+    }
+}
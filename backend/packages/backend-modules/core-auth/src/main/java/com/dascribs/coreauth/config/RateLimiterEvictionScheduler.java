@@ -0,0 +1,18 @@
+package com.dascribs.coreauth.config;
+
+import com.dascribs.coreauth.service.auth.SlidingWindowRateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class RateLimiterEvictionScheduler {
+
+    @Autowired
+    private SlidingWindowRateLimiter rateLimiter;
+
+    @Scheduled(cron = "${app.security.rate-limit.eviction-cron:0 * * * * ?}")
+    public void evictIdleKeys() {
+        rateLimiter.evictIdle();
+    }
+}
@@ -0,0 +1,18 @@
+package com.dascribs.coreauth.config;
+
+import com.dascribs.coreauth.service.tenant.TenantSubscriptionExpiryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SubscriptionExpiryScheduler {
+
+    @Autowired
+    private TenantSubscriptionExpiryService expiryService;
+
+    @Scheduled(cron = "${app.tenants.subscription.expiry-cron:0 */15 * * * ?}")
+    public void processDueSubscriptions() {
+        expiryService.processDueSubscriptions();
+    }
+}
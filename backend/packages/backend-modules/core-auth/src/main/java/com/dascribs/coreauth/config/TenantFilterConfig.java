@@ -0,0 +1,19 @@
+package com.dascribs.coreauth.config;
+
+import com.dascribs.coreauth.security.CurrentUserContext;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Configuration
+public class TenantFilterConfig {
+
+    // Replaces Spring Boot's default JpaTransactionManager
+    @Bean
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+                                                         ObjectProvider<CurrentUserContext> currentUserContext) {
+        return new TenantFilterTransactionManager(entityManagerFactory, currentUserContext);
+    }
+}
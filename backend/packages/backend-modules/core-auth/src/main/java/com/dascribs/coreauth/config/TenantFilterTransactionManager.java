@@ -0,0 +1,60 @@
+package com.dascribs.coreauth.config;
+
+import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.coreauth.security.CurrentUserContext;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Enables the Hibernate tenant filter on every transaction started for a tenant-bound caller,
+ * so User queries are scoped without each repository method repeating it. Only users carry the
+ * discriminator, and lookups by id are not filtered: ownership of a loaded user is still checked
+ * explicitly. Super admins, background jobs and unauthenticated requests run unfiltered.
+ */
+public class TenantFilterTransactionManager extends JpaTransactionManager {
+
+    // Matches no rows: a tenant-bound caller without a tenant must not see other tenants' data
+    private static final long NO_TENANT = -1L;
+
+    private final ObjectProvider<CurrentUserContext> currentUserContext;
+
+    public TenantFilterTransactionManager(EntityManagerFactory entityManagerFactory,
+                                          ObjectProvider<CurrentUserContext> currentUserContext) {
+        super(entityManagerFactory);
+        this.currentUserContext = currentUserContext;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+
+        CurrentUserContext context = resolveTenantBoundContext();
+        if (context == null) {
+            return;
+        }
+
+        Long tenantId = context.getTenantId();
+        EntityManagerHolder holder =
+                (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+        holder.getEntityManager().unwrap(Session.class)
+                .enableFilter(User.TENANT_FILTER)
+                .setParameter("tenantId", tenantId != null ? tenantId : NO_TENANT);
+    }
+
+    private CurrentUserContext resolveTenantBoundContext() {
+        if (RequestContextHolder.getRequestAttributes() == null) {
+            return null;
+        }
+        CurrentUserContext context = currentUserContext.getIfAvailable();
+        if (context == null || !context.isPopulated() || context.isSuperAdmin()) {
+            return null;
+        }
+        return context;
+    }
+}
@@ -0,0 +1,45 @@
+package com.dascribs.coreauth.config;
+
+import com.dascribs.coreauth.security.CurrentTenantContext;
+import com.dascribs.coreauth.service.tenant.TenantResolver;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+@Component
+public class TenantResolutionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantResolutionFilter.class);
+
+    @Autowired
+    private TenantResolver tenantResolver;
+
+    @Autowired
+    private CurrentTenantContext currentTenantContext;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        // Inactive tenants are kept too, so callers can turn them away instead of falling back
+        Optional<TenantResolver.ResolvedTenant> tenant = tenantResolver.resolveByDomain(request.getServerName());
+        tenant.ifPresentOrElse(
+                currentTenantContext::populate,
+                () -> logger.debug("No tenant for host {}", request.getServerName()));
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,18 @@
+package com.dascribs.coreauth.config;
+
+import com.dascribs.coreauth.service.tenant.TenantStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TenantStatsRefreshScheduler {
+
+    @Autowired
+    private TenantStatsService tenantStatsService;
+
+    @Scheduled(cron = "${app.tenants.stats.refresh-cron:0 * * * * ?}")
+    public void refreshDirtySnapshots() {
+        tenantStatsService.refreshDirtySnapshots();
+    }
+}
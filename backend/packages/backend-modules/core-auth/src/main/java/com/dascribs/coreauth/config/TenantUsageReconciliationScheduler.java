@@ -0,0 +1,18 @@
+package com.dascribs.coreauth.config;
+
+import com.dascribs.coreauth.service.tenant.TenantUsageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TenantUsageReconciliationScheduler {
+
+    @Autowired
+    private TenantUsageService tenantUsageService;
+
+    @Scheduled(cron = "${app.tenants.usage.reconcile-cron:0 30 3 * * ?}")
+    public void reconcileTenantUsage() {
+        tenantUsageService.reconcile();
+    }
+}
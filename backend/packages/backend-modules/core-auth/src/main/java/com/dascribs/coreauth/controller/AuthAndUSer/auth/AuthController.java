@@ -79,7 +79,7 @@ public class AuthController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<ApiResponse<Void>> logoutAllSessions() {
         try {
-            authService.logoutAllSessions(userService.getCurrentUserDetails().getId());
+            authService.logoutAllSessions(userService.getCurrentUserId());
             return ResponseEntity.ok(ApiResponse.success("Logged out from all sessions", null));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
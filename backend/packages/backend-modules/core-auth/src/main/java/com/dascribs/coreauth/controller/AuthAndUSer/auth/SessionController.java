@@ -27,7 +27,7 @@ public class SessionController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<ApiResponse<List<SessionResponse>>> getUserSessions() {
         try {
-            Long userId = userService.getCurrentUserDetails().getId();
+            Long userId = userService.getCurrentUserId();
             List<UserSession> sessions = sessionService.getUserSessions(userId);
 
             List<SessionResponse> response = sessions.stream()
@@ -3,10 +3,16 @@ package com.dascribs.coreauth.controller.AuthAndUSer.tenant;
 
 import com.dascribs.coreauth.dto.shared.ApiResponse;
 import com.dascribs.coreauth.dto.shared.PaginatedResponse;
+import com.dascribs.coreauth.dto.tenant.NotificationBroadcastResponse;
 import com.dascribs.coreauth.dto.tenant.TenantCreateRequest;
+import com.dascribs.coreauth.dto.tenant.TenantNotificationRequest;
 import com.dascribs.coreauth.dto.tenant.TenantResponse;
 import com.dascribs.coreauth.dto.tenant.TenantUpdateRequest;
+import com.dascribs.coreauth.entity.tenant.TenantStatsSnapshot;
+import com.dascribs.coreauth.service.email.NotificationBroadcastService;
 import com.dascribs.coreauth.service.tenant.TenantService;
+import com.dascribs.coreauth.service.tenant.TenantStatsService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -27,6 +33,12 @@ public class TenantController {
     @Autowired
     private TenantService tenantService;
 
+    @Autowired
+    private TenantStatsService tenantStatsService;
+
+    @Autowired
+    private NotificationBroadcastService broadcastService;
+
     @GetMapping
     @PreAuthorize("hasRole('SUPER_ADMIN')")
     public ResponseEntity<ApiResponse<PaginatedResponse<TenantResponse>>> getAllTenants(
@@ -170,19 +182,39 @@ public class TenantController {
         }
     }
 
+    @PostMapping(value = "/{id}/logo", consumes = {"image/png", "image/jpeg", "image/gif", "image/webp"})
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, String>>> uploadLogo(
+            @PathVariable Long id,
+            HttpServletRequest httpRequest) {
+
+        try {
+            String logoUrl = tenantService.uploadTenantLogo(id, httpRequest.getInputStream());
+            return ResponseEntity.ok(ApiResponse.success("Tenant logo uploaded successfully", Map.of("logoUrl", logoUrl)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}/stats")
     @PreAuthorize("hasRole('SUPER_ADMIN')")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getTenantStats(@PathVariable Long id) {
         try {
-            TenantResponse tenant = tenantService.getTenantById(id);
+            TenantStatsSnapshot snapshot = tenantStatsService.getTenantStats(id);
+            TenantResponse tenant = new TenantResponse(snapshot.getTenant());
+            tenant.setUserCount(snapshot.getActiveUsers());
+            tenant.setPropertyCount(snapshot.getPropertyCount());
 
             Map<String, Object> stats = Map.of(
                     "tenant", tenant,
+                    "totalUsers", snapshot.getTotalUsers(),
                     "userLimitReached", tenant.hasReachedUserLimit(),
-//                    "propertyLimitReached", tenant.hasReachedPropertyLimit(),
+                    "propertyLimitReached", tenant.hasReachedPropertyLimit(),
                     "subscriptionActive", tenant.isSubscriptionActive(),
                     "daysUntilExpiry", tenant.getSubscriptionEndsAt() != null ?
-                            java.time.Duration.between(java.time.LocalDateTime.now(), tenant.getSubscriptionEndsAt()).toDays() : -1
+                            java.time.Duration.between(java.time.LocalDateTime.now(), tenant.getSubscriptionEndsAt()).toDays() : -1,
+                    "snapshotAt", snapshot.getSnapshotAt()
             );
 
             return ResponseEntity.ok(ApiResponse.success("Tenant stats retrieved successfully", stats));
@@ -191,4 +223,61 @@ public class TenantController {
                     .body(ApiResponse.error(e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("/{id}/notifications")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<ApiResponse<NotificationBroadcastResponse>> notifyTenant(
+            @PathVariable Long id,
+            @Valid @RequestBody TenantNotificationRequest request) {
+
+        try {
+            NotificationBroadcastResponse broadcast =
+                    broadcastService.notifyTenant(id, request.getSubject(), request.getMessage());
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ApiResponse.success("Tenant notification started", broadcast));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/notifications")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<ApiResponse<NotificationBroadcastResponse>> notifyAllTenants(
+            @Valid @RequestBody TenantNotificationRequest request) {
+
+        try {
+            NotificationBroadcastResponse broadcast =
+                    broadcastService.notifyAllTenants(request.getSubject(), request.getMessage());
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ApiResponse.success("Notification to all tenants started", broadcast));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/notifications/{broadcastId}")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<ApiResponse<NotificationBroadcastResponse>> getNotification(@PathVariable Long broadcastId) {
+        try {
+            NotificationBroadcastResponse broadcast = broadcastService.getBroadcast(broadcastId);
+            return ResponseEntity.ok(ApiResponse.success("Notification retrieved successfully", broadcast));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/notifications/{broadcastId}/cancel")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> cancelNotification(@PathVariable Long broadcastId) {
+        try {
+            broadcastService.cancelBroadcast(broadcastId);
+            return ResponseEntity.ok(ApiResponse.success("Notification cancelled successfully", null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
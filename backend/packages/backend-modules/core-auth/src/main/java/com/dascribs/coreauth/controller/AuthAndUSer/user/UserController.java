@@ -3,12 +3,19 @@ package com.dascribs.coreauth.controller.AuthAndUSer.user;
 
 import com.dascribs.coreauth.dto.shared.ApiResponse;
 import com.dascribs.coreauth.dto.shared.PaginatedResponse;
+import com.dascribs.coreauth.dto.user.BulkUserUpdateRequest;
+import com.dascribs.coreauth.dto.user.BulkUserUpdateResult;
 import com.dascribs.coreauth.dto.user.PasswordUpdateRequest;
 import com.dascribs.coreauth.dto.user.UserCreateRequest;
+import com.dascribs.coreauth.dto.user.UserImportReport;
 import com.dascribs.coreauth.dto.user.UserResponse;
 import com.dascribs.coreauth.dto.user.UserUpdateRequest;
 import com.dascribs.coreauth.entity.user.Role;
+import com.dascribs.coreauth.service.user.UserExportService;
+import com.dascribs.coreauth.service.user.UserImportService;
 import com.dascribs.coreauth.service.user.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -20,7 +27,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/users")
@@ -29,6 +38,12 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserExportService userExportService;
+
     @GetMapping
     @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<PaginatedResponse<UserResponse>>> getAllUsers(
@@ -84,6 +99,29 @@ public class UserController {
         }
     }
 
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> exportUsers(
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+
+        UserExportService.ExportFormat exportFormat;
+        try {
+            exportFormat = UserExportService.ExportFormat.parse(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+        Long tenantId = userExportService.resolveExportTenantId();
+
+        boolean csv = exportFormat == UserExportService.ExportFormat.CSV;
+        response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"users." + (csv ? "csv" : "ndjson") + "\"");
+        userExportService.exportUsers(tenantId, exportFormat, response.getOutputStream());
+        // The body has already been streamed
+        return null;
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN') or #id == authentication.principal.id")
     public ResponseEntity<ApiResponse<UserResponse>> getUserById(@PathVariable Long id) {
@@ -109,6 +147,23 @@ public class UserController {
         }
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<UserImportReport>> importUsers(
+            @RequestParam(required = false) Long tenantId,
+            HttpServletRequest httpRequest) {
+
+        try {
+            UserImportService.ImportFormat format = httpRequest.getContentType().startsWith("text/csv") ?
+                    UserImportService.ImportFormat.CSV : UserImportService.ImportFormat.NDJSON;
+            UserImportReport report = userImportService.importUsers(httpRequest.getInputStream(), format, tenantId);
+            return ResponseEntity.ok(ApiResponse.success("User import completed", report));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN') or #id == authentication.principal.id")
     public ResponseEntity<ApiResponse<UserResponse>> updateUser(
@@ -178,6 +233,23 @@ public class UserController {
         }
     }
 
+    @PostMapping(value = "/{id}/profile-image", consumes = {"image/png", "image/jpeg", "image/gif", "image/webp"})
+    @PreAuthorize("#id == authentication.principal.id or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, String>>> uploadProfileImage(
+            @PathVariable Long id,
+            HttpServletRequest httpRequest) {
+
+        try {
+            // The body is the raw image, streamed to storage without buffering it in memory
+            String imageUrl = userService.uploadUserProfileImage(id, httpRequest.getInputStream());
+            return ResponseEntity.ok(ApiResponse.success("Profile image uploaded successfully",
+                    Map.of("profileImageUrl", imageUrl)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}/status")
     @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<UserResponse>> updateUserStatus(
@@ -197,6 +269,34 @@ public class UserController {
         }
     }
 
+    @PutMapping("/bulk/status")
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BulkUserUpdateResult>> bulkUpdateStatus(
+            @Valid @RequestBody BulkUserUpdateRequest request) {
+
+        try {
+            BulkUserUpdateResult result = userService.bulkUpdateStatus(request);
+            return ResponseEntity.ok(ApiResponse.success(result.getUpdatedCount() + " users updated", result));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PutMapping("/bulk/role")
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BulkUserUpdateResult>> bulkUpdateRole(
+            @Valid @RequestBody BulkUserUpdateRequest request) {
+
+        try {
+            BulkUserUpdateResult result = userService.bulkUpdateRole(request);
+            return ResponseEntity.ok(ApiResponse.success(result.getUpdatedCount() + " users updated", result));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     // Inner DTO classes for specific requests
     public static class ProfileImageRequest {
         private String imageUrl;
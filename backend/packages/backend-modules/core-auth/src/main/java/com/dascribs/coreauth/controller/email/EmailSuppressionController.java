@@ -0,0 +1,76 @@
+package com.dascribs.coreauth.controller.email;
+
+import com.dascribs.coreauth.dto.email.EmailEventRequest;
+import com.dascribs.coreauth.dto.shared.ApiResponse;
+import com.dascribs.coreauth.entity.email.EmailSuppression;
+import com.dascribs.coreauth.service.email.EmailSuppressionList;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Receives bounce and complaint events from the mail provider and lets super admins lift a
+ * suppression. The event endpoint stands in for the provider's webhook: it is public and
+ * authenticated by a shared secret header, and it is closed while no secret is configured.
+ */
+@RestController
+public class EmailSuppressionController {
+
+    private static final String SECRET_HEADER = "X-Webhook-Secret";
+
+    @Autowired
+    private EmailSuppressionList suppressionList;
+
+    @Value("${app.email.suppression.webhook-secret:}")
+    private String webhookSecret;
+
+    @PostMapping("/api/public/email/events")
+    public ResponseEntity<ApiResponse<Void>> receiveEvent(
+            @RequestHeader(value = SECRET_HEADER, required = false) String secret,
+            @Valid @RequestBody EmailEventRequest request) {
+
+        if (webhookSecret.isEmpty() || secret == null || !MessageDigest.isEqual(
+                webhookSecret.getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.error("Invalid webhook secret"));
+        }
+
+        try {
+            switch (request.getType()) {
+                case HARD_BOUNCE -> suppressionList.record(
+                        request.getEmail(), EmailSuppression.Reason.HARD_BOUNCE, request.getDetail());
+                case COMPLAINT -> suppressionList.record(
+                        request.getEmail(), EmailSuppression.Reason.COMPLAINT, request.getDetail());
+                // Temporary; the outbox retries these on its own
+                case SOFT_BOUNCE -> {
+                }
+            }
+            return ResponseEntity.ok(ApiResponse.success("Event recorded", null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/api/admin/email/suppressions")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> liftSuppression(@RequestParam String email) {
+        try {
+            if (!suppressionList.lift(email)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponse.error("Address is not suppressed"));
+            }
+            return ResponseEntity.ok(ApiResponse.success("Suppression lifted successfully", null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.dascribs.coreauth.dto.email;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+// A delivery event as reported by the mail provider's webhook
+public class EmailEventRequest {
+
+    public enum Type {
+        HARD_BOUNCE,
+        SOFT_BOUNCE,
+        COMPLAINT
+    }
+
+    @NotBlank(message = "Email is required")
+    @Email(message = "Email should be valid")
+    private String email;
+
+    @NotNull(message = "Event type is required")
+    private Type type;
+
+    @Size(max = 1000, message = "Detail must not exceed 1000 characters")
+    private String detail;
+
+    // Constructors
+    public EmailEventRequest() {}
+
+    // Getters and Setters
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public String getDetail() { return detail; }
+    public void setDetail(String detail) { this.detail = detail; }
+}
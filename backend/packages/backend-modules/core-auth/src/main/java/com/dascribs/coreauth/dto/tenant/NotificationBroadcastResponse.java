@@ -0,0 +1,64 @@
+package com.dascribs.coreauth.dto.tenant;
+
+import com.dascribs.coreauth.entity.email.NotificationBroadcast;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NotificationBroadcastResponse {
+
+    private Long id;
+    // Null when the notification goes to all tenants
+    private Long tenantId;
+    private String subject;
+    private NotificationBroadcast.Status status;
+    private long totalRecipients;
+    private long enqueuedCount;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime completedAt;
+
+    // Constructors
+    public NotificationBroadcastResponse() {}
+
+    public NotificationBroadcastResponse(NotificationBroadcast broadcast) {
+        this.id = broadcast.getId();
+        this.tenantId = broadcast.getTenantId();
+        this.subject = broadcast.getSubject();
+        this.status = broadcast.getStatus();
+        this.totalRecipients = broadcast.getTotalRecipients();
+        this.enqueuedCount = broadcast.getEnqueuedCount();
+        this.createdAt = broadcast.getCreatedAt();
+        this.completedAt = broadcast.getCompletedAt();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getTenantId() { return tenantId; }
+    public void setTenantId(Long tenantId) { this.tenantId = tenantId; }
+
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+
+    public NotificationBroadcast.Status getStatus() { return status; }
+    public void setStatus(NotificationBroadcast.Status status) { this.status = status; }
+
+    public long getTotalRecipients() { return totalRecipients; }
+    public void setTotalRecipients(long totalRecipients) { this.totalRecipients = totalRecipients; }
+
+    public long getEnqueuedCount() { return enqueuedCount; }
+    public void setEnqueuedCount(long enqueuedCount) { this.enqueuedCount = enqueuedCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
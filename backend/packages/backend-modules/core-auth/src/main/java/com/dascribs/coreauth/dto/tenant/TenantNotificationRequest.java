@@ -0,0 +1,25 @@
+package com.dascribs.coreauth.dto.tenant;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public class TenantNotificationRequest {
+
+    @NotBlank(message = "Subject is required")
+    @Size(max = 255, message = "Subject must not exceed 255 characters")
+    private String subject;
+
+    @NotBlank(message = "Message is required")
+    @Size(max = 20000, message = "Message must not exceed 20000 characters")
+    private String message;
+
+    // Constructors
+    public TenantNotificationRequest() {}
+
+    // Getters and Setters
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
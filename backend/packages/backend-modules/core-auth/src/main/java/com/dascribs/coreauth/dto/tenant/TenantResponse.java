@@ -32,7 +32,7 @@ public class TenantResponse {
     private LocalDateTime updatedAt;
 
     private Long userCount;
-//    private Long propertyCount;
+    private Long propertyCount;
 
     // Constructors
     public TenantResponse() {}
@@ -53,6 +53,7 @@ public class TenantResponse {
         this.subscriptionEndsAt = tenant.getSubscriptionEndsAt();
         this.createdAt = tenant.getCreatedAt();
         this.updatedAt = tenant.getUpdatedAt();
+        this.propertyCount = (long) tenant.getPropertyCount();
     }
 
     // Getters and Setters
@@ -184,13 +185,13 @@ public class TenantResponse {
         this.userCount = userCount;
     }
 
-//    public Long getPropertyCount() {
-//        return propertyCount;
-//    }
+    public Long getPropertyCount() {
+        return propertyCount;
+    }
 
-//    public void setPropertyCount(Long propertyCount) {
-//        this.propertyCount = propertyCount;
-//    }
+    public void setPropertyCount(Long propertyCount) {
+        this.propertyCount = propertyCount;
+    }
 
     // Helper methods
     public boolean isSubscriptionActive() {
@@ -201,9 +202,9 @@ public class TenantResponse {
         return userCount != null && maxUsers != null && userCount >= maxUsers;
     }
 
-//    public boolean hasReachedPropertyLimit() {
-//        return propertyCount != null && maxProperties != null && propertyCount >= maxProperties;
-//    }
+    public boolean hasReachedPropertyLimit() {
+        return propertyCount != null && maxProperties != null && propertyCount >= maxProperties;
+    }
 
     public String getPlanDescription() {
         return plan != null ? plan.name() : "UNKNOWN";
@@ -228,7 +229,7 @@ public class TenantResponse {
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
                 ", userCount=" + userCount +
-//                ", propertyCount=" + propertyCount +
+                ", propertyCount=" + propertyCount +
                 '}';
     }
 }
\ No newline at end of file
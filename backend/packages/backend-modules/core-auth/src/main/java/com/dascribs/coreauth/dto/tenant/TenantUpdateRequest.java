@@ -5,6 +5,8 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
+import java.time.LocalDateTime;
+
 public class TenantUpdateRequest {
 
     @NotBlank(message = "Name is required")
@@ -29,6 +31,9 @@ public class TenantUpdateRequest {
 
     private Boolean active;
 
+    // Renews (or shortens) the subscription; the expiry schedule is reset from this date
+    private LocalDateTime subscriptionEndsAt;
+
     // Constructors
     public TenantUpdateRequest() {}
 
@@ -105,6 +110,14 @@ public class TenantUpdateRequest {
         this.active = active;
     }
 
+    public LocalDateTime getSubscriptionEndsAt() {
+        return subscriptionEndsAt;
+    }
+
+    public void setSubscriptionEndsAt(LocalDateTime subscriptionEndsAt) {
+        this.subscriptionEndsAt = subscriptionEndsAt;
+    }
+
     // Helper methods for partial updates
     public boolean hasName() {
         return name != null && !name.trim().isEmpty();
@@ -142,6 +155,10 @@ public class TenantUpdateRequest {
         return active != null;
     }
 
+    public boolean hasSubscriptionEndsAt() {
+        return subscriptionEndsAt != null;
+    }
+
     @Override
     public String toString() {
         return "TenantUpdateRequest{" +
@@ -154,6 +171,7 @@ public class TenantUpdateRequest {
                 ", maxUsers=" + maxUsers +
                 ", maxProperties=" + maxProperties +
                 ", active=" + active +
+                ", subscriptionEndsAt=" + subscriptionEndsAt +
                 '}';
     }
 }
\ No newline at end of file
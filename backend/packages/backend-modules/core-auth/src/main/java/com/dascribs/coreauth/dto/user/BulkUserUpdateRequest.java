@@ -0,0 +1,90 @@
+package com.dascribs.coreauth.dto.user;
+
+import com.dascribs.coreauth.entity.user.Role;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Selects users for a bulk status or role change. Ids and filters are combined with AND;
+ * at least one of them must be present.
+ */
+public class BulkUserUpdateRequest {
+
+    @Size(max = 10000, message = "At most 10000 user ids can be updated at once")
+    private List<Long> userIds;
+
+    // Filters
+    private Role role;
+
+    private Long tenantId;
+
+    private LocalDateTime lastLoginBefore;
+
+    // Changes
+    private Boolean active;
+
+    private Role newRole;
+
+    // Constructors
+    public BulkUserUpdateRequest() {}
+
+    // Getters and Setters
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+    }
+
+    public Long getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(Long tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public LocalDateTime getLastLoginBefore() {
+        return lastLoginBefore;
+    }
+
+    public void setLastLoginBefore(LocalDateTime lastLoginBefore) {
+        this.lastLoginBefore = lastLoginBefore;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public Role getNewRole() {
+        return newRole;
+    }
+
+    public void setNewRole(Role newRole) {
+        this.newRole = newRole;
+    }
+
+    // Helper methods
+    public boolean hasUserIds() {
+        return userIds != null && !userIds.isEmpty();
+    }
+
+    public boolean hasSelection() {
+        return hasUserIds() || role != null || tenantId != null || lastLoginBefore != null;
+    }
+}
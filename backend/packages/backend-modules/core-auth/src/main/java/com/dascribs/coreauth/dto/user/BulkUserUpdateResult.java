@@ -0,0 +1,44 @@
+package com.dascribs.coreauth.dto.user;
+
+import java.util.List;
+
+public class BulkUserUpdateResult {
+
+    private int updatedCount;
+    private List<Long> updatedUserIds;
+    private int sessionsInvalidated;
+
+    // Constructors
+    public BulkUserUpdateResult() {}
+
+    public BulkUserUpdateResult(List<Long> updatedUserIds, int sessionsInvalidated) {
+        this.updatedCount = updatedUserIds.size();
+        this.updatedUserIds = updatedUserIds;
+        this.sessionsInvalidated = sessionsInvalidated;
+    }
+
+    // Getters and Setters
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    public void setUpdatedCount(int updatedCount) {
+        this.updatedCount = updatedCount;
+    }
+
+    public List<Long> getUpdatedUserIds() {
+        return updatedUserIds;
+    }
+
+    public void setUpdatedUserIds(List<Long> updatedUserIds) {
+        this.updatedUserIds = updatedUserIds;
+    }
+
+    public int getSessionsInvalidated() {
+        return sessionsInvalidated;
+    }
+
+    public void setSessionsInvalidated(int sessionsInvalidated) {
+        this.sessionsInvalidated = sessionsInvalidated;
+    }
+}
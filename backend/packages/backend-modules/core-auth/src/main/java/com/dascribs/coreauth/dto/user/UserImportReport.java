@@ -0,0 +1,124 @@
+package com.dascribs.coreauth.dto.user;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportReport {
+
+    private int totalRows;
+    private int created;
+    private int invited;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+    private long durationMillis;
+    // Only rows that were not imported are listed, and at most MAX_REPORTED_ROWS of them
+    private List<RowResult> rows = new ArrayList<>();
+    private Boolean rowsTruncated;
+
+    public static final int MAX_REPORTED_ROWS = 1000;
+
+    public enum RowStatus {
+        CREATED, INVITED, DUPLICATE, INVALID, FAILED
+    }
+
+    // Constructors
+    public UserImportReport() {}
+
+    // Recording
+    public void record(RowResult row) {
+        totalRows++;
+        if (row.getStatus() != RowStatus.CREATED && row.getStatus() != RowStatus.INVITED) {
+            if (rows.size() < MAX_REPORTED_ROWS) {
+                rows.add(row);
+            } else {
+                rowsTruncated = true;
+            }
+        }
+        switch (row.getStatus()) {
+            case CREATED -> created++;
+            case INVITED -> invited++;
+            case DUPLICATE -> duplicates++;
+            case INVALID -> invalid++;
+            case FAILED -> failed++;
+        }
+    }
+
+    // Getters and Setters
+    public int getTotalRows() {
+        return totalRows;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getInvited() {
+        return invited;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public List<RowResult> getRows() {
+        return rows;
+    }
+
+    public Boolean getRowsTruncated() {
+        return rowsTruncated;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class RowResult {
+        private int row;
+        private String email;
+        private RowStatus status;
+        private Long userId;
+        private String message;
+
+        public RowResult() {}
+
+        public RowResult(int row, String email, RowStatus status, Long userId, String message) {
+            this.row = row;
+            this.email = email;
+            this.status = status;
+            this.userId = userId;
+            this.message = message;
+        }
+
+        public int getRow() { return row; }
+        public void setRow(int row) { this.row = row; }
+
+        public String getEmail() { return email; }
+        public void setEmail(String email) { this.email = email; }
+
+        public RowStatus getStatus() { return status; }
+        public void setStatus(RowStatus status) { this.status = status; }
+
+        public Long getUserId() { return userId; }
+        public void setUserId(Long userId) { this.userId = userId; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+}
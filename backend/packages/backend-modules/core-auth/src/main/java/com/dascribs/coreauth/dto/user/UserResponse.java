@@ -7,6 +7,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class UserResponse {
@@ -19,6 +20,8 @@ public class UserResponse {
     private BigDecimal salary;
     private BigDecimal commissionRate;
     private String profileImageUrl;
+    // Edge size in pixels to thumbnail URL; only for images uploaded to media storage
+    private Map<Integer, String> profileImageThumbnails;
     private boolean active;
     private boolean emailVerified;
 
@@ -114,6 +117,14 @@ public class UserResponse {
         this.profileImageUrl = profileImageUrl;
     }
 
+    public Map<Integer, String> getProfileImageThumbnails() {
+        return profileImageThumbnails;
+    }
+
+    public void setProfileImageThumbnails(Map<Integer, String> profileImageThumbnails) {
+        this.profileImageThumbnails = profileImageThumbnails;
+    }
+
     public boolean isActive() {
         return active;
     }
@@ -190,6 +201,7 @@ public class UserResponse {
                 ", salary=" + salary +
                 ", commissionRate=" + commissionRate +
                 ", profileImageUrl='" + profileImageUrl + '\'' +
+                ", profileImageThumbnails=" + profileImageThumbnails +
                 ", active=" + active +
                 ", emailVerified=" + emailVerified +
                 ", lastLoginAt=" + lastLoginAt +
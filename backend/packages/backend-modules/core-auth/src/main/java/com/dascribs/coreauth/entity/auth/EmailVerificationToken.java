@@ -1,18 +1,18 @@
 package com.dascribs.coreauth.entity.auth;
 
 import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.shared.entity.BaseEntity;
 import jakarta.persistence.*;
-import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "email_verification_tokens")
-public class EmailVerificationToken {
+public class EmailVerificationToken extends BaseEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_verification_tokens_id_generator")
+    @SequenceGenerator(name = "email_verification_tokens_id_generator", sequenceName = "email_verification_tokens_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -35,14 +35,6 @@ public class EmailVerificationToken {
     @Column(name = "used", nullable = false)
     private boolean used = false;
 
-    @CreationTimestamp
-    @Column(name = "created_at", updatable = false)
-    private LocalDateTime createdAt;
-
-    @UpdateTimestamp
-    @Column(name = "updated_at")
-    private LocalDateTime updatedAt;
-
     public enum TokenType {
         ACCOUNT_VERIFICATION,
         EMAIL_CHANGE_VERIFICATION
@@ -54,7 +46,7 @@ public class EmailVerificationToken {
     public EmailVerificationToken(User user, String token, String email, TokenType tokenType, LocalDateTime expiresAt) {
         this.user = user;
         this.token = token;
-        this.email = email;
+        this.email = User.normalizeEmail(email);
         this.tokenType = tokenType;
         this.expiresAt = expiresAt;
     }
@@ -70,7 +62,7 @@ public class EmailVerificationToken {
 
     public void markAsUsed() {
         this.used = true;
-        this.updatedAt = LocalDateTime.now();
+        setUpdatedAt(LocalDateTime.now());
     }
 
     // Getters and Setters
@@ -81,15 +73,11 @@ public class EmailVerificationToken {
     public String getToken() { return token; }
     public void setToken(String token) { this.token = token; }
     public String getEmail() { return email; }
-    public void setEmail(String email) { this.email = email; }
+    public void setEmail(String email) { this.email = User.normalizeEmail(email); }
     public TokenType getTokenType() { return tokenType; }
     public void setTokenType(TokenType tokenType) { this.tokenType = tokenType; }
     public LocalDateTime getExpiresAt() { return expiresAt; }
     public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
     public boolean isUsed() { return used; }
     public void setUsed(boolean used) { this.used = used; }
-    public LocalDateTime getCreatedAt() { return createdAt; }
-    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
-    public LocalDateTime getUpdatedAt() { return updatedAt; }
-    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.dascribs.coreauth.entity.email;
+
+import com.dascribs.shared.entity.BaseEntity;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * An email waiting to be delivered. The recipient is copied from the user when the message is
+ * enqueued, so delivery never has to load the user again.
+ */
+@Entity
+@Table(name = "email_outbox")
+public class EmailOutboxMessage extends BaseEntity {
+
+    /**
+     * Digestible types are informational and may wait for the digest window. Everything carrying
+     * a token or password, every security alert and every confirmation of an action the user just
+     * took goes out on its own right away.
+     */
+    public enum EmailType {
+        PASSWORD_RESET(false),
+        PASSWORD_CHANGED(false),
+        WELCOME(false),
+        VERIFICATION(false),
+        EMAIL_CHANGE_VERIFICATION(false),
+        EMAIL_CHANGE_NOTIFICATION(false),
+        EMAIL_CHANGE_CONFIRMATION(false),
+        USER_INVITATION(false),
+        TENANT_NOTIFICATION(true);
+
+        private final boolean digestible;
+
+        EmailType(boolean digestible) {
+            this.digestible = digestible;
+        }
+
+        public boolean isDigestible() {
+            return digestible;
+        }
+    }
+
+    public enum Status {
+        PENDING,
+        DEAD
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_outbox_id_generator")
+    @SequenceGenerator(name = "email_outbox_id_generator", sequenceName = "email_outbox_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "email_type", nullable = false, length = 50)
+    private EmailType emailType;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "tenant_id")
+    private Long tenantId;
+
+    @Column(name = "recipient_email", nullable = false)
+    private String recipientEmail;
+
+    @Column(name = "recipient_name")
+    private String recipientName;
+
+    // The second address some messages carry, e.g. the new email of an email change
+    @Column(name = "address")
+    private String address;
+
+    // Token or temporary password, encrypted by OutboxSecretCipher; deleted with the row once
+    // delivered and cleared when the row is dead-lettered
+    @Column(name = "secret")
+    private String secret;
+
+    // Broadcast holding the subject and message of a TENANT_NOTIFICATION
+    @Column(name = "broadcast_id")
+    private Long broadcastId;
+
+    // Lowercased delivery address of a message held for a digest
+    @Column(name = "digest_key")
+    private String digestKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public EmailOutboxMessage() {}
+
+    public EmailOutboxMessage(EmailType emailType, Long userId, Long tenantId, String recipientEmail,
+                              String recipientName, String address, String secret) {
+        this.emailType = emailType;
+        this.userId = userId;
+        this.tenantId = tenantId;
+        this.recipientEmail = recipientEmail;
+        this.recipientName = recipientName;
+        this.address = address;
+        this.secret = secret;
+        this.nextAttemptAt = LocalDateTime.now();
+    }
+
+    /**
+     * One recipient of a broadcast, due at the time the fan-out scheduled it for.
+     */
+    public static EmailOutboxMessage broadcast(Long broadcastId, Long userId, Long tenantId, String recipientEmail,
+                                               String recipientName, LocalDateTime sendAt) {
+        EmailOutboxMessage message = new EmailOutboxMessage(
+                EmailType.TENANT_NOTIFICATION, userId, tenantId, recipientEmail, recipientName, null, null);
+        message.broadcastId = broadcastId;
+        message.nextAttemptAt = sendAt;
+        return message;
+    }
+
+    /**
+     * Holds a digestible message back by the window so later ones to the same address can join it.
+     */
+    public void holdForDigest(long windowSeconds) {
+        joinDigest(windowSeconds, true);
+    }
+
+    /**
+     * Makes a digestible message part of its address's digest. It is held back by the window only
+     * when others are already waiting for the address; a lone one is due at once and, when claimed,
+     * takes along whatever joined it in the meantime.
+     */
+    public void joinDigest(long windowSeconds, boolean othersWaiting) {
+        if (!emailType.isDigestible() || windowSeconds <= 0) {
+            return;
+        }
+        this.digestKey = addressDigestKey();
+        if (othersWaiting) {
+            this.nextAttemptAt = nextAttemptAt.plusSeconds(windowSeconds);
+        }
+    }
+
+    public String addressDigestKey() {
+        return deliveryAddress().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The address the email goes to. Email change messages go to the other address, not the account's current one.
+     */
+    public String deliveryAddress() {
+        return switch (emailType) {
+            case EMAIL_CHANGE_VERIFICATION, EMAIL_CHANGE_NOTIFICATION, EMAIL_CHANGE_CONFIRMATION -> address;
+            default -> recipientEmail;
+        };
+    }
+
+    /**
+     * Takes the message for one delivery attempt. Until the lease runs out no other dispatcher sees it as due.
+     */
+    public void claim(LocalDateTime leaseUntil) {
+        this.attempts++;
+        this.nextAttemptAt = leaseUntil;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public EmailType getEmailType() { return emailType; }
+    public void setEmailType(EmailType emailType) { this.emailType = emailType; }
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public Long getTenantId() { return tenantId; }
+    public void setTenantId(Long tenantId) { this.tenantId = tenantId; }
+    public String getRecipientEmail() { return recipientEmail; }
+    public void setRecipientEmail(String recipientEmail) { this.recipientEmail = recipientEmail; }
+    public String getRecipientName() { return recipientName; }
+    public void setRecipientName(String recipientName) { this.recipientName = recipientName; }
+    public String getAddress() { return address; }
+    public void setAddress(String address) { this.address = address; }
+    public String getSecret() { return secret; }
+    public void setSecret(String secret) { this.secret = secret; }
+    public Long getBroadcastId() { return broadcastId; }
+    public void setBroadcastId(Long broadcastId) { this.broadcastId = broadcastId; }
+    public String getDigestKey() { return digestKey; }
+    public void setDigestKey(String digestKey) { this.digestKey = digestKey; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+}
@@ -0,0 +1,47 @@
+package com.dascribs.coreauth.entity.email;
+
+import com.dascribs.shared.entity.BaseEntity;
+import jakarta.persistence.*;
+
+/**
+ * An address the provider reported as undeliverable or as having complained. Nothing is sent to it
+ * while the row exists. Rows are written with an upsert in {@code EmailSuppressionRepository}.
+ */
+@Entity
+@Table(name = "email_suppressions")
+public class EmailSuppression extends BaseEntity {
+
+    public enum Reason {
+        HARD_BOUNCE,
+        COMPLAINT
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_suppressions_id_generator")
+    @SequenceGenerator(name = "email_suppressions_id_generator", sequenceName = "email_suppressions_id_seq", allocationSize = 50)
+    private Long id;
+
+    // Always lowercase
+    @Column(name = "email", nullable = false, unique = true)
+    private String email;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "reason", nullable = false, length = 20)
+    private Reason reason;
+
+    // Diagnostic from the provider, e.g. the SMTP reply of the bounce
+    @Column(name = "detail", length = 1000)
+    private String detail;
+
+    public EmailSuppression() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+    public Reason getReason() { return reason; }
+    public void setReason(Reason reason) { this.reason = reason; }
+    public String getDetail() { return detail; }
+    public void setDetail(String detail) { this.detail = detail; }
+}
@@ -0,0 +1,99 @@
+package com.dascribs.coreauth.entity.email;
+
+import com.dascribs.shared.entity.BaseEntity;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A notification sent to every active user of a tenant, or of every tenant when tenantId is null.
+ * Holds the content once for all its outbox rows and the checkpoint of the fan-out that creates them.
+ */
+@Entity
+@Table(name = "notification_broadcasts")
+public class NotificationBroadcast extends BaseEntity {
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        CANCELLED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_broadcasts_id_generator")
+    @SequenceGenerator(name = "notification_broadcasts_id_generator", sequenceName = "notification_broadcasts_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "tenant_id")
+    private Long tenantId;
+
+    @Column(name = "subject", nullable = false)
+    private String subject;
+
+    @Column(name = "message", nullable = false, columnDefinition = "TEXT")
+    private String message;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status = Status.RUNNING;
+
+    @Column(name = "created_by")
+    private Long createdBy;
+
+    // Highest user id already enqueued; the fan-out resumes after it
+    @Column(name = "cursor_user_id", nullable = false)
+    private long cursorUserId = 0;
+
+    @Column(name = "total_recipients", nullable = false)
+    private long totalRecipients = 0;
+
+    @Column(name = "enqueued_count", nullable = false)
+    private long enqueuedCount = 0;
+
+    // Send time of the next recipient, so a resumed fan-out keeps the same pace
+    @Column(name = "next_send_at")
+    private LocalDateTime nextSendAt;
+
+    // Lease of the node running the fan-out
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public NotificationBroadcast() {}
+
+    public NotificationBroadcast(Long tenantId, String subject, String message, Long createdBy, long totalRecipients) {
+        this.tenantId = tenantId;
+        this.subject = subject;
+        this.message = message;
+        this.createdBy = createdBy;
+        this.totalRecipients = totalRecipients;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getTenantId() { return tenantId; }
+    public void setTenantId(Long tenantId) { this.tenantId = tenantId; }
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public Long getCreatedBy() { return createdBy; }
+    public void setCreatedBy(Long createdBy) { this.createdBy = createdBy; }
+    public long getCursorUserId() { return cursorUserId; }
+    public void setCursorUserId(long cursorUserId) { this.cursorUserId = cursorUserId; }
+    public long getTotalRecipients() { return totalRecipients; }
+    public void setTotalRecipients(long totalRecipients) { this.totalRecipients = totalRecipients; }
+    public long getEnqueuedCount() { return enqueuedCount; }
+    public void setEnqueuedCount(long enqueuedCount) { this.enqueuedCount = enqueuedCount; }
+    public LocalDateTime getNextSendAt() { return nextSendAt; }
+    public void setNextSendAt(LocalDateTime nextSendAt) { this.nextSendAt = nextSendAt; }
+    public LocalDateTime getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(LocalDateTime lockedUntil) { this.lockedUntil = lockedUntil; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
@@ -1,9 +1,8 @@
 package com.dascribs.coreauth.entity.tenant;
 
 import com.dascribs.coreauth.entity.user.UserTenant;
+import com.dascribs.shared.entity.BaseEntity;
 import jakarta.persistence.*;
-import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -11,10 +10,11 @@ import java.util.List;
 
 @Entity
 @Table(name = "tenants")
-public class Tenant {
+public class Tenant extends BaseEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tenants_id_generator")
+    @SequenceGenerator(name = "tenants_id_generator", sequenceName = "tenants_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "tenant_id", unique = true, nullable = false)
@@ -39,6 +39,14 @@ public class Tenant {
     @Column(name = "subscription_ends_at")
     private LocalDateTime subscriptionEndsAt;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "subscription_stage", nullable = false)
+    private SubscriptionStage subscriptionStage = SubscriptionStage.ACTIVE;
+
+    // Next time the expiry scanner has to look at this tenant; null when nothing is pending
+    @Column(name = "subscription_check_at")
+    private LocalDateTime subscriptionCheckAt;
+
     @Column(name = "contact_email")
     private String contactEmail;
 
@@ -54,13 +62,12 @@ public class Tenant {
     @Column(name = "active", nullable = false)
     private boolean active = true;
 
-    @CreationTimestamp
-    @Column(name = "created_at", updatable = false)
-    private LocalDateTime createdAt;
+    // Maintained only by conditional UPDATEs in TenantUsageService, never written from the entity
+    @Column(name = "active_user_count", insertable = false, updatable = false)
+    private int activeUserCount;
 
-    @UpdateTimestamp
-    @Column(name = "updated_at")
-    private LocalDateTime updatedAt;
+    @Column(name = "property_count", insertable = false, updatable = false)
+    private int propertyCount;
 
     @OneToMany(mappedBy = "tenant", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<UserTenant> userTenants = new ArrayList<>();
@@ -69,6 +76,11 @@ public class Tenant {
         FREE, PREMIUM, ENTERPRISE
     }
 
+    // Ordered: the expiry scanner only ever moves a tenant forward
+    public enum SubscriptionStage {
+        ACTIVE, WARNED, GRACE, SUSPENDED
+    }
+
     // Constructors
     public Tenant() {}
 
@@ -104,6 +116,12 @@ public class Tenant {
     public LocalDateTime getSubscriptionEndsAt() { return subscriptionEndsAt; }
     public void setSubscriptionEndsAt(LocalDateTime subscriptionEndsAt) { this.subscriptionEndsAt = subscriptionEndsAt; }
 
+    public SubscriptionStage getSubscriptionStage() { return subscriptionStage; }
+    public void setSubscriptionStage(SubscriptionStage subscriptionStage) { this.subscriptionStage = subscriptionStage; }
+
+    public LocalDateTime getSubscriptionCheckAt() { return subscriptionCheckAt; }
+    public void setSubscriptionCheckAt(LocalDateTime subscriptionCheckAt) { this.subscriptionCheckAt = subscriptionCheckAt; }
+
     public String getContactEmail() { return contactEmail; }
     public void setContactEmail(String contactEmail) { this.contactEmail = contactEmail; }
 
@@ -119,11 +137,9 @@ public class Tenant {
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
 
-    public LocalDateTime getCreatedAt() { return createdAt; }
-    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public int getActiveUserCount() { return activeUserCount; }
 
-    public LocalDateTime getUpdatedAt() { return updatedAt; }
-    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public int getPropertyCount() { return propertyCount; }
 
     public List<UserTenant> getUserTenants() { return userTenants; }
     public void setUserTenants(List<UserTenant> userTenants) { this.userTenants = userTenants; }
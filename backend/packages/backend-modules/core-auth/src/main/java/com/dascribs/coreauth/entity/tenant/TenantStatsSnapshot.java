@@ -0,0 +1,60 @@
+package com.dascribs.coreauth.entity.tenant;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Precomputed tenant stats. Written only by the native upserts in TenantStatsSnapshotRepository.
+ */
+@Entity
+@Immutable
+@Table(name = "tenant_stats_snapshots")
+public class TenantStatsSnapshot {
+
+    @Id
+    @Column(name = "tenant_id")
+    private Long tenantId;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tenant_id", insertable = false, updatable = false)
+    private Tenant tenant;
+
+    @Column(name = "total_users", nullable = false)
+    private long totalUsers;
+
+    @Column(name = "active_users", nullable = false)
+    private long activeUsers;
+
+    @Column(name = "property_count", nullable = false)
+    private long propertyCount;
+
+    @Column(name = "change_seq", nullable = false)
+    private long changeSeq;
+
+    @Column(name = "refreshed_seq", nullable = false)
+    private long refreshedSeq;
+
+    @Column(name = "snapshot_at", nullable = false)
+    private LocalDateTime snapshotAt;
+
+    // Constructors
+    public TenantStatsSnapshot() {}
+
+    // Getters
+    public Long getTenantId() { return tenantId; }
+
+    public Tenant getTenant() { return tenant; }
+
+    public long getTotalUsers() { return totalUsers; }
+
+    public long getActiveUsers() { return activeUsers; }
+
+    public long getPropertyCount() { return propertyCount; }
+
+    public LocalDateTime getSnapshotAt() { return snapshotAt; }
+
+    // True when something changed after the snapshot was taken
+    public boolean isDirty() { return changeSeq != refreshedSeq; }
+}
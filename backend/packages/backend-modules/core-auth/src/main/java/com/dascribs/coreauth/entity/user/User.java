@@ -1,26 +1,38 @@
 package com.dascribs.coreauth.entity.user;
 
+import com.dascribs.shared.entity.BaseEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
-import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.FilterDef;
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.ParamDef;
 import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 @Entity
 @Table(name = "users")
-public class User {
+@FilterDef(name = User.TENANT_FILTER, parameters = @ParamDef(name = "tenantId", type = Long.class))
+@Filter(name = User.TENANT_FILTER, condition = "tenant_id = :tenantId")
+public class User extends BaseEntity {
+
+    // Enabled per transaction for tenant-bound callers, see TenantFilterTransactionManager
+    public static final String TENANT_FILTER = "tenantFilter";
+
+    // Unique index on LOWER(email); emails are stored normalized so lookups can use it
+    public static final String EMAIL_UNIQUE_INDEX = "uq_users_email_lower";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_generator")
+    @SequenceGenerator(name = "users_id_generator", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -29,7 +41,7 @@ public class User {
 
     @NotBlank
     @Email
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String email;
 
     @NotBlank
@@ -84,13 +96,9 @@ public class User {
     @Column(name = "last_login_at")
     private LocalDateTime lastLoginAt;
 
-    @CreationTimestamp
-    @Column(name = "created_at", updatable = false)
-    private LocalDateTime createdAt;
-
-    @UpdateTimestamp
-    @Column(name = "updated_at")
-    private LocalDateTime updatedAt;
+    // Home tenant; discriminator for tenant-scoped queries
+    @Column(name = "tenant_id")
+    private Long tenantId;
 
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<UserTenant> userTenants = new ArrayList<>();
@@ -100,7 +108,7 @@ public class User {
 
     public User(String fullName, String email, String password, String phone, Role role) {
         this.fullName = fullName;
-        this.email = email;
+        this.email = normalizeEmail(email);
         this.password = password;
         this.phone = phone;
         this.role = role;
@@ -114,7 +122,7 @@ public class User {
     public void setFullName(String fullName) { this.fullName = fullName; }
 
     public String getEmail() { return email; }
-    public void setEmail(String email) { this.email = email; }
+    public void setEmail(String email) { this.email = normalizeEmail(email); }
 
     public String getPassword() { return password; }
     public void setPassword(String password) { this.password = password; }
@@ -156,7 +164,7 @@ public class User {
     public void setEmailVerified(boolean emailVerified) { this.emailVerified = emailVerified; }
 
     public String getPendingEmail() { return pendingEmail; }
-    public void setPendingEmail(String pendingEmail) { this.pendingEmail = pendingEmail; }
+    public void setPendingEmail(String pendingEmail) { this.pendingEmail = normalizeEmail(pendingEmail); }
 
     public LocalDateTime getEmailVerificationSentAt() { return emailVerificationSentAt; }
     public void setEmailVerificationSentAt(LocalDateTime emailVerificationSentAt) {
@@ -166,12 +174,14 @@ public class User {
     public LocalDateTime getLastLoginAt() { return lastLoginAt; }
     public void setLastLoginAt(LocalDateTime lastLoginAt) { this.lastLoginAt = lastLoginAt; }
 
-    public LocalDateTime getCreatedAt() { return createdAt; }
-    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
-
-    public LocalDateTime getUpdatedAt() { return updatedAt; }
-    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public Long getTenantId() { return tenantId; }
+    public void setTenantId(Long tenantId) { this.tenantId = tenantId; }
 
     public List<UserTenant> getUserTenants() { return userTenants; }
     public void setUserTenants(List<UserTenant> userTenants) { this.userTenants = userTenants; }
-}
\ No newline at end of file
+
+    // Canonical form of an email address: trimmed and lowercased
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 public class UserSession {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_sessions_id_generator")
+    @SequenceGenerator(name = "user_sessions_id_generator", sequenceName = "user_sessions_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
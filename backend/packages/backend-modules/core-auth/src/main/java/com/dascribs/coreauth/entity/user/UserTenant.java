@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class UserTenant {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_tenants_id_generator")
+    @SequenceGenerator(name = "user_tenants_id_generator", sequenceName = "user_tenants_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
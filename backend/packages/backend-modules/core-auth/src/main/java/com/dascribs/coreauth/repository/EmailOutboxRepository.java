@@ -0,0 +1,64 @@
+package com.dascribs.coreauth.repository;
+
+import com.dascribs.coreauth.entity.email.EmailOutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    /**
+     * Locks due messages for claiming. SKIP LOCKED lets several dispatchers poll at once
+     * without handing out the same row twice.
+     */
+    @Query(value = "SELECT * FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<EmailOutboxMessage> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Locks the held messages for one digest that fall due by heldUntil. Only never-attempted rows
+     * qualify: a claimed row has its lease in next_attempt_at just like a held one, but its attempts
+     * are already counted.
+     */
+    @Query(value = "SELECT * FROM email_outbox WHERE digest_key = :digestKey AND status = 'PENDING' " +
+            "AND attempts = 0 AND next_attempt_at <= :heldUntil ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<EmailOutboxMessage> lockDigest(@Param("digestKey") String digestKey,
+                                        @Param("heldUntil") LocalDateTime heldUntil,
+                                        @Param("limit") int limit);
+
+    // Whether a digest for the address is still waiting to be claimed
+    @Query("SELECT COUNT(m) > 0 FROM EmailOutboxMessage m WHERE m.digestKey = :digestKey " +
+            "AND m.status = com.dascribs.coreauth.entity.email.EmailOutboxMessage.Status.PENDING AND m.attempts = 0")
+    boolean existsWaitingDigest(@Param("digestKey") String digestKey);
+
+    @Modifying
+    @Query("DELETE FROM EmailOutboxMessage m WHERE m.id = :id")
+    int deleteDelivered(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.nextAttemptAt = :nextAttemptAt, m.lastError = :error, " +
+            "m.updatedAt = CURRENT_TIMESTAMP WHERE m.id = :id")
+    int reschedule(@Param("id") Long id, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error);
+
+    // Dead rows are kept for inspection, but without the token or password they carried
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = com.dascribs.coreauth.entity.email.EmailOutboxMessage.Status.DEAD, " +
+            "m.secret = NULL, m.lastError = :error, m.updatedAt = CURRENT_TIMESTAMP WHERE m.id = :id")
+    int markDead(@Param("id") Long id, @Param("error") String error);
+
+    // Drop the unsent part of a cancelled broadcast; served by idx_email_outbox_broadcast
+    @Modifying
+    @Query("DELETE FROM EmailOutboxMessage m WHERE m.broadcastId = :broadcastId " +
+            "AND m.status = com.dascribs.coreauth.entity.email.EmailOutboxMessage.Status.PENDING")
+    int deletePendingByBroadcastId(@Param("broadcastId") Long broadcastId);
+
+    long countByStatus(EmailOutboxMessage.Status status);
+}
@@ -0,0 +1,51 @@
+package com.dascribs.coreauth.repository;
+
+import com.dascribs.coreauth.entity.email.EmailSuppression;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EmailSuppressionRepository extends JpaRepository<EmailSuppression, Long> {
+
+    // Address and reason of one suppression, with the cursor columns used to page through them
+    interface Entry {
+        Long getId();
+
+        String getEmail();
+
+        EmailSuppression.Reason getReason();
+
+        LocalDateTime getUpdatedAt();
+    }
+
+    // Insert or overwrite; updated_at comes from the database clock so other nodes see the change
+    @Modifying
+    @Query(value = "INSERT INTO email_suppressions (email, reason, detail, created_at, updated_at) " +
+            "VALUES (:email, :reason, :detail, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (email) DO UPDATE SET reason = EXCLUDED.reason, detail = EXCLUDED.detail, " +
+            "updated_at = CURRENT_TIMESTAMP", nativeQuery = true)
+    int upsert(@Param("email") String email, @Param("reason") String reason, @Param("detail") String detail);
+
+    @Query("SELECT s.reason FROM EmailSuppression s WHERE s.email = :email")
+    Optional<EmailSuppression.Reason> findReasonByEmail(@Param("email") String email);
+
+    @Modifying
+    @Query("DELETE FROM EmailSuppression s WHERE s.email = :email")
+    int deleteByEmail(@Param("email") String email);
+
+    // Next batch after the (updatedAt, id) cursor; served by idx_email_suppressions_updated
+    @Query("SELECT s.id AS id, s.email AS email, s.reason AS reason, s.updatedAt AS updatedAt " +
+            "FROM EmailSuppression s WHERE s.updatedAt > :afterUpdatedAt " +
+            "OR (s.updatedAt = :afterUpdatedAt AND s.id > :afterId) ORDER BY s.updatedAt, s.id")
+    List<Entry> findChangedAfter(@Param("afterUpdatedAt") LocalDateTime afterUpdatedAt,
+                                 @Param("afterId") Long afterId,
+                                 Pageable pageable);
+}
@@ -25,12 +25,13 @@ public interface EmailVerificationTokenRepository extends JpaRepository<EmailVer
     @Query("UPDATE EmailVerificationToken evt SET evt.used = true WHERE evt.user.id = :userId AND evt.tokenType = :tokenType AND evt.used = false")
     void invalidateUserTokens(@Param("userId") Long userId, @Param("tokenType") EmailVerificationToken.TokenType tokenType);
 
+    /**
+     * Deletes up to limit expired tokens, oldest first, walking idx_email_verification_tokens_expires_at.
+     */
     @Modifying
-    @Query("DELETE FROM EmailVerificationToken evt WHERE evt.expiresAt < :now")
-    void deleteExpiredTokens(@Param("now") LocalDateTime now);
-
-    @Query("SELECT COUNT(evt) FROM EmailVerificationToken evt WHERE evt.user.id = :userId AND evt.createdAt > :since")
-    long countRecentTokensByUserId(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+    @Query(value = "DELETE FROM email_verification_tokens WHERE id IN (SELECT id FROM email_verification_tokens " +
+            "WHERE expires_at < :now ORDER BY expires_at LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
 
     @Query("SELECT evt FROM EmailVerificationToken evt WHERE evt.user.id = :userId AND evt.tokenType = :tokenType AND evt.used = false ORDER BY evt.createdAt DESC")
     List<EmailVerificationToken> findActiveTokensByUserAndType(@Param("userId") Long userId, @Param("tokenType") EmailVerificationToken.TokenType tokenType);
@@ -0,0 +1,57 @@
+package com.dascribs.coreauth.repository;
+
+import com.dascribs.coreauth.entity.email.NotificationBroadcast;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface NotificationBroadcastRepository extends JpaRepository<NotificationBroadcast, Long> {
+
+    // Subject and message of a broadcast, without its checkpoint columns
+    interface Content {
+        String getSubject();
+
+        String getMessage();
+    }
+
+    @Query("SELECT b.subject AS subject, b.message AS message FROM NotificationBroadcast b WHERE b.id = :id")
+    Optional<Content> findContentById(@Param("id") Long id);
+
+    // Running broadcasts no node holds a lease on; served by idx_notification_broadcasts_running
+    @Query("SELECT b.id FROM NotificationBroadcast b " +
+            "WHERE b.status = com.dascribs.coreauth.entity.email.NotificationBroadcast.Status.RUNNING " +
+            "AND (b.lockedUntil IS NULL OR b.lockedUntil < :now) ORDER BY b.id")
+    List<Long> findResumable(@Param("now") LocalDateTime now);
+
+    // Take the fan-out of a broadcast; matches nothing (returns 0) if another node holds it or it has stopped
+    @Modifying
+    @Query("UPDATE NotificationBroadcast b SET b.lockedUntil = :lockedUntil WHERE b.id = :id " +
+            "AND b.status = com.dascribs.coreauth.entity.email.NotificationBroadcast.Status.RUNNING " +
+            "AND (b.lockedUntil IS NULL OR b.lockedUntil < :now)")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    // Record a batch and renew the lease; returns 0 once the broadcast was cancelled
+    @Modifying
+    @Query("UPDATE NotificationBroadcast b SET b.cursorUserId = :cursorUserId, " +
+            "b.enqueuedCount = b.enqueuedCount + :enqueued, b.nextSendAt = :nextSendAt, " +
+            "b.lockedUntil = :lockedUntil, b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :id " +
+            "AND b.status = com.dascribs.coreauth.entity.email.NotificationBroadcast.Status.RUNNING")
+    int checkpoint(@Param("id") Long id,
+                   @Param("cursorUserId") long cursorUserId,
+                   @Param("enqueued") long enqueued,
+                   @Param("nextSendAt") LocalDateTime nextSendAt,
+                   @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    @Modifying
+    @Query("UPDATE NotificationBroadcast b SET b.status = :status, b.completedAt = :now, b.lockedUntil = NULL, " +
+            "b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :id " +
+            "AND b.status = com.dascribs.coreauth.entity.email.NotificationBroadcast.Status.RUNNING")
+    int finish(@Param("id") Long id, @Param("status") NotificationBroadcast.Status status, @Param("now") LocalDateTime now);
+}
@@ -17,17 +17,18 @@ public interface PasswordResetTokenRepository extends JpaRepository<PasswordRese
 
     Optional<PasswordResetToken> findByUserIdAndUsedFalse(Long userId);
 
-    @Query("SELECT prt FROM PasswordResetToken prt WHERE prt.user.email = :email AND prt.used = false AND prt.expiresAt > :now")
+    @Query("SELECT prt FROM PasswordResetToken prt WHERE LOWER(prt.user.email) = LOWER(:email) AND prt.used = false AND prt.expiresAt > :now")
     Optional<PasswordResetToken> findValidTokenByUserEmail(@Param("email") String email, @Param("now") LocalDateTime now);
 
     @Modifying
     @Query("UPDATE PasswordResetToken prt SET prt.used = true WHERE prt.user.id = :userId AND prt.used = false")
     void invalidateAllUserTokens(@Param("userId") Long userId);
 
+    /**
+     * Deletes up to limit expired tokens, oldest first, walking idx_password_reset_tokens_expires_at.
+     */
     @Modifying
-    @Query("DELETE FROM PasswordResetToken prt WHERE prt.expiresAt < :now")
-    void deleteExpiredTokens(@Param("now") LocalDateTime now);
-
-    @Query("SELECT COUNT(prt) FROM PasswordResetToken prt WHERE prt.user.id = :userId AND prt.createdAt > :since")
-    long countRecentTokensByUserId(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+    @Query(value = "DELETE FROM password_reset_tokens WHERE id IN (SELECT id FROM password_reset_tokens " +
+            "WHERE expires_at < :now ORDER BY expires_at LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
\ No newline at end of file
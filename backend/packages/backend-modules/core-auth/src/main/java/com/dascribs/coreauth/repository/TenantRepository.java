@@ -4,16 +4,47 @@ import com.dascribs.coreauth.entity.tenant.Tenant;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TenantRepository extends JpaRepository<Tenant, Long> {
 
+    // Tenant together with its active user count, loaded in one grouped query
+    interface TenantWithUserCount {
+        Tenant getTenant();
+
+        long getActiveUserCount();
+    }
+
+    String TENANT_WITH_USER_COUNT = "SELECT t AS tenant, COUNT(u.id) AS activeUserCount FROM Tenant t " +
+            "LEFT JOIN t.userTenants ut LEFT JOIN ut.user u ON u.active = true ";
+
+    // Page of tenants with active user counts (no per-tenant count queries)
+    @Query(value = TENANT_WITH_USER_COUNT + "GROUP BY t",
+            countQuery = "SELECT COUNT(t) FROM Tenant t")
+    Page<TenantWithUserCount> findAllWithUserCount(Pageable pageable);
+
+    // Page of active tenants with active user counts
+    @Query(value = TENANT_WITH_USER_COUNT + "WHERE t.active = true GROUP BY t",
+            countQuery = "SELECT COUNT(t) FROM Tenant t WHERE t.active = true")
+    Page<TenantWithUserCount> findActiveWithUserCount(Pageable pageable);
+
+    // Single tenant by primary key with its active user count
+    @Query(TENANT_WITH_USER_COUNT + "WHERE t.id = :id GROUP BY t")
+    Optional<TenantWithUserCount> findWithUserCountById(@Param("id") Long id);
+
+    // Single tenant by public tenant ID with its active user count
+    @Query(TENANT_WITH_USER_COUNT + "WHERE t.tenantId = :tenantId GROUP BY t")
+    Optional<TenantWithUserCount> findWithUserCountByTenantId(@Param("tenantId") String tenantId);
+
     // Find tenant by unique tenant ID
     Optional<Tenant> findByTenantId(String tenantId);
 
@@ -48,18 +79,88 @@ public interface TenantRepository extends JpaRepository<Tenant, Long> {
     @Query("SELECT COUNT(t) FROM Tenant t WHERE t.plan = :plan")
     long countByPlan(@Param("plan") Tenant.Plan plan);
 
-    // Find tenants with subscription ending soon
-    @Query("SELECT t FROM Tenant t WHERE t.subscriptionEndsAt IS NOT NULL AND t.subscriptionEndsAt <= FUNCTION('timestamp_add_days', CURRENT_TIMESTAMP(), 30)")
-    List<Tenant> findTenantsWithSubscriptionEndingSoon();
-
-    // Check if tenant has reached user limit
-    @Query("SELECT CASE WHEN COUNT(ut) >= t.maxUsers THEN true ELSE false END " +
-            "FROM Tenant t LEFT JOIN t.userTenants ut " +
-            "WHERE t.id = :tenantId AND ut.user.active = true")
+    // Subscription state the expiry scanner needs, without loading the tenant entity
+    interface DueSubscription {
+        Long getId();
+
+        LocalDateTime getSubscriptionEndsAt();
+
+        Tenant.SubscriptionStage getSubscriptionStage();
+
+        LocalDateTime getSubscriptionCheckAt();
+    }
+
+    // Next batch of due subscription checks after the (checkAt, id) cursor; served by idx_tenants_subscription_check
+    @Query("SELECT t.id AS id, t.subscriptionEndsAt AS subscriptionEndsAt, t.subscriptionStage AS subscriptionStage, " +
+            "t.subscriptionCheckAt AS subscriptionCheckAt FROM Tenant t " +
+            "WHERE t.subscriptionCheckAt <= :dueBy " +
+            "AND (t.subscriptionCheckAt > :afterCheckAt OR (t.subscriptionCheckAt = :afterCheckAt AND t.id > :afterId)) " +
+            "ORDER BY t.subscriptionCheckAt, t.id")
+    List<DueSubscription> findDueSubscriptions(@Param("dueBy") LocalDateTime dueBy,
+                                               @Param("afterCheckAt") LocalDateTime afterCheckAt,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    // Move a tenant to its next subscription stage; matches nothing (returns 0) if another run or a renewal got there first
+    @Modifying
+    @Query("UPDATE Tenant t SET t.subscriptionStage = :stage, t.subscriptionCheckAt = :nextCheckAt " +
+            "WHERE t.id = :id AND t.subscriptionStage = :expectedStage AND t.subscriptionCheckAt = :expectedCheckAt")
+    int advanceSubscriptionStage(@Param("id") Long id,
+                                 @Param("expectedStage") Tenant.SubscriptionStage expectedStage,
+                                 @Param("expectedCheckAt") LocalDateTime expectedCheckAt,
+                                 @Param("stage") Tenant.SubscriptionStage stage,
+                                 @Param("nextCheckAt") LocalDateTime nextCheckAt);
+
+    // Check if tenant has reached user limit (reads the maintained counter)
+    @Query("SELECT CASE WHEN t.maxUsers IS NOT NULL AND t.activeUserCount >= t.maxUsers THEN true ELSE false END " +
+            "FROM Tenant t WHERE t.id = :tenantId")
     boolean hasReachedUserLimit(@Param("tenantId") Long tenantId);
 
-    // Check if tenant has reached property limit
-//    @Query("SELECT CASE WHEN (SELECT COUNT(p) FROM Property p WHERE p.tenant.id = :tenantId) >= t.maxProperties THEN true ELSE false END " +
-//            "FROM Tenant t WHERE t.id = :tenantId")
-//    boolean hasReachedPropertyLimit(@Param("tenantId") Long tenantId);
+    // Check if tenant has reached property limit (reads the maintained counter)
+    @Query("SELECT CASE WHEN t.maxProperties IS NOT NULL AND t.propertyCount >= t.maxProperties THEN true ELSE false END " +
+            "FROM Tenant t WHERE t.id = :tenantId")
+    boolean hasReachedPropertyLimit(@Param("tenantId") Long tenantId);
+
+    // Reserve user slots; updates nothing (returns 0) when the limit would be exceeded
+    @Modifying
+    @Query("UPDATE Tenant t SET t.activeUserCount = t.activeUserCount + :count " +
+            "WHERE t.id = :tenantId AND (t.maxUsers IS NULL OR t.activeUserCount + :count <= t.maxUsers)")
+    int tryReserveUserSlots(@Param("tenantId") Long tenantId, @Param("count") int count);
+
+    // Reserve a property slot; updates nothing (returns 0) when the limit would be exceeded
+    @Modifying
+    @Query("UPDATE Tenant t SET t.propertyCount = t.propertyCount + 1 " +
+            "WHERE t.id = :tenantId AND (t.maxProperties IS NULL OR t.propertyCount < t.maxProperties)")
+    int tryReservePropertySlot(@Param("tenantId") Long tenantId);
+
+    // Release a property slot
+    @Modifying
+    @Query("UPDATE Tenant t SET t.propertyCount = t.propertyCount - 1 WHERE t.id = :tenantId AND t.propertyCount > 0")
+    int releasePropertySlot(@Param("tenantId") Long tenantId);
+
+    // Count tenants the given users belong to
+    @Query(value = "SELECT COUNT(DISTINCT ut.tenant_id) FROM user_tenants ut WHERE ut.user_id IN (:userIds)",
+            nativeQuery = true)
+    int countTenantsOfUsers(@Param("userIds") Collection<Long> userIds);
+
+    // Shift active user counts of every tenant the given users belong to; increments respect max_users
+    @Modifying
+    @Query(value = "UPDATE tenants t SET active_user_count = GREATEST(t.active_user_count + :delta * c.n, 0) " +
+            "FROM (SELECT ut.tenant_id, COUNT(*) AS n FROM user_tenants ut " +
+            "      WHERE ut.user_id IN (:userIds) GROUP BY ut.tenant_id) c " +
+            "WHERE t.id = c.tenant_id " +
+            "AND (:delta < 0 OR t.max_users IS NULL OR t.active_user_count + :delta * c.n <= t.max_users)",
+            nativeQuery = true)
+    int adjustActiveUserCounts(@Param("userIds") Collection<Long> userIds, @Param("delta") int delta);
+
+    // Recompute active user counts from memberships; returns the number of tenants that had drifted
+    @Modifying
+    @Query(value = "UPDATE tenants t SET active_user_count = c.n " +
+            "FROM (SELECT t2.id, COUNT(u.id) AS n FROM tenants t2 " +
+            "      LEFT JOIN user_tenants ut ON ut.tenant_id = t2.id " +
+            "      LEFT JOIN users u ON u.id = ut.user_id AND u.active = true " +
+            "      GROUP BY t2.id) c " +
+            "WHERE t.id = c.id AND t.active_user_count <> c.n",
+            nativeQuery = true)
+    int reconcileActiveUserCounts();
 }
\ No newline at end of file
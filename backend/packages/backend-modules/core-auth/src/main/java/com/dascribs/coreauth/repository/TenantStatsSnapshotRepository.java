@@ -0,0 +1,60 @@
+package com.dascribs.coreauth.repository;
+
+import com.dascribs.coreauth.entity.tenant.TenantStatsSnapshot;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TenantStatsSnapshotRepository extends JpaRepository<TenantStatsSnapshot, Long> {
+
+    // Snapshot and its tenant in one row
+    @Query("SELECT s FROM TenantStatsSnapshot s JOIN FETCH s.tenant WHERE s.tenantId = :tenantId")
+    Optional<TenantStatsSnapshot> findWithTenantById(@Param("tenantId") Long tenantId);
+
+    // Change sequence a refresh starts from; 0 when the tenant has no snapshot yet
+    @Query(value = "SELECT COALESCE((SELECT s.change_seq FROM tenant_stats_snapshots s WHERE s.tenant_id = :tenantId), 0)",
+            nativeQuery = true)
+    long findChangeSeq(@Param("tenantId") Long tenantId);
+
+    // Recompute a tenant's snapshot; change_seq is left alone so concurrent changes keep it dirty
+    @Modifying(clearAutomatically = true)
+    @Query(value = "INSERT INTO tenant_stats_snapshots " +
+            "(tenant_id, total_users, active_users, property_count, change_seq, refreshed_seq, snapshot_at) " +
+            "SELECT t.id, COUNT(u.id), COUNT(u.id) FILTER (WHERE u.active), t.property_count, :seq, :seq, CURRENT_TIMESTAMP " +
+            "FROM tenants t " +
+            "LEFT JOIN user_tenants ut ON ut.tenant_id = t.id " +
+            "LEFT JOIN users u ON u.id = ut.user_id " +
+            "WHERE t.id = :tenantId GROUP BY t.id " +
+            "ON CONFLICT (tenant_id) DO UPDATE SET total_users = EXCLUDED.total_users, " +
+            "active_users = EXCLUDED.active_users, property_count = EXCLUDED.property_count, " +
+            "refreshed_seq = EXCLUDED.refreshed_seq, snapshot_at = EXCLUDED.snapshot_at",
+            nativeQuery = true)
+    int refresh(@Param("tenantId") Long tenantId, @Param("seq") long seq);
+
+    // Mark a tenant's snapshot dirty
+    @Modifying
+    @Query(value = "UPDATE tenant_stats_snapshots SET change_seq = change_seq + 1 WHERE tenant_id = :tenantId",
+            nativeQuery = true)
+    int markDirty(@Param("tenantId") Long tenantId);
+
+    // Mark dirty the snapshots of every tenant the given users belong to
+    @Modifying
+    @Query(value = "UPDATE tenant_stats_snapshots SET change_seq = change_seq + 1 " +
+            "WHERE tenant_id IN (SELECT ut.tenant_id FROM user_tenants ut WHERE ut.user_id IN (:userIds))",
+            nativeQuery = true)
+    int markDirtyForUsers(@Param("userIds") Collection<Long> userIds);
+
+    // Next batch of dirty snapshots; served by idx_tenant_stats_snapshots_dirty
+    @Query(value = "SELECT s.tenant_id FROM tenant_stats_snapshots s " +
+            "WHERE s.change_seq <> s.refreshed_seq AND s.tenant_id > :afterId ORDER BY s.tenant_id",
+            nativeQuery = true)
+    List<Long> findDirtyTenantIds(@Param("afterId") Long afterId, Pageable pageable);
+}
@@ -2,6 +2,7 @@ package com.dascribs.coreauth.repository;
 
 import com.dascribs.coreauth.entity.user.Role;
 import com.dascribs.coreauth.entity.user.User;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -9,17 +10,52 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
-    // Find user by email
-    Optional<User> findByEmail(String email);
-
-    // Check if email exists
-    boolean existsByEmail(String email);
+    // Find user by email, ignoring case (served by uq_users_email_lower)
+    @Query("SELECT u FROM User u WHERE LOWER(u.email) = LOWER(:email)")
+    Optional<User> findByEmail(@Param("email") String email);
+
+    // Check if email exists in any tenant (native, so the tenant filter does not hide other tenants' users)
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM users WHERE LOWER(email) = LOWER(:email))", nativeQuery = true)
+    boolean existsByEmail(@Param("email") String email);
+
+    // Find which of the given normalized emails are already registered in any tenant (bulk duplicate check)
+    @Query(value = "SELECT LOWER(email) FROM users WHERE LOWER(email) IN (:emails)", nativeQuery = true)
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Inserts a new user and lets the unique email index decide on duplicates,
+     * instead of a separate existence check that can race with a concurrent insert.
+     */
+    default User insert(User user) {
+        return saveAndFlushCheckingEmail(user);
+    }
+
+    /**
+     * Saves a user whose email may have changed. Like {@link #insert}, the unique index is the
+     * duplicate check, raised here inside the caller's transaction instead of as a failed commit.
+     */
+    default User updateEmail(User user) {
+        return saveAndFlushCheckingEmail(user);
+    }
+
+    private User saveAndFlushCheckingEmail(User user) {
+        try {
+            return saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            String message = e.getMostSpecificCause().getMessage();
+            if (message != null && message.contains(User.EMAIL_UNIQUE_INDEX)) {
+                throw new IllegalArgumentException("Email already exists");
+            }
+            throw e;
+        }
+    }
 
     // Find users by role
     List<User> findByRole(Role role);
@@ -39,26 +75,26 @@ public interface UserRepository extends JpaRepository<User, Long> {
     long countActiveUsers();
 
     // Search users by email pattern
-    @Query("SELECT u FROM User u WHERE u.email LIKE %:email%")
+    @Query("SELECT u FROM User u WHERE LOWER(u.email) LIKE LOWER(CONCAT('%', :email, '%'))")
     List<User> findByEmailContaining(@Param("email") String email);
 
     // Find active users by role
     @Query("SELECT u FROM User u WHERE u.role = :role AND u.active = true")
     List<User> findActiveByRole(@Param("role") Role role);
 
-    // Find users by tenant ID (multi-tenancy)
-    @Query("SELECT u FROM User u JOIN u.userTenants ut WHERE ut.tenant.id = :tenantId")
+    // Find users by tenant ID (multi-tenancy), served by idx_users_tenant_created_at
+    @Query("SELECT u FROM User u WHERE u.tenantId = :tenantId")
     Page<User> findByTenantId(@Param("tenantId") Long tenantId, Pageable pageable);
 
-    // Find users by tenant ID and role
-    @Query("SELECT u FROM User u JOIN u.userTenants ut WHERE ut.tenant.id = :tenantId AND u.role = :role")
+    // Find users by tenant ID and role, served by idx_users_tenant_role_active
+    @Query("SELECT u FROM User u WHERE u.tenantId = :tenantId AND u.role = :role")
     List<User> findByTenantIdAndRole(@Param("tenantId") Long tenantId, @Param("role") Role role);
 
     // Find users by tenant ID with active status
-    @Query("SELECT u FROM User u JOIN u.userTenants ut WHERE ut.tenant.id = :tenantId AND u.active = :active")
+    @Query("SELECT u FROM User u WHERE u.tenantId = :tenantId AND u.active = :active")
     Page<User> findByTenantIdAndActive(@Param("tenantId") Long tenantId, @Param("active") boolean active, Pageable pageable);
 
     // Search users by name within a tenant
-    @Query("SELECT u FROM User u JOIN u.userTenants ut WHERE ut.tenant.id = :tenantId AND u.fullName LIKE %:name%")
+    @Query("SELECT u FROM User u WHERE u.tenantId = :tenantId AND u.fullName LIKE %:name%")
     Page<User> findByTenantIdAndNameContaining(@Param("tenantId") Long tenantId, @Param("name") String name, Pageable pageable);
 }
\ No newline at end of file
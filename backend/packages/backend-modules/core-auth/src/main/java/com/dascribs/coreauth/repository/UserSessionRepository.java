@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -37,6 +38,11 @@ public interface UserSessionRepository extends JpaRepository<UserSession, Long>
     @Query("DELETE FROM UserSession us WHERE us.user.id = :userId")
     void deleteAllByUserId(@Param("userId") Long userId);
 
+    // Delete all sessions for a set of users in one statement
+    @Modifying
+    @Query("DELETE FROM UserSession us WHERE us.user.id IN :userIds")
+    int deleteAllByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
     // Delete specific session by token
     @Modifying
     @Query("DELETE FROM UserSession us WHERE us.sessionToken = :token")
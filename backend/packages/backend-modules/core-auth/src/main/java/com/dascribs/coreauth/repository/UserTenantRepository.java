@@ -12,6 +12,44 @@ import java.util.Optional;
 @Repository
 public interface UserTenantRepository extends JpaRepository<UserTenant, Long> {
 
+    // One recipient of a tenant notification
+    interface BroadcastRecipient {
+        Long getUserId();
+
+        Long getTenantId();
+
+        String getEmail();
+
+        String getFullName();
+    }
+
+    // Next active users of a tenant after the user id cursor; served by idx_user_tenants_tenant_user
+    @Query("SELECT ut.user.id AS userId, ut.tenant.id AS tenantId, u.email AS email, u.fullName AS fullName " +
+            "FROM UserTenant ut JOIN ut.user u " +
+            "WHERE ut.tenant.id = :tenantId AND ut.user.id > :afterUserId AND u.active = true ORDER BY ut.user.id")
+    List<BroadcastRecipient> findBroadcastRecipients(@Param("tenantId") Long tenantId,
+                                                     @Param("afterUserId") Long afterUserId,
+                                                     org.springframework.data.domain.Pageable pageable);
+
+    // Next active users of all tenants after the user id cursor, each once: through their primary
+    // tenant if they have one, otherwise their lowest tenant id
+    @Query("SELECT ut.user.id AS userId, " +
+            "COALESCE(MAX(CASE WHEN ut.isPrimary = true THEN ut.tenant.id END), MIN(ut.tenant.id)) AS tenantId, " +
+            "u.email AS email, u.fullName AS fullName " +
+            "FROM UserTenant ut JOIN ut.user u " +
+            "WHERE ut.user.id > :afterUserId AND u.active = true " +
+            "GROUP BY ut.user.id, u.email, u.fullName ORDER BY ut.user.id")
+    List<BroadcastRecipient> findAllTenantBroadcastRecipients(@Param("afterUserId") Long afterUserId,
+                                                              org.springframework.data.domain.Pageable pageable);
+
+    // Count active users with at least one membership, each once
+    @Query("SELECT COUNT(DISTINCT ut.user.id) FROM UserTenant ut WHERE ut.user.active = true")
+    long countActiveMembers();
+
+    // All memberships of a user as bare tenant ids, without loading users or tenants
+    @Query("SELECT ut.tenant.id FROM UserTenant ut WHERE ut.user.id = :userId")
+    List<Long> findTenantIdsByUserId(@Param("userId") Long userId);
+
     // Find user-tenant relationship by user ID and tenant ID
     Optional<UserTenant> findByUserIdAndTenantId(Long userId, Long tenantId);
 
@@ -61,6 +99,6 @@ public interface UserTenantRepository extends JpaRepository<UserTenant, Long> {
     boolean userHasTenantAssociation(@Param("userId") Long userId);
 
     // Find user's tenants by user email
-    @Query("SELECT ut FROM UserTenant ut JOIN ut.user u WHERE u.email = :email")
+    @Query("SELECT ut FROM UserTenant ut JOIN ut.user u WHERE LOWER(u.email) = LOWER(:email)")
     List<UserTenant> findByUserEmail(@Param("email") String email);
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.dascribs.coreauth.security;
+
+import com.dascribs.coreauth.service.tenant.TenantResolver.ResolvedTenant;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.Optional;
+
+/**
+ * Tenant addressed by the current request, resolved from the Host. It may be inactive.
+ * Populated by {@link com.dascribs.coreauth.config.TenantResolutionFilter}; empty when no tenant owns the host.
+ */
+@Component
+@RequestScope
+public class CurrentTenantContext {
+
+    private ResolvedTenant tenant;
+
+    public void populate(ResolvedTenant tenant) {
+        this.tenant = tenant;
+    }
+
+    public Optional<ResolvedTenant> getTenant() {
+        return Optional.ofNullable(tenant);
+    }
+}
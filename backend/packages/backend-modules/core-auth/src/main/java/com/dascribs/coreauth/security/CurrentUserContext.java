@@ -0,0 +1,78 @@
+package com.dascribs.coreauth.security;
+
+import com.dascribs.coreauth.entity.user.Role;
+import com.dascribs.shared.exception.AccessDeniedException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Holds the authenticated caller for the lifetime of a single request.
+ * Populated by {@link com.dascribs.coreauth.config.JwtAuthenticationFilter} once the JWT is accepted,
+ * so services can check id, role and tenant without re-querying the users table.
+ */
+@Component
+@RequestScope
+public class CurrentUserContext {
+
+    private Long userId;
+    private String email;
+    private Role role;
+    private Long tenantId;
+
+    public void populate(CustomUserDetailsService.UserPrincipal principal) {
+        this.userId = principal.getId();
+        this.email = principal.getEmail();
+        this.role = principal.getRole();
+        this.tenantId = principal.getTenantId();
+    }
+
+    public boolean isPopulated() {
+        return userId != null;
+    }
+
+    public Long getUserId() {
+        requirePopulated();
+        return userId;
+    }
+
+    public String getEmail() {
+        requirePopulated();
+        return email;
+    }
+
+    public Role getRole() {
+        requirePopulated();
+        return role;
+    }
+
+    public boolean isSuperAdmin() {
+        return getRole() == Role.SUPER_ADMIN;
+    }
+
+    public boolean isAdmin() {
+        return getRole() == Role.ADMIN;
+    }
+
+    /**
+     * Home tenant of the caller (users.tenant_id). Tenant-scoped queries and the Hibernate tenant
+     * filter are bound to it, whatever other tenants the caller is a member of. May be null.
+     */
+    public Long getTenantId() {
+        requirePopulated();
+        return tenantId;
+    }
+
+    public Long requireTenantId() {
+        Long tenantId = getTenantId();
+        if (tenantId == null) {
+            throw new AccessDeniedException("User is not associated with any tenant");
+        }
+        return tenantId;
+    }
+
+    private void requirePopulated() {
+        if (userId == null) {
+            throw new IllegalStateException("User not authenticated");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.dascribs.coreauth.security;
 
 
+import com.dascribs.coreauth.entity.user.Role;
 import com.dascribs.coreauth.entity.user.User;
 import com.dascribs.coreauth.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -55,14 +56,18 @@ public class CustomUserDetailsService implements UserDetailsService {
         private Long id;
         private String email;
         private String password;
+        private Role role;
+        private Long tenantId;
         private Collection<? extends GrantedAuthority> authorities;
         private boolean active;
 
-        public UserPrincipal(Long id, String email, String password,
+        public UserPrincipal(Long id, String email, String password, Role role, Long tenantId,
                              Collection<? extends GrantedAuthority> authorities, boolean active) {
             this.id = id;
             this.email = email;
             this.password = password;
+            this.role = role;
+            this.tenantId = tenantId;
             this.authorities = authorities;
             this.active = active;
         }
@@ -80,6 +85,8 @@ public class CustomUserDetailsService implements UserDetailsService {
                     user.getId(),
                     user.getEmail(),
                     user.getPassword(),
+                    user.getRole(),
+                    user.getTenantId(),
                     authorities,
                     user.isActive()
             );
@@ -130,6 +137,15 @@ public class CustomUserDetailsService implements UserDetailsService {
             return email;
         }
 
+        public Role getRole() {
+            return role;
+        }
+
+        // Home tenant (users.tenant_id); null for super admins and users without one
+        public Long getTenantId() {
+            return tenantId;
+        }
+
         public boolean hasPermission(String permission) {
             return authorities.stream()
                     .anyMatch(auth -> auth.getAuthority().equals(permission));
@@ -0,0 +1,142 @@
+package com.dascribs.coreauth.service.auth;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Signs and checks the tokens sent in verification, email change and password reset links.
+ *
+ * <p>A token carries the user id, its purpose, its expiry and a random nonce, followed by an
+ * HMAC-SHA256 over those bytes. Forged, truncated, expired or wrong-purpose tokens are rejected
+ * here without a query; only a token that passes is looked up, by its nonce, to enforce single
+ * use. The key is derived from the configured secret, so it never equals the JWT signing key.
+ */
+@Component
+public class ActionTokenSigner {
+
+    // Stored by ordinal in issued tokens: only append
+    public enum Purpose {
+        EMAIL_VERIFICATION,
+        EMAIL_CHANGE,
+        PASSWORD_RESET
+    }
+
+    public record Claims(long userId, Purpose purpose, LocalDateTime expiresAt, String nonce) {}
+
+    private static final byte VERSION = 1;
+    private static final int NONCE_BYTES = 16;
+    private static final int PAYLOAD_BYTES = 1 + 1 + Long.BYTES + Long.BYTES + NONCE_BYTES;
+    private static final int SIGNATURE_BYTES = 32;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // Both parts are fixed length, so anything else is rejected before decoding
+    private static final int PAYLOAD_CHARS = (PAYLOAD_BYTES * 8 + 5) / 6;
+    private static final int SIGNATURE_CHARS = (SIGNATURE_BYTES * 8 + 5) / 6;
+    private static final int TOKEN_CHARS = PAYLOAD_CHARS + 1 + SIGNATURE_CHARS;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.security.action-token.secret:${app.jwt.secret}}")
+    private String secret;
+
+    private SecretKeySpec key;
+
+    @PostConstruct
+    void init() throws GeneralSecurityException {
+        Mac derivation = Mac.getInstance(ALGORITHM);
+        derivation.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        key = new SecretKeySpec(derivation.doFinal("dascribs-action-token".getBytes(StandardCharsets.UTF_8)), ALGORITHM);
+    }
+
+    public Claims issue(long userId, Purpose purpose, LocalDateTime expiresAt) {
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        return new Claims(userId, purpose, expiresAt, ENCODER.encodeToString(nonce));
+    }
+
+    public String sign(Claims claims) {
+        ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_BYTES)
+                .put(VERSION)
+                .put((byte) claims.purpose().ordinal())
+                .putLong(claims.userId())
+                .putLong(claims.expiresAt().atZone(ZoneId.systemDefault()).toEpochSecond())
+                .put(DECODER.decode(claims.nonce()));
+        byte[] bytes = payload.array();
+        return ENCODER.encodeToString(bytes) + '.' + ENCODER.encodeToString(mac(bytes));
+    }
+
+    /**
+     * The token's claims if it is well formed, correctly signed, meant for this purpose and not expired.
+     */
+    public Optional<Claims> verify(String token, Purpose purpose) {
+        if (token == null || token.length() != TOKEN_CHARS || token.charAt(PAYLOAD_CHARS) != '.') {
+            return reject("malformed");
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, PAYLOAD_CHARS));
+            signature = DECODER.decode(token.substring(PAYLOAD_CHARS + 1));
+        } catch (IllegalArgumentException e) {
+            return reject("malformed");
+        }
+        if (!MessageDigest.isEqual(mac(payload), signature)) {
+            return reject("signature");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        if (buffer.get() != VERSION) {
+            return reject("malformed");
+        }
+        int purposeIndex = buffer.get();
+        if (purposeIndex != purpose.ordinal()) {
+            return reject("purpose");
+        }
+        long userId = buffer.getLong();
+        Instant expiresAt = Instant.ofEpochSecond(buffer.getLong());
+        if (!expiresAt.isAfter(Instant.now())) {
+            return reject("expired");
+        }
+        byte[] nonce = new byte[NONCE_BYTES];
+        buffer.get(nonce);
+        return Optional.of(new Claims(userId, purpose,
+                LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()), ENCODER.encodeToString(nonce)));
+    }
+
+    private Optional<Claims> reject(String reason) {
+        meterRegistry.counter("auth.action_tokens.rejected", "reason", reason).increment();
+        return Optional.empty();
+    }
+
+    private byte[] mac(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+}
@@ -12,7 +12,12 @@ import com.dascribs.coreauth.entity.user.UserTenant;
 import com.dascribs.coreauth.repository.TenantRepository;
 import com.dascribs.coreauth.repository.UserRepository;
 import com.dascribs.coreauth.repository.UserTenantRepository;
+import com.dascribs.coreauth.security.CurrentTenantContext;
+import com.dascribs.coreauth.security.CurrentUserContext;
 import com.dascribs.coreauth.security.CustomUserDetailsService;
+import com.dascribs.coreauth.service.tenant.TenantMembershipIndex;
+import com.dascribs.coreauth.service.tenant.TenantResolver;
+import com.dascribs.coreauth.service.tenant.TenantUsageService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -55,6 +60,21 @@ public class AuthService {
     @Autowired
     private EmailVerificationService emailVerificationService;
 
+    @Autowired
+    private CurrentUserContext currentUserContext;
+
+    @Autowired
+    private TenantUsageService tenantUsageService;
+
+    @Autowired
+    private CurrentTenantContext currentTenantContext;
+
+    @Autowired
+    private TenantResolver tenantResolver;
+
+    @Autowired
+    private TenantMembershipIndex membershipIndex;
+
     public LoginResponse login(LoginRequest request, HttpServletRequest httpRequest) {
         try {
             // Authenticate user
@@ -69,7 +89,8 @@ public class AuthService {
 
             // Get user details
             CustomUserDetailsService.UserPrincipal userPrincipal = (CustomUserDetailsService.UserPrincipal) authentication.getPrincipal();
-            User user = userRepository.findByEmail(request.getEmail())
+            // Already in the persistence context from authentication, so this does not hit the database
+            User user = userRepository.findById(userPrincipal.getId())
                     .orElseThrow(() -> new UserNotFoundException("User not found"));
 
             if (!user.isEmailVerified()) {
@@ -116,11 +137,6 @@ public class AuthService {
     }
 
     public UserResponse register(UserCreateRequest request) {
-        // Validate email uniqueness
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new IllegalArgumentException("Email already registered");
-        }
-
         // Validate role-specific requirements
         if (!request.isValidForRole()) {
             throw new IllegalArgumentException("Invalid role configuration");
@@ -129,36 +145,33 @@ public class AuthService {
         // For non-super-admin registrations, ensure they're associated with a tenant
         Tenant tenant = null;
         if (request.getRole() != Role.SUPER_ADMIN) {
-            tenant = getOrCreateDefaultTenant();
+            tenant = getRequestTenant();
 
-            // Check user limit for tenant
-           // if (tenantRepository.hasReachedUserLimit(tenant.getId())) {
-           //     throw new IllegalArgumentException("Tenant user limit reached. Please upgrade your plan.");
-           // }
+            // Check and reserve user limit for tenant in one statement
+            tenantUsageService.reserveUserSlots(tenant.getId(), 1);
         }
 
         // Create user
         User user = createUserFromRequest(request);
 
-        User savedUser = userRepository.save(user);
+        if (tenant != null) {
+            user.setTenantId(tenant.getId());
+        }
+        // Duplicate emails are rejected by the unique index
+        User savedUser = userRepository.insert(user);
 
         // Associate user with tenant if applicable
         if (tenant != null) {
             UserTenant userTenant = new UserTenant(savedUser, tenant, true);
             userTenantRepository.save(userTenant);
+            membershipIndex.evict(savedUser.getId());
         }
         emailVerificationService.sendVerificationEmail(savedUser);
         return new UserResponse(savedUser);
     }
 
     public User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new IllegalStateException("User not authenticated");
-        }
-
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
+        return userRepository.findById(currentUserContext.getUserId())
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
     }
 
@@ -230,12 +243,30 @@ public class AuthService {
         return user;
     }
 
+    private Tenant getRequestTenant() {
+        // Tenant addressed by Host, resolved from cache by TenantResolutionFilter
+        Optional<TenantResolver.ResolvedTenant> requestTenant = currentTenantContext.getTenant();
+        if (requestTenant.isPresent()) {
+            requireActive(requestTenant.get());
+            return tenantRepository.getReferenceById(requestTenant.get().id());
+        }
+
+        return getOrCreateDefaultTenant();
+    }
+
+    // A suspended or deleted tenant's host must not sign users up, nor send them to the default tenant
+    private static void requireActive(TenantResolver.ResolvedTenant tenant) {
+        if (!tenant.active()) {
+            throw new IllegalArgumentException("Registration is closed for this organization");
+        }
+    }
+
     private Tenant getOrCreateDefaultTenant() {
-        // In a real application, you'd get the tenant from the request context
-        // For demo purposes, we'll use or create a default tenant
-        Optional<Tenant> existingTenant = tenantRepository.findByTenantId("default_tenant");
+        // Fallback for requests that do not address a tenant
+        Optional<TenantResolver.ResolvedTenant> existingTenant = tenantResolver.resolveByCode("default_tenant");
         if (existingTenant.isPresent()) {
-            return existingTenant.get();
+            requireActive(existingTenant.get());
+            return tenantRepository.getReferenceById(existingTenant.get().id());
         }
 
         Tenant defaultTenant = new Tenant();
@@ -244,7 +275,9 @@ public class AuthService {
         defaultTenant.setPlan(Tenant.Plan.FREE);
         defaultTenant.setActive(true);
 
-        return tenantRepository.save(defaultTenant);
+        Tenant savedTenant = tenantRepository.save(defaultTenant);
+        tenantResolver.evict(savedTenant);
+        return savedTenant;
     }
 
     private String getClientIpAddress(HttpServletRequest request) {
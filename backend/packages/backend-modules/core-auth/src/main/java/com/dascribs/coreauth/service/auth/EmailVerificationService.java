@@ -10,14 +10,18 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
 public class EmailVerificationService {
 
+    private static final String ATTEMPTS_SCOPE = "email-verification";
+    private static final String RESEND_SCOPE = "email-verification-resend";
+    private static final Duration ATTEMPTS_WINDOW = Duration.ofDays(1);
+
     @Autowired
     private UserRepository userRepository;
 
@@ -27,6 +31,12 @@ public class EmailVerificationService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private SlidingWindowRateLimiter rateLimiter;
+
+    @Autowired
+    private ActionTokenSigner tokenSigner;
+
     @Value("${app.security.email-verification.token-expiry-hours:24}")
     private int tokenExpiryHours;
 
@@ -44,26 +54,29 @@ public class EmailVerificationService {
             throw new IllegalStateException("Email is already verified");
         }
 
+        // Starting the cooldown is the check, so of two concurrent resends only one gets through,
+        // and a request turned away by it does not use up the daily budget
+        if (!tryStartCooldown(user)) {
+            throw new IllegalStateException("Please wait before requesting another verification email");
+        }
+
         // Rate limiting check
         if (isRateLimited(user.getId())) {
             throw new IllegalStateException("Too many verification attempts. Please try again later.");
         }
 
-        // Check cooldown period
-        if (isInCooldownPeriod(user)) {
-            throw new IllegalStateException("Please wait before requesting another verification email");
-        }
-
         // Invalidate any existing verification tokens
         tokenRepository.invalidateUserTokens(user.getId(), EmailVerificationToken.TokenType.ACCOUNT_VERIFICATION);
 
-        // Generate secure token
-        String token = generateSecureToken();
+        // Sign a token; only its nonce is stored, to make it single use
         LocalDateTime expiresAt = LocalDateTime.now().plusHours(tokenExpiryHours);
+        ActionTokenSigner.Claims claims = tokenSigner.issue(
+                user.getId(), ActionTokenSigner.Purpose.EMAIL_VERIFICATION, expiresAt);
+        String token = tokenSigner.sign(claims);
 
         // Create and save token
         EmailVerificationToken verificationToken = new EmailVerificationToken(
-                user, token, user.getEmail(), EmailVerificationToken.TokenType.ACCOUNT_VERIFICATION, expiresAt
+                user, claims.nonce(), user.getEmail(), EmailVerificationToken.TokenType.ACCOUNT_VERIFICATION, expiresAt
         );
         tokenRepository.save(verificationToken);
 
@@ -73,9 +86,6 @@ public class EmailVerificationService {
 
         // Send verification email
         emailService.sendVerificationEmail(user, token);
-
-        // Clean up expired tokens
-        cleanupExpiredTokens();
     }
 
     /**
@@ -83,17 +93,8 @@ public class EmailVerificationService {
      */
     public boolean verifyEmail(String token) {
         // Find valid token
-        Optional<EmailVerificationToken> tokenOpt = tokenRepository.findByToken(token);
-        if (tokenOpt.isEmpty()) {
-            throw new IllegalArgumentException("Invalid or expired verification token");
-        }
-
-        EmailVerificationToken verificationToken = tokenOpt.get();
-
-        // Validate token
-        if (!verificationToken.isValid()) {
-            throw new IllegalArgumentException("Invalid or expired verification token");
-        }
+        EmailVerificationToken verificationToken = findValidToken(
+                token, ActionTokenSigner.Purpose.EMAIL_VERIFICATION, EmailVerificationToken.TokenType.ACCOUNT_VERIFICATION);
 
         User user = verificationToken.getUser();
 
@@ -120,7 +121,9 @@ public class EmailVerificationService {
     /**
      * Initiate email change process
      */
-    public void initiateEmailChange(User user, String newEmail) {
+    public void initiateEmailChange(User user, String requestedEmail) {
+        String newEmail = User.normalizeEmail(requestedEmail);
+
         // Validate new email
         if (newEmail.equals(user.getEmail())) {
             throw new IllegalArgumentException("New email must be different from current email");
@@ -139,13 +142,15 @@ public class EmailVerificationService {
         // Invalidate any existing email change tokens
         tokenRepository.invalidateUserTokens(user.getId(), EmailVerificationToken.TokenType.EMAIL_CHANGE_VERIFICATION);
 
-        // Generate secure token
-        String token = generateSecureToken();
+        // Sign a token; only its nonce is stored, to make it single use
         LocalDateTime expiresAt = LocalDateTime.now().plusHours(tokenExpiryHours);
+        ActionTokenSigner.Claims claims = tokenSigner.issue(
+                user.getId(), ActionTokenSigner.Purpose.EMAIL_CHANGE, expiresAt);
+        String token = tokenSigner.sign(claims);
 
         // Create and save token
         EmailVerificationToken changeToken = new EmailVerificationToken(
-                user, token, newEmail, EmailVerificationToken.TokenType.EMAIL_CHANGE_VERIFICATION, expiresAt
+                user, claims.nonce(), newEmail, EmailVerificationToken.TokenType.EMAIL_CHANGE_VERIFICATION, expiresAt
         );
         tokenRepository.save(changeToken);
 
@@ -155,8 +160,6 @@ public class EmailVerificationService {
 
         // Send email change verification email
         emailService.sendEmailChangeVerification(user, newEmail, token);
-
-        cleanupExpiredTokens();
     }
 
     /**
@@ -164,17 +167,8 @@ public class EmailVerificationService {
      */
     public boolean completeEmailChange(String token) {
         // Find valid token
-        Optional<EmailVerificationToken> tokenOpt = tokenRepository.findByToken(token);
-        if (tokenOpt.isEmpty()) {
-            throw new IllegalArgumentException("Invalid or expired verification token");
-        }
-
-        EmailVerificationToken changeToken = tokenOpt.get();
-
-        // Validate token
-        if (!changeToken.isValid()) {
-            throw new IllegalArgumentException("Invalid or expired verification token");
-        }
+        EmailVerificationToken changeToken = findValidToken(
+                token, ActionTokenSigner.Purpose.EMAIL_CHANGE, EmailVerificationToken.TokenType.EMAIL_CHANGE_VERIFICATION);
 
         User user = changeToken.getUser();
         String newEmail = changeToken.getEmail();
@@ -194,7 +188,7 @@ public class EmailVerificationService {
         user.setEmail(newEmail);
         user.setPendingEmail(null);
         user.setEmailVerified(true); // New email is verified
-        userRepository.save(user);
+        userRepository.updateEmail(user);
 
         // Mark token as used
         changeToken.markAsUsed();
@@ -215,41 +209,40 @@ public class EmailVerificationService {
     }
 
     // Helper methods
-    private String generateSecureToken() {
-        return UUID.randomUUID().toString().replace("-", "").substring(0, 32);
+
+    /**
+     * Checks the signature and expiry first, so forged and stale tokens never reach the database.
+     */
+    private EmailVerificationToken findValidToken(String token, ActionTokenSigner.Purpose purpose,
+                                                  EmailVerificationToken.TokenType tokenType) {
+        Optional<EmailVerificationToken> tokenOpt = tokenSigner.verify(token, purpose)
+                .flatMap(claims -> tokenRepository.findByToken(claims.nonce())
+                        .filter(stored -> stored.getUser().getId() == claims.userId()));
+        if (tokenOpt.isEmpty() || tokenOpt.get().getTokenType() != tokenType || !tokenOpt.get().isValid()) {
+            throw new IllegalArgumentException("Invalid or expired verification token");
+        }
+        return tokenOpt.get();
     }
 
+    // Records the attempt when it is allowed; verification and email change share the daily budget
     private boolean isRateLimited(Long userId) {
-        LocalDateTime oneDayAgo = LocalDateTime.now().minusDays(1);
-        long recentAttempts = tokenRepository.countRecentTokensByUserId(userId, oneDayAgo);
-        return recentAttempts >= maxAttemptsPerDay;
+        return !rateLimiter.tryAcquire(ATTEMPTS_SCOPE, userId, maxAttemptsPerDay, ATTEMPTS_WINDOW);
     }
 
-    private boolean isInCooldownPeriod(User user) {
-        if (user.getEmailVerificationSentAt() == null) {
-            return false;
-        }
-        LocalDateTime cooldownUntil = user.getEmailVerificationSentAt().plusMinutes(resendCooldownMinutes);
-        return LocalDateTime.now().isBefore(cooldownUntil);
+    private boolean tryStartCooldown(User user) {
+        return rateLimiter.tryAcquire(RESEND_SCOPE, user.getId(), 1, resendCooldown());
     }
 
-    private void cleanupExpiredTokens() {
-        tokenRepository.deleteExpiredTokens(LocalDateTime.now());
+    private Duration resendCooldown() {
+        return Duration.ofMinutes(resendCooldownMinutes);
     }
 
     /**
      * Get remaining cooldown time in seconds
      */
     public long getResendCooldownSeconds(User user) {
-        if (user.getEmailVerificationSentAt() == null) {
-            return 0;
-        }
-        LocalDateTime cooldownUntil = user.getEmailVerificationSentAt().plusMinutes(resendCooldownMinutes);
-        LocalDateTime now = LocalDateTime.now();
-
-        if (now.isBefore(cooldownUntil)) {
-            return java.time.Duration.between(now, cooldownUntil).getSeconds();
-        }
-        return 0;
+        Duration remaining = rateLimiter.retryAfter(RESEND_SCOPE, user.getId(), 1, resendCooldown());
+        // Round up so a client waiting this long is never still inside the cooldown
+        return (remaining.toMillis() + 999) / 1000;
     }
 }
\ No newline at end of file
@@ -11,14 +11,16 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
 public class PasswordResetService {
 
+    private static final String ATTEMPTS_SCOPE = "password-reset";
+
     @Autowired
     private UserRepository userRepository;
 
@@ -34,6 +36,12 @@ public class PasswordResetService {
     @Autowired
     private SessionService sessionService;
 
+    @Autowired
+    private SlidingWindowRateLimiter rateLimiter;
+
+    @Autowired
+    private ActionTokenSigner tokenSigner;
+
     @Value("${app.security.password-reset.token-expiry-hours:1}")
     private int tokenExpiryHours;
 
@@ -62,20 +70,19 @@ public class PasswordResetService {
             // Invalidate any existing tokens for this user
             tokenRepository.invalidateAllUserTokens(user.getId());
 
-            // Generate secure token
-            String token = generateSecureToken();
+            // Sign a token; only its nonce is stored, to make it single use
             LocalDateTime expiresAt = LocalDateTime.now().plusHours(tokenExpiryHours);
+            ActionTokenSigner.Claims claims = tokenSigner.issue(
+                    user.getId(), ActionTokenSigner.Purpose.PASSWORD_RESET, expiresAt);
+            String token = tokenSigner.sign(claims);
 
             // Create and save token
-            PasswordResetToken resetToken = new PasswordResetToken(user, token, expiresAt);
+            PasswordResetToken resetToken = new PasswordResetToken(user, claims.nonce(), expiresAt);
             tokenRepository.save(resetToken);
 
             // Send email (will be logged in dev, actually sent in prod)
             emailService.sendPasswordResetEmail(user, token);
         }
-
-        // Clean up expired tokens
-        cleanupExpiredTokens();
     }
 
     /**
@@ -88,18 +95,13 @@ public class PasswordResetService {
         }
 
         // Find valid token
-        Optional<PasswordResetToken> tokenOpt = tokenRepository.findByToken(token);
+        Optional<PasswordResetToken> tokenOpt = findValidToken(token);
         if (tokenOpt.isEmpty()) {
             throw new IllegalArgumentException("Invalid or expired reset token");
         }
 
         PasswordResetToken resetToken = tokenOpt.get();
 
-        // Validate token
-        if (!resetToken.isValid()) {
-            throw new IllegalArgumentException("Invalid or expired reset token");
-        }
-
         User user = resetToken.getUser();
 
         // Check if new password is different from current
@@ -128,30 +130,31 @@ public class PasswordResetService {
      * Validate reset token without using it
      */
     public boolean validateResetToken(String token) {
-        Optional<PasswordResetToken> tokenOpt = tokenRepository.findByToken(token);
-        return tokenOpt.isPresent() && tokenOpt.get().isValid();
+        return findValidToken(token).isPresent();
     }
 
     /**
      * Get user from valid reset token
      */
     public Optional<User> getUserFromValidToken(String token) {
-        Optional<PasswordResetToken> tokenOpt = tokenRepository.findByToken(token);
-        if (tokenOpt.isPresent() && tokenOpt.get().isValid()) {
-            return Optional.of(tokenOpt.get().getUser());
-        }
-        return Optional.empty();
+        return findValidToken(token).map(PasswordResetToken::getUser);
     }
 
     // Helper methods
-    private String generateSecureToken() {
-        return UUID.randomUUID().toString() + "-" + System.currentTimeMillis();
+
+    /**
+     * Checks the signature and expiry first, so forged and stale tokens never reach the database.
+     */
+    private Optional<PasswordResetToken> findValidToken(String token) {
+        return tokenSigner.verify(token, ActionTokenSigner.Purpose.PASSWORD_RESET)
+                .flatMap(claims -> tokenRepository.findByToken(claims.nonce())
+                        .filter(stored -> stored.getUser().getId() == claims.userId()))
+                .filter(PasswordResetToken::isValid);
     }
 
+    // Records the attempt when it is allowed
     private boolean isRateLimited(Long userId) {
-        LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-        long recentAttempts = tokenRepository.countRecentTokensByUserId(userId, oneHourAgo);
-        return recentAttempts >= maxAttemptsPerHour;
+        return !rateLimiter.tryAcquire(ATTEMPTS_SCOPE, userId, maxAttemptsPerHour, Duration.ofHours(1));
     }
 
     private boolean isPasswordStrong(String password) {
@@ -167,8 +170,4 @@ public class PasswordResetService {
         // Check for at least one letter
         return password.matches(".*[a-zA-Z].*");
     }
-
-    private void cleanupExpiredTokens() {
-        tokenRepository.deleteExpiredTokens(LocalDateTime.now());
-    }
 }
\ No newline at end of file
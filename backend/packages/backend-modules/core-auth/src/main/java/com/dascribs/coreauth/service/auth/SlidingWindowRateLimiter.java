@@ -0,0 +1,301 @@
+package com.dascribs.coreauth.service.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sliding-window rate limits kept in memory, so a check never runs SQL.
+ *
+ * <p>Each key holds a ring buffer of its last {@code limit} event times: a new event is allowed
+ * when the buffer has room or its oldest entry has left the window, and then overwrites that
+ * entry. Keys hash onto a fixed set of locks, so callers on different keys rarely contend.
+ * Keys whose newest event has left the window are dropped by {@link #evictIdle()}.
+ *
+ * <p>Limits are per node. When a snapshot file is configured the windows are written there on
+ * shutdown and on each eviction pass, and read back on startup, so a restart does not reset them.
+ */
+@Component
+public class SlidingWindowRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlidingWindowRateLimiter.class);
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.security.rate-limit.lock-stripes:64}")
+    private int lockStripes;
+
+    @Value("${app.security.rate-limit.snapshot-file:}")
+    private String snapshotFile;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+    private ReentrantLock[] locks;
+
+    private static final class Window {
+        private long[] events;
+        private int next;
+        private int size;
+        private long windowMillis;
+        private boolean evicted;
+
+        Window(int limit, long windowMillis) {
+            this.events = new long[limit];
+            this.windowMillis = windowMillis;
+        }
+
+        // Keeps the newest events when the limit changes between calls
+        void resize(int limit, long windowMillis) {
+            this.windowMillis = windowMillis;
+            if (events.length == limit) {
+                return;
+            }
+            int kept = Math.min(size, limit);
+            long[] resized = new long[limit];
+            for (int i = 0; i < kept; i++) {
+                resized[kept - 1 - i] = newest(i);
+            }
+            events = resized;
+            size = kept;
+            next = kept % limit;
+        }
+
+        // The i-th most recent event, 0 being the newest
+        long newest(int i) {
+            return events[Math.floorMod(next - 1 - i, events.length)];
+        }
+
+        long oldest() {
+            return size < events.length ? events[0] : events[next];
+        }
+
+        long retryAfterMillis(long now) {
+            if (size < events.length) {
+                return 0;
+            }
+            return Math.max(0, oldest() + windowMillis - now);
+        }
+
+        void record(long now) {
+            events[next] = now;
+            next = (next + 1) % events.length;
+            if (size < events.length) {
+                size++;
+            }
+        }
+
+        boolean isIdle(long now) {
+            return size == 0 || newest(0) + windowMillis <= now;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        locks = new ReentrantLock[Integer.highestOneBit(Math.max(1, lockStripes))];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        restore();
+        Gauge.builder("rate.limiter.keys", windows, Map::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        persist();
+    }
+
+    /**
+     * Records an event for the key if fewer than {@code limit} fall within the window.
+     *
+     * @return false, recording nothing, when the key is over its limit
+     */
+    public boolean tryAcquire(String scope, Object id, int limit, Duration window) {
+        if (limit <= 0) {
+            return false;
+        }
+        String key = key(scope, id);
+        long now = System.currentTimeMillis();
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Window current = windowFor(key, limit, window);
+            if (current.retryAfterMillis(now) > 0) {
+                rejectedCounter(scope).increment();
+                return false;
+            }
+            current.record(now);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * How long until the key may record another event, without recording one. Zero when it may now.
+     */
+    public Duration retryAfter(String scope, Object id, int limit, Duration window) {
+        String key = key(scope, id);
+        long now = System.currentTimeMillis();
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Window current = windows.get(key);
+            if (current == null) {
+                return limit > 0 ? Duration.ZERO : window;
+            }
+            current.resize(Math.max(1, limit), window.toMillis());
+            return Duration.ofMillis(current.retryAfterMillis(now));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops keys with no event left in their window and, if configured, writes the snapshot.
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            ReentrantLock lock = lockFor(entry.getKey());
+            lock.lock();
+            try {
+                Window window = entry.getValue();
+                if (window.isIdle(now) && windows.remove(entry.getKey(), window)) {
+                    window.evicted = true;
+                    evicted++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("Rate limiter dropped {} idle keys", evicted);
+        }
+        persist();
+    }
+
+    // Callers hold the key's lock, so the window cannot be evicted under them
+    private Window windowFor(String key, int limit, Duration window) {
+        Window current = windows.get(key);
+        if (current == null || current.evicted) {
+            current = new Window(limit, window.toMillis());
+            windows.put(key, current);
+        } else {
+            current.resize(limit, window.toMillis());
+        }
+        return current;
+    }
+
+    private ReentrantLock lockFor(String key) {
+        int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
+    }
+
+    private Counter rejectedCounter(String scope) {
+        return rejectedCounters.computeIfAbsent(scope,
+                name -> meterRegistry.counter("rate.limiter.rejected", "scope", name));
+    }
+
+    private static String key(String scope, Object id) {
+        return scope + ':' + id;
+    }
+
+    private void persist() {
+        if (snapshotFile.isBlank()) {
+            return;
+        }
+        Path target = Paths.get(snapshotFile);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long now = System.currentTimeMillis();
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                for (Map.Entry<String, Window> entry : windows.entrySet()) {
+                    ReentrantLock lock = lockFor(entry.getKey());
+                    lock.lock();
+                    try {
+                        Window window = entry.getValue();
+                        if (window.evicted || window.isIdle(now)) {
+                            continue;
+                        }
+                        out.writeBoolean(true);
+                        out.writeUTF(entry.getKey());
+                        out.writeInt(window.events.length);
+                        out.writeLong(window.windowMillis);
+                        out.writeInt(window.size);
+                        for (int i = window.size - 1; i >= 0; i--) {
+                            out.writeLong(window.newest(i));
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                out.writeBoolean(false);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write rate limiter snapshot {}: {}", target, e.getMessage());
+        }
+    }
+
+    private void restore() {
+        if (snapshotFile.isBlank()) {
+            return;
+        }
+        Path source = Paths.get(snapshotFile);
+        if (!Files.exists(source)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                logger.warn("Ignoring rate limiter snapshot {}: unknown version", source);
+                return;
+            }
+            while (in.readBoolean()) {
+                String key = in.readUTF();
+                Window window = new Window(in.readInt(), in.readLong());
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    window.record(in.readLong());
+                }
+                if (!window.isIdle(now)) {
+                    windows.put(key, window);
+                }
+            }
+            logger.info("Rate limiter restored {} keys from {}", windows.size(), source);
+        } catch (IOException | RuntimeException e) {
+            // A damaged snapshot only costs the limits it held
+            windows.clear();
+            logger.warn("Could not read rate limiter snapshot {}: {}", source, e.getMessage());
+        }
+    }
+}
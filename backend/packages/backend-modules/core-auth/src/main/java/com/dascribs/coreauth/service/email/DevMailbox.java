@@ -0,0 +1,332 @@
+package com.dascribs.coreauth.service.email;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Captures development emails in an append-only log instead of one file per message.
+ *
+ * <p>Records go through a buffered channel into numbered segment files
+ * (mailbox-00000001.log, ...). The buffer is flushed at most a second after a write, by the next
+ * append or by {@link #flush()}, which DevMailboxFlushScheduler calls every second. A segment is rotated once it reaches segment-bytes, and only
+ * the newest max-segments are kept. Each record is a magic number, a payload length and a
+ * UTF-8 payload of header lines, a blank line and the body. An in-memory index of offsets and
+ * headers is rebuilt from the segments on startup. A torn record at the end of the last
+ * segment is truncated away.
+ */
+@Component
+@Profile("dev")
+public class DevMailbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(DevMailbox.class);
+
+    private static final int MAGIC = 0x4D424F58; // "MBOX"
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+    private static final String SEGMENT_PREFIX = "mailbox-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    @Value("${app.email-service.dev-storage.file-path:./logs/emails}")
+    private String storagePath;
+
+    @Value("${app.email-service.dev-storage.segment-bytes:16777216}")
+    private long segmentBytes;
+
+    @Value("${app.email-service.dev-storage.max-segments:16}")
+    private int maxSegments;
+
+    public record Entry(long id, int segment, long offset, int payloadLength,
+                        LocalDateTime receivedAt, String type, String to, String subject) {}
+
+    private final List<Entry> index = new ArrayList<>();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+
+    private Path directory;
+    private FileChannel channel;
+    private int segment;
+    private long segmentSize;
+    private int firstSegment;
+    private long nextId;
+    private long lastFlushAt;
+
+    @PostConstruct
+    void open() throws IOException {
+        directory = Path.of(storagePath);
+        Files.createDirectories(directory);
+
+        List<Integer> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            recover(segments.get(i), i == segments.size() - 1);
+        }
+        firstSegment = segments.isEmpty() ? 1 : segments.get(0);
+        segment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        openSegment(segment);
+        logger.info("Dev mailbox at {} holds {} emails in {} segments", directory.toAbsolutePath(), index.size(),
+                Math.max(1, segments.size()));
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        synchronized (this) {
+            flushBuffer();
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes out buffered records, so the last ones of a burst do not wait for the next append.
+     */
+    public synchronized void flush() {
+        try {
+            flushBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush dev mailbox", e);
+        }
+    }
+
+    public synchronized void append(String type, String to, String subject, String body) {
+        LocalDateTime receivedAt = LocalDateTime.now();
+        type = headerValue(type);
+        to = headerValue(to);
+        subject = headerValue(subject);
+        String payloadText = "Date: " + receivedAt + "\n" +
+                "Type: " + type + "\n" +
+                "To: " + to + "\n" +
+                "Subject: " + subject + "\n" +
+                "\n" + body;
+        byte[] payload = payloadText.getBytes(StandardCharsets.UTF_8);
+
+        try {
+            if (segmentSize > 0 && segmentSize + RECORD_HEADER_BYTES + payload.length > segmentBytes) {
+                rotate();
+            }
+            long offset = segmentSize;
+            write(payload);
+            segmentSize += RECORD_HEADER_BYTES + payload.length;
+            index.add(new Entry(nextId++, segment, offset, payload.length, receivedAt, type, to, subject));
+
+            long now = System.currentTimeMillis();
+            if (now - lastFlushAt >= FLUSH_INTERVAL_MS) {
+                flushBuffer();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to dev mailbox", e);
+        }
+    }
+
+    /**
+     * Newest matching entries first. The query matches type, recipient or subject, case-insensitively.
+     */
+    public synchronized List<Entry> search(String query, int limit) {
+        String needle = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        List<Entry> matches = new ArrayList<>();
+        for (int i = index.size() - 1; i >= 0 && matches.size() < limit; i--) {
+            Entry entry = index.get(i);
+            if (needle.isEmpty()
+                    || entry.type().toLowerCase(Locale.ROOT).contains(needle)
+                    || entry.to().toLowerCase(Locale.ROOT).contains(needle)
+                    || entry.subject().toLowerCase(Locale.ROOT).contains(needle)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
+    public synchronized Optional<Entry> find(long id) {
+        if (index.isEmpty()) {
+            return Optional.empty();
+        }
+        // Ids are contiguous, so the position follows from the oldest retained id
+        long position = id - index.get(0).id();
+        if (position < 0 || position >= index.size()) {
+            return Optional.empty();
+        }
+        return Optional.of(index.get((int) position));
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * The stored text of an entry, or empty once rotation has dropped its segment. The segment is
+     * opened under the lock rotation holds, so it cannot be deleted between the check and the open;
+     * the open channel keeps reading even if the file is deleted afterwards.
+     */
+    public Optional<String> read(Entry entry) throws IOException {
+        FileChannel opened;
+        synchronized (this) {
+            if (entry.segment() < firstSegment) {
+                return Optional.empty();
+            }
+            if (entry.segment() == segment) {
+                flushBuffer();
+            }
+            opened = FileChannel.open(segmentPath(entry.segment()), StandardOpenOption.READ);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(entry.payloadLength());
+        try (FileChannel reader = opened) {
+            long position = entry.offset() + RECORD_HEADER_BYTES;
+            while (payload.hasRemaining()) {
+                if (reader.read(payload, position + payload.position()) < 0) {
+                    throw new IOException("Mailbox record " + entry.id() + " is truncated");
+                }
+            }
+        }
+        return Optional.of(new String(payload.array(), StandardCharsets.UTF_8));
+    }
+
+    private void write(byte[] payload) throws IOException {
+        if (writeBuffer.remaining() < RECORD_HEADER_BYTES + payload.length) {
+            flushBuffer();
+        }
+        if (writeBuffer.remaining() < RECORD_HEADER_BYTES + payload.length) {
+            // Larger than the whole buffer; write it straight through
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+            record.putInt(MAGIC).putInt(payload.length).put(payload).flip();
+            writeFully(record);
+            return;
+        }
+        writeBuffer.putInt(MAGIC).putInt(payload.length).put(payload);
+    }
+
+    private void flushBuffer() throws IOException {
+        if (writeBuffer.position() == 0) {
+            return;
+        }
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+        lastFlushAt = System.currentTimeMillis();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void rotate() throws IOException {
+        flushBuffer();
+        channel.close();
+        segment++;
+        openSegment(segment);
+
+        while (segment - firstSegment + 1 > maxSegments) {
+            int expired = firstSegment++;
+            Files.deleteIfExists(segmentPath(expired));
+            int dropped = 0;
+            while (dropped < index.size() && index.get(dropped).segment() == expired) {
+                dropped++;
+            }
+            index.subList(0, dropped).clear();
+        }
+    }
+
+    private void openSegment(int number) throws IOException {
+        channel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentSize = channel.size();
+    }
+
+    /**
+     * Indexes a segment's records. Only the newest segment can end in a torn write, which is
+     * truncated away; a bad record in an older one is corruption, left on disk for inspection.
+     */
+    private void recover(int number, boolean newest) throws IOException {
+        Path path = segmentPath(number);
+        try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = reader.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+            while (position < size) {
+                header.clear();
+                if (reader.read(header, position) < RECORD_HEADER_BYTES) {
+                    break;
+                }
+                header.flip();
+                int magic = header.getInt();
+                int length = header.getInt();
+                if (magic != MAGIC || length < 0 || position + RECORD_HEADER_BYTES + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                reader.read(payload, position + RECORD_HEADER_BYTES);
+                index.add(parseEntry(number, position, new String(payload.array(), StandardCharsets.UTF_8), length));
+                position += RECORD_HEADER_BYTES + length;
+            }
+            if (position < size && newest) {
+                logger.warn("Truncating torn record at offset {} of {}", position, path);
+                reader.truncate(position);
+            } else if (position < size) {
+                logger.warn("Skipping the rest of {} from offset {}: bad record", path, position);
+            }
+        }
+    }
+
+    private Entry parseEntry(int number, long offset, String payload, int length) {
+        LocalDateTime receivedAt = null;
+        String type = "";
+        String to = "";
+        String subject = "";
+        for (String line : payload.split("\n")) {
+            if (line.isEmpty()) {
+                break;
+            }
+            int colon = line.indexOf(": ");
+            if (colon < 0) {
+                continue;
+            }
+            String value = line.substring(colon + 2);
+            switch (line.substring(0, colon)) {
+                case "Date" -> receivedAt = LocalDateTime.parse(value);
+                case "Type" -> type = value;
+                case "To" -> to = value;
+                case "Subject" -> subject = value;
+                default -> { }
+            }
+        }
+        return new Entry(nextId++, number, offset, length, receivedAt, type, to, subject);
+    }
+
+    private static String headerValue(String value) {
+        return value == null ? "" : value.replace('\r', ' ').replace('\n', ' ');
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))
+                    .filter(number -> number.chars().allMatch(Character::isDigit) && !number.isEmpty())
+                    .map(Integer::parseInt)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,174 @@
+package com.dascribs.coreauth.service.email;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Serves the dev mailbox on its own port: {@code <web-path>?q=...} lists captured emails,
+ * newest first, and {@code <web-path>/<id>} shows one. Uses the JDK HTTP server so it stays
+ * outside the application's security chain; it binds to localhost unless web-host says otherwise.
+ */
+@Component
+@Profile("dev")
+public class DevMailboxViewer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DevMailboxViewer.class);
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    @Autowired
+    private DevMailbox mailbox;
+
+    @Value("${app.email-service.dev-storage.web-host:127.0.0.1}")
+    private String webHost;
+
+    @Value("${app.email-service.dev-storage.web-port:8081}")
+    private int webPort;
+
+    @Value("${app.email-service.dev-storage.web-path:/dev-emails}")
+    private String webPath;
+
+    private HttpServer server;
+
+    @PostConstruct
+    void start() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(webHost, webPort), 0);
+        } catch (IOException e) {
+            // A second instance on the same machine should still start
+            logger.warn("Dev mailbox viewer could not bind {}:{}: {}", webHost, webPort, e.getMessage());
+            return;
+        }
+        server.createContext(webPath, this::handle);
+        server.start();
+        logger.info("Dev mailbox viewer at http://{}:{}{}", webHost, webPort, webPath);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "text/plain", "Method not allowed");
+                return;
+            }
+
+            String rest = exchange.getRequestURI().getPath().substring(webPath.length());
+            if (rest.isEmpty() || rest.equals("/")) {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                send(exchange, 200, "text/html", renderList(params.get("q"), parseLimit(params.get("limit"))));
+                return;
+            }
+
+            Optional<DevMailbox.Entry> entry = parseId(rest.substring(1)).flatMap(mailbox::find);
+            // Rotation may drop the entry's segment between the lookup and the read
+            Optional<String> text = entry.isPresent() ? mailbox.read(entry.get()) : Optional.empty();
+            if (text.isEmpty()) {
+                send(exchange, 404, "text/plain", "No such email");
+                return;
+            }
+            send(exchange, 200, "text/plain", text.get());
+        }
+    }
+
+    private String renderList(String query, int limit) {
+        List<DevMailbox.Entry> entries = mailbox.search(query, limit);
+        StringBuilder html = new StringBuilder(1024 + entries.size() * 256);
+        html.append("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"><title>Dev mailbox</title>")
+                .append("<style>body{font-family:Arial,sans-serif;margin:20px}td,th{padding:4px 10px;text-align:left}")
+                .append("tr:nth-child(even){background:#f5f5f5}</style></head><body>")
+                .append("<h2>Dev mailbox</h2><form method=\"get\"><input name=\"q\" value=\"")
+                .append(escape(query == null ? "" : query))
+                .append("\" placeholder=\"type, recipient or subject\"> <button>Search</button></form>")
+                .append("<p>").append(entries.size()).append(" of ").append(mailbox.size()).append(" emails</p>")
+                .append("<table><tr><th>#</th><th>Received</th><th>Type</th><th>To</th><th>Subject</th></tr>");
+        for (DevMailbox.Entry entry : entries) {
+            html.append("<tr><td><a href=\"").append(escape(webPath)).append('/').append(entry.id()).append("\">")
+                    .append(entry.id()).append("</a></td><td>").append(entry.receivedAt())
+                    .append("</td><td>").append(escape(entry.type()))
+                    .append("</td><td>").append(escape(entry.to()))
+                    .append("</td><td>").append(escape(entry.subject()))
+                    .append("</td></tr>");
+        }
+        return html.append("</table></body></html>").toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int parseLimit(String value) {
+        try {
+            return value == null ? DEFAULT_LIMIT : Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(value)));
+        } catch (NumberFormatException e) {
+            return DEFAULT_LIMIT;
+        }
+    }
+
+    private static Optional<Long> parseId(String value) {
+        try {
+            return Optional.of(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> escaped.append("&amp;");
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '"' -> escaped.append("&quot;");
+                case '\'' -> escaped.append("&#39;");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
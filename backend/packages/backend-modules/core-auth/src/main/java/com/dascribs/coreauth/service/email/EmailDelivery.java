@@ -0,0 +1,16 @@
+package com.dascribs.coreauth.service.email;
+
+import com.dascribs.coreauth.entity.user.User;
+
+import java.util.List;
+
+/**
+ * What the outbox dispatcher hands messages to: the profile's EmailService implementation, plus
+ * the digest that only exists at delivery time, when held notifications to one address are merged.
+ */
+public interface EmailDelivery extends EmailService {
+
+    record DigestItem(String title, String body) {}
+
+    void sendNotificationDigest(User user, String to, List<DigestItem> items);
+}
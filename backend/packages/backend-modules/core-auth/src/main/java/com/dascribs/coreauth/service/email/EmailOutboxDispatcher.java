@@ -0,0 +1,437 @@
+package com.dascribs.coreauth.service.email;
+
+import com.dascribs.coreauth.entity.email.EmailOutboxMessage;
+import com.dascribs.coreauth.entity.email.EmailOutboxMessage.EmailType;
+import com.dascribs.coreauth.entity.email.EmailSuppression;
+import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.coreauth.repository.EmailOutboxRepository;
+import com.dascribs.coreauth.repository.NotificationBroadcastRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the email outbox. A single poller claims due messages and hands each one to a virtual
+ * thread; a semaphore caps how many SMTP conversations run at once. Failed messages are retried
+ * with exponential backoff and dead-lettered once they run out of attempts.
+ *
+ * <p>Claiming pushes a message's next_attempt_at out by a lease, so a message held by a node that
+ * dies is picked up again once the lease expires. Each node runs its own dispatcher.
+ */
+@Service
+public class EmailOutboxDispatcher {
+
+    public static final String DELIVERY = "emailDelivery";
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final int BROADCAST_CACHE_SIZE = 64;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private NotificationBroadcastRepository broadcastRepository;
+
+    @Autowired
+    private EmailSuppressionList suppressionList;
+
+    @Autowired
+    private OutboxSecretCipher secretCipher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier(DELIVERY)
+    private EmailDelivery delivery;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.email.outbox.max-concurrency:8}")
+    private int maxConcurrency;
+
+    @Value("${app.email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.email.outbox.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    @Value("${app.email.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${app.email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.email.outbox.initial-backoff-seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${app.email.outbox.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    @Value("${app.email.digest.max-items:20}")
+    private int maxDigestItems;
+
+    @Value("${app.email.digest.window-seconds:300}")
+    private long digestWindowSeconds;
+
+    // Broadcast content is immutable and shared by every recipient, so it is read once per node
+    private final Map<Long, NotificationBroadcastRepository.Content> broadcasts =
+            new LinkedHashMap<>(BROADCAST_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, NotificationBroadcastRepository.Content> eldest) {
+                    return size() > BROADCAST_CACHE_SIZE;
+                }
+            };
+
+    private final Object signal = new Object();
+    private boolean wakeUpRequested;
+    private volatile boolean running;
+
+    private TransactionTemplate transactionTemplate;
+    private Semaphore permits;
+    private ExecutorService senders;
+    private Thread poller;
+
+    private Counter deliveredCounter;
+    private Counter retriedCounter;
+    private Counter deadCounter;
+    private Counter suppressedCounter;
+    private Counter digestCounter;
+    private Counter digestMergedCounter;
+    private Timer deliveryTimer;
+
+    @PostConstruct
+    void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        permits = new Semaphore(maxConcurrency);
+        senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("email-outbox-", 0).factory());
+
+        deliveredCounter = meterRegistry.counter("email.outbox.delivered");
+        retriedCounter = meterRegistry.counter("email.outbox.retried");
+        deadCounter = meterRegistry.counter("email.outbox.dead");
+        suppressedCounter = meterRegistry.counter("email.outbox.suppressed");
+        digestCounter = meterRegistry.counter("email.outbox.digests");
+        digestMergedCounter = meterRegistry.counter("email.outbox.digest.merged");
+        deliveryTimer = meterRegistry.timer("email.outbox.delivery");
+        Gauge.builder("email.outbox.in_flight", () -> maxConcurrency - permits.availablePermits())
+                .register(meterRegistry);
+
+        running = true;
+        poller = Thread.ofPlatform().name("email-outbox-poller").daemon().start(this::pollLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        wakeUp();
+        poller.join(TimeUnit.SECONDS.toMillis(5));
+        // Messages still in flight after this are retried by whichever node claims them next
+        senders.shutdown();
+        senders.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Wakes the poller once the current transaction commits, or right away outside one.
+     */
+    public void wakeUpAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            wakeUp();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeUp();
+            }
+        });
+    }
+
+    public void wakeUp() {
+        synchronized (signal) {
+            wakeUpRequested = true;
+            signal.notifyAll();
+        }
+    }
+
+    private void pollLoop() {
+        while (running) {
+            try {
+                int dispatched = dispatchDue();
+                if (dispatched == 0 || permits.availablePermits() == 0) {
+                    awaitWakeUp();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.warn("Email outbox poll failed: {}", e.getMessage());
+                try {
+                    awaitWakeUp();
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void awaitWakeUp() throws InterruptedException {
+        synchronized (signal) {
+            if (!wakeUpRequested && running) {
+                signal.wait(pollIntervalMs);
+            }
+            wakeUpRequested = false;
+        }
+    }
+
+    private int dispatchDue() throws InterruptedException {
+        int free = permits.availablePermits();
+        if (free == 0) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+        List<List<EmailOutboxMessage>> claimed = transactionTemplate.execute(status -> {
+            List<EmailOutboxMessage> due = outboxRepository.lockDue(now, Math.min(free, batchSize));
+            due.forEach(message -> message.claim(leaseUntil));
+            return collectDigests(due, now.plusSeconds(digestWindowSeconds), leaseUntil);
+        });
+
+        for (List<EmailOutboxMessage> messages : claimed) {
+            permits.acquire();
+            senders.execute(() -> {
+                try {
+                    deliver(messages);
+                } finally {
+                    permits.release();
+                    wakeUp();
+                }
+            });
+        }
+        return claimed.size();
+    }
+
+    /**
+     * Splits claimed messages into deliveries. A message held for a digest brings along the other
+     * messages held for the same address that fall due within one window of now; everything else
+     * goes alone. Broadcast rows paced for a later slot stay where the pacer put them.
+     */
+    private List<List<EmailOutboxMessage>> collectDigests(List<EmailOutboxMessage> due, LocalDateTime heldUntil,
+                                                          LocalDateTime leaseUntil) {
+        List<List<EmailOutboxMessage>> deliveries = new ArrayList<>(due.size());
+        Map<String, List<EmailOutboxMessage>> digests = new HashMap<>();
+        Set<Long> taken = new HashSet<>();
+
+        for (EmailOutboxMessage message : due) {
+            if (!taken.add(message.getId())) {
+                continue;
+            }
+            String digestKey = message.getDigestKey();
+            if (digestKey == null) {
+                deliveries.add(List.of(message));
+                continue;
+            }
+            List<EmailOutboxMessage> digest = digests.get(digestKey);
+            if (digest == null) {
+                digest = new ArrayList<>();
+                digests.put(digestKey, digest);
+                deliveries.add(digest);
+                digest.add(message);
+                for (EmailOutboxMessage held : outboxRepository.lockDigest(digestKey, heldUntil, maxDigestItems)) {
+                    if (taken.add(held.getId())) {
+                        held.claim(leaseUntil);
+                        digest.add(held);
+                    }
+                }
+            } else {
+                digest.add(message);
+            }
+        }
+        return deliveries;
+    }
+
+    private void deliver(List<EmailOutboxMessage> messages) {
+        EmailOutboxMessage first = messages.get(0);
+        Optional<EmailSuppression.Reason> suppressed = suppressionList.check(first.deliveryAddress());
+        if (suppressed.isPresent() && !(suppressed.get() == EmailSuppression.Reason.COMPLAINT
+                && requestedByRecipient(first.getEmailType()))) {
+            deleteDelivered(messages);
+            suppressedCounter.increment(messages.size());
+            logger.info("{} email(s) to {} not sent: address is suppressed ({})",
+                    messages.size(), first.deliveryAddress(), suppressed.get());
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            if (messages.size() == 1) {
+                send(first);
+            } else {
+                sendDigest(messages);
+            }
+        } catch (Exception e) {
+            deliveryTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            // Each message backs off on its own; lockDigest only gathers ones never attempted
+            messages.forEach(message -> recordFailure(message, e));
+            return;
+        }
+        deliveryTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+
+        // If this fails the message is sent again after the lease; SMTP is at-least-once anyway
+        deleteDelivered(messages);
+        deliveredCounter.increment(messages.size());
+        if (messages.size() > 1) {
+            digestCounter.increment();
+            digestMergedCounter.increment(messages.size() - 1);
+        }
+    }
+
+    private void deleteDelivered(List<EmailOutboxMessage> messages) {
+        transactionTemplate.executeWithoutResult(status ->
+                messages.forEach(message -> outboxRepository.deleteDelivered(message.getId())));
+    }
+
+    private void recordFailure(EmailOutboxMessage message, Exception e) {
+        String error = truncate(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+
+        if (message.getAttempts() >= maxAttempts) {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.markDead(message.getId(), error));
+            deadCounter.increment();
+            logger.error("Email {} ({}) to {} dead-lettered after {} attempts: {}",
+                    message.getId(), message.getEmailType(), message.getRecipientEmail(), message.getAttempts(), error);
+            return;
+        }
+
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plusNanos(backoffMillis(message.getAttempts()) * 1_000_000);
+        transactionTemplate.executeWithoutResult(status ->
+                outboxRepository.reschedule(message.getId(), nextAttemptAt, error));
+        retriedCounter.increment();
+        logger.warn("Email {} ({}) to {} failed on attempt {}, retrying at {}: {}",
+                message.getId(), message.getEmailType(), message.getRecipientEmail(), message.getAttempts(),
+                nextAttemptAt, error);
+    }
+
+    /**
+     * Exponential backoff from the initial delay, capped, with +/-20% jitter so a relay outage
+     * does not bring every retry back at the same moment.
+     */
+    private long backoffMillis(int attempts) {
+        long base = initialBackoffSeconds * 1000L << Math.min(attempts - 1, 20);
+        long capped = Math.min(base, maxBackoffSeconds * 1000L);
+        return (long) (capped * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+    }
+
+    private void send(EmailOutboxMessage message) {
+        User user = recipient(message);
+        String secret = secretCipher.decrypt(message.getSecret());
+
+        switch (message.getEmailType()) {
+            case PASSWORD_RESET -> delivery.sendPasswordResetEmail(user, secret);
+            case PASSWORD_CHANGED -> delivery.sendPasswordChangedNotification(user);
+            case WELCOME -> delivery.sendWelcomeEmail(user, secret);
+            case VERIFICATION -> delivery.sendVerificationEmail(user, secret);
+            case EMAIL_CHANGE_VERIFICATION ->
+                    delivery.sendEmailChangeVerification(user, message.getAddress(), secret);
+            case EMAIL_CHANGE_NOTIFICATION -> delivery.sendEmailChangeNotification(user, message.getAddress());
+            case EMAIL_CHANGE_CONFIRMATION -> delivery.sendEmailChangeConfirmation(user, message.getAddress());
+            case USER_INVITATION -> delivery.sendUserInvitationEmail(user, secret);
+            case TENANT_NOTIFICATION -> {
+                Optional<NotificationBroadcastRepository.Content> content = broadcastContent(message.getBroadcastId());
+                if (content.isEmpty()) {
+                    // The broadcast went with its tenant; nothing left to send
+                    logger.warn("Dropping email {}: broadcast {} no longer exists", message.getId(), message.getBroadcastId());
+                    return;
+                }
+                delivery.sendTenantNotification(user, content.get().getSubject(), content.get().getMessage());
+            }
+        }
+    }
+
+    private void sendDigest(List<EmailOutboxMessage> messages) {
+        List<EmailDelivery.DigestItem> items = new ArrayList<>(messages.size());
+        for (EmailOutboxMessage message : messages) {
+            switch (message.getEmailType()) {
+                case TENANT_NOTIFICATION -> broadcastContent(message.getBroadcastId()).ifPresent(content ->
+                        items.add(new EmailDelivery.DigestItem(content.getSubject(), content.getMessage())));
+                default -> throw new IllegalStateException(message.getEmailType() + " cannot be part of a digest");
+            }
+        }
+        if (!items.isEmpty()) {
+            delivery.sendNotificationDigest(recipient(messages.get(0)), messages.get(0).deliveryAddress(), items);
+        }
+    }
+
+    // The recipient as copied at enqueue time; delivery never reloads the user
+    private static User recipient(EmailOutboxMessage message) {
+        User user = new User();
+        user.setId(message.getUserId());
+        user.setTenantId(message.getTenantId());
+        user.setFullName(message.getRecipientName());
+        user.setEmail(message.getRecipientEmail());
+        return user;
+    }
+
+    private Optional<NotificationBroadcastRepository.Content> broadcastContent(Long broadcastId) {
+        synchronized (broadcasts) {
+            NotificationBroadcastRepository.Content cached = broadcasts.get(broadcastId);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        Optional<NotificationBroadcastRepository.Content> content = broadcastRepository.findContentById(broadcastId);
+        content.ifPresent(loaded -> {
+            synchronized (broadcasts) {
+                broadcasts.put(broadcastId, loaded);
+            }
+        });
+        return content;
+    }
+
+    /**
+     * Emails the recipient has just asked for. A past spam complaint does not stop these,
+     * a hard bounce does since the mailbox does not exist.
+     */
+    private static boolean requestedByRecipient(EmailType type) {
+        return type == EmailType.PASSWORD_RESET || type == EmailType.VERIFICATION
+                || type == EmailType.EMAIL_CHANGE_VERIFICATION;
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return "Unknown error";
+        }
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -4,25 +4,28 @@ import com.dascribs.coreauth.entity.user.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Component;
 
+import jakarta.activation.DataHandler;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeBodyPart;
 import jakarta.mail.internet.MimeMessage;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-// Main interface
+// Main interface. Callers get OutboxEmailService; the profile implementations below deliver
+// what the outbox dispatcher hands them, through EmailDelivery
 public interface EmailService {
     void sendPasswordResetEmail(User user, String resetToken);
     void sendPasswordChangedNotification(User user);
@@ -31,12 +34,16 @@ public interface EmailService {
     void sendEmailChangeVerification(User user, String newEmail, String verificationToken);
     void sendEmailChangeNotification(User user, String oldEmail);
     void sendEmailChangeConfirmation(User user, String newEmail);
+    void sendUserInvitationEmail(User user, String inviteToken);
+    void sendTenantNotification(User user, String subject, String message);
 }
 
 // ==================== PRODUCTION ====================
+// Delivery failures are rethrown so the outbox dispatcher can retry them
 @Component
 @Profile("production")
-class ProductionEmailService implements EmailService {
+@Qualifier(EmailOutboxDispatcher.DELIVERY)
+class ProductionEmailService implements EmailDelivery {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductionEmailService.class);
 
@@ -49,503 +56,143 @@ class ProductionEmailService implements EmailService {
     @Autowired(required = false)
     private JavaMailSender mailSender;
 
-    @Override
-    public void sendPasswordResetEmail(User user, String resetToken) {
-        if (mailSender == null) {
-            logger.error("JavaMailSender not configured for production! Check your SMTP settings.");
-            return;
-        }
-
-        try {
-            String resetLink = frontendUrl + "/reset-password?token=" + resetToken;
-
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(user.getEmail());
-            helper.setFrom(fromEmail, "Dascribs");
-            helper.setSubject("Password Reset Request - Dascribs");
+    @Autowired
+    private SmtpConnectionPool smtpConnectionPool;
 
-            String emailContent = buildPasswordResetEmail(user.getFullName(), resetLink);
-            helper.setText(emailContent, true);
+    @Autowired
+    private EmailTemplateEngine templateEngine;
 
-            mailSender.send(message);
-
-            logger.info("✅ Password reset email sent to: {}", user.getEmail());
-
-        } catch (Exception e) {
-            logger.error("❌ Failed to send password reset email to {}: {}", user.getEmail(), e.getMessage());
-        }
+    @Override
+    public void sendPasswordResetEmail(User user, String resetToken) {
+        String resetLink = frontendUrl + "/reset-password?token=" + resetToken;
+        send(user, user.getEmail(), "Password reset email",
+                EmailTemplate.PASSWORD_RESET, user.getFullName(), resetLink);
     }
 
     @Override
     public void sendPasswordChangedNotification(User user) {
-        if (mailSender == null) {
-            logger.error("JavaMailSender not configured for production!");
-            return;
-        }
-
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(user.getEmail());
-            helper.setFrom(fromEmail, "DaScribs");
-            helper.setSubject("Password Changed - DaScribs");
-
-            String emailContent = buildPasswordChangedEmail(user.getFullName());
-            helper.setText(emailContent, true);
-
-            mailSender.send(message);
-
-            logger.info("✅ Password change notification sent to: {}", user.getEmail());
-
-        } catch (Exception e) {
-            logger.error("❌ Failed to send password change notification to {}: {}", user.getEmail(), e.getMessage());
-        }
+        send(user, user.getEmail(), "Password change notification",
+                EmailTemplate.PASSWORD_CHANGED, user.getFullName());
     }
 
     @Override
     public void sendWelcomeEmail(User user, String temporaryPassword) {
-        if (mailSender == null) {
-            logger.error("JavaMailSender not configured for production!");
-            return;
-        }
-
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(user.getEmail());
-            helper.setFrom(fromEmail, "DaScribs");
-            helper.setSubject("Welcome to DaScribs!");
-
-            String emailContent = buildWelcomeEmail(user.getFullName(), user.getEmail(), temporaryPassword);
-            helper.setText(emailContent, true);
-
-            mailSender.send(message);
-
-            logger.info("✅ Welcome email sent to: {}", user.getEmail());
-
-        } catch (Exception e) {
-            logger.error("❌ Failed to send welcome email to {}: {}", user.getEmail(), e.getMessage());
-        }
+        send(user, user.getEmail(), "Welcome email",
+                EmailTemplate.WELCOME, user.getFullName(), user.getEmail(), temporaryPassword);
     }
 
     @Override
     public void sendVerificationEmail(User user, String verificationToken) {
-        if (mailSender == null) {
-            logger.error("JavaMailSender not configured for production!");
-            return;
-        }
-
-        try {
-            String verificationLink = frontendUrl + "/verify-email?token=" + verificationToken;
-
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(user.getEmail());
-            helper.setFrom(fromEmail, "DaScribs");
-            helper.setSubject("Verify Your Email - DaScribs");
-
-            String emailContent = buildVerificationEmail(user.getFullName(), verificationLink);
-            helper.setText(emailContent, true);
-
-            mailSender.send(message);
-
-            logger.info("✅ Verification email sent to: {}", user.getEmail());
-
-        } catch (Exception e) {
-            logger.error("❌ Failed to send verification email to {}: {}", user.getEmail(), e.getMessage());
-        }
+        String verificationLink = frontendUrl + "/verify-email?token=" + verificationToken;
+        send(user, user.getEmail(), "Verification email",
+                EmailTemplate.EMAIL_VERIFICATION, user.getFullName(), verificationLink);
     }
 
     @Override
     public void sendEmailChangeVerification(User user, String newEmail, String verificationToken) {
-        if (mailSender == null) {
-            logger.error("JavaMailSender not configured for production!");
-            return;
-        }
-
-        try {
-            String verificationLink = frontendUrl + "/verify-email-change?token=" + verificationToken;
-
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(newEmail);
-            helper.setFrom(fromEmail, "DaScribs");
-            helper.setSubject("Confirm Your Email Change - DaScribs");
-
-            String emailContent = buildEmailChangeVerificationEmail(user.getFullName(), newEmail, verificationLink);
-            helper.setText(emailContent, true);
-
-            mailSender.send(message);
-
-            logger.info("✅ Email change verification sent to: {}", newEmail);
-
-        } catch (Exception e) {
-            logger.error("❌ Failed to send email change verification to {}: {}", newEmail, e.getMessage());
-        }
+        String verificationLink = frontendUrl + "/verify-email-change?token=" + verificationToken;
+        send(user, newEmail, "Email change verification",
+                EmailTemplate.EMAIL_CHANGE_VERIFICATION, user.getFullName(), newEmail, verificationLink);
     }
 
     @Override
     public void sendEmailChangeNotification(User user, String oldEmail) {
-        if (mailSender == null) {
-            logger.error("JavaMailSender not configured for production!");
-            return;
-        }
-
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(oldEmail);
-            helper.setFrom(fromEmail, "DaScribs");
-            helper.setSubject("Email Address Changed - DaScribs");
+        send(user, oldEmail, "Email change notification",
+                EmailTemplate.EMAIL_CHANGE_NOTIFICATION, user.getFullName(), user.getEmail());
+    }
 
-            String emailContent = buildEmailChangeNotificationEmail(user.getFullName(), user.getEmail());
-            helper.setText(emailContent, true);
+    @Override
+    public void sendEmailChangeConfirmation(User user, String newEmail) {
+        send(user, newEmail, "Email change confirmation",
+                EmailTemplate.EMAIL_CHANGE_CONFIRMATION, user.getFullName(), newEmail);
+    }
 
-            mailSender.send(message);
+    @Override
+    public void sendUserInvitationEmail(User user, String inviteToken) {
+        String inviteLink = frontendUrl + "/reset-password?token=" + inviteToken;
+        send(user, user.getEmail(), "Invitation email",
+                EmailTemplate.USER_INVITATION, user.getFullName(), user.getEmail(), inviteLink);
+    }
 
-            logger.info("✅ Email change notification sent to old email: {}", oldEmail);
+    @Override
+    public void sendTenantNotification(User user, String subject, String message) {
+        send(user, user.getEmail(), "Tenant notification", subject,
+                EmailTemplate.TENANT_NOTIFICATION, user.getFullName(), subject, message);
+    }
 
-        } catch (Exception e) {
-            logger.error("❌ Failed to send email change notification to {}: {}", oldEmail, e.getMessage());
+    @Override
+    public void sendNotificationDigest(User user, String to, List<DigestItem> items) {
+        // Each item is rendered (and escaped) on its own, then inserted unescaped into the digest
+        StringBuilder html = new StringBuilder(items.size() * 512);
+        StringBuilder text = new StringBuilder(items.size() * 256);
+        for (DigestItem item : items) {
+            EmailTemplateEngine.RenderedEmail rendered = templateEngine.render(
+                    EmailTemplate.DIGEST_ITEM, user.getTenantId(), item.title(), item.body());
+            html.append(new String(rendered.html(), StandardCharsets.UTF_8));
+            text.append(new String(rendered.text(), StandardCharsets.UTF_8));
         }
+        send(user, to, "Notification digest", "You have " + items.size() + " updates from DaScribs",
+                EmailTemplate.NOTIFICATION_DIGEST, user.getFullName(), String.valueOf(items.size()),
+                html.toString(), text.toString());
     }
 
-    @Override
-    public void sendEmailChangeConfirmation(User user, String newEmail) {
+    private void send(User user, String to, String description, EmailTemplate template, String... values) {
+        send(user, to, description, null, template, values);
+    }
+
+    // A null subject keeps the template's own
+    private void send(User user, String to, String description, String subject, EmailTemplate template, String... values) {
         if (mailSender == null) {
-            logger.error("JavaMailSender not configured for production!");
-            return;
+            logger.error("JavaMailSender not configured for production! Check your SMTP settings.");
+            throw new IllegalStateException("JavaMailSender is not configured");
         }
 
         try {
+            EmailTemplateEngine.RenderedEmail rendered = templateEngine.render(template, user.getTenantId(), values);
+
             MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+            MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
 
-            helper.setTo(newEmail);
+            helper.setTo(to);
             helper.setFrom(fromEmail, "DaScribs");
-            helper.setSubject("Email Change Confirmed - DaScribs");
+            helper.setSubject(subject != null ? subject : rendered.subject());
 
-            String emailContent = buildEmailChangeConfirmationEmail(user.getFullName(), newEmail);
-            helper.setText(emailContent, true);
+            // Plain text first: clients show the last alternative they understand
+            MimeMultipart alternatives = new MimeMultipart("alternative");
+            alternatives.addBodyPart(bodyPart(rendered.text(), "text/plain; charset=UTF-8"));
+            alternatives.addBodyPart(bodyPart(rendered.html(), "text/html; charset=UTF-8"));
+            message.setContent(alternatives);
 
-            mailSender.send(message);
+            smtpConnectionPool.send(message);
 
-            logger.info("✅ Email change confirmation sent to: {}", newEmail);
+            logger.info("✅ {} sent to: {}", description, to);
 
         } catch (Exception e) {
-            logger.error("❌ Failed to send email change confirmation to {}: {}", newEmail, e.getMessage());
+            logger.error("❌ Failed to send {} to {}: {}", description, to, e.getMessage());
+            throw new IllegalStateException("Email delivery failed", e);
         }
     }
 
-    // Email template methods
-    private String buildVerificationEmail(String userName, String verificationLink) {
-        return """
-        <!DOCTYPE html>
-        <html>
-        <head>
-            <meta charset="UTF-8">
-            <style>
-                body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; margin: 0; padding: 20px; }
-                .container { max-width: 600px; margin: 0 auto; background: white; padding: 30px; border-radius: 8px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
-                .button { background-color: #28a745; color: white; padding: 12px 30px; text-decoration: none; border-radius: 5px; display: inline-block; font-weight: bold; }
-                .footer { margin-top: 30px; padding-top: 20px; border-top: 1px solid #eee; color: #666; font-size: 14px; }
-                .code { background: #f8f9fa; padding: 10px; border-radius: 4px; font-family: monospace; margin: 10px 0; }
-            </style>
-        </head>
-        <body>
-            <div class="container">
-                <h2>✅ Verify Your Email Address</h2>
-                <p>Hello <strong>%s</strong>,</p>
-                <p>Welcome to DaScribs! Please verify your email address to activate your account and access all features.</p>
-        
-                <p style="text-align: center; margin: 30px 0;">
-                    <a href="%s" class="button">Verify Email Address</a>
-                </p>
-        
-                <p>Or copy and paste this link in your browser:</p>
-                <div class="code">%s</div>
-       
-                <p><strong>⏰ This link will expire in 24 hours</strong> for security reasons.</p>
-        
-                <div class="footer">
-                    <p>Best regards,<br><strong>DaScribs Team</strong></p>
-                </div>
-            </div>
-        </body>
-        </html>
-        """.formatted(userName, verificationLink, verificationLink);
-    }
-
-    private String buildEmailChangeVerificationEmail(String userName, String newEmail, String verificationLink) {
-        return """
-        <!DOCTYPE html>
-        <html>
-        <head>
-            <meta charset="UTF-8">
-            <style>
-                body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; margin: 0; padding: 20px; }
-                .container { max-width: 600px; margin: 0 auto; background: white; padding: 30px; border-radius: 8px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
-                .button { background-color: #007bff; color: white; padding: 12px 30px; text-decoration: none; border-radius: 5px; display: inline-block; font-weight: bold; }
-                .footer { margin-top: 30px; padding-top: 20px; border-top: 1px solid #eee; color: #666; font-size: 14px; }
-                .alert { background-color: #fff3cd; padding: 15px; border-radius: 4px; border-left: 4px solid #ffc107; margin: 20px 0; }
-            </style>
-        </head>
-        <body>
-            <div class="container">
-                <h2>📧 Confirm Your Email Change</h2>
-                <p>Hello <strong>%s</strong>,</p>
-                <p>You requested to change your email address to: <strong>%s</strong></p>
-        
-                <div class="alert">
-                    <p><strong>Important:</strong> Please confirm this change by clicking the button below.</p>
-                </div>
-        
-                <p style="text-align: center; margin: 30px 0;">
-                    <a href="%s" class="button">Confirm Email Change</a>
-                </p>
-        
-                <p><strong>⏰ This link will expire in 24 hours</strong> for security reasons.</p>
-                <p>If you didn't request this change, please ignore this email and contact our support team immediately.</p>
-        
-                <div class="footer">
-                    <p>Best regards,<br><strong>DaScribs Team</strong></p>
-                </div>
-            </div>
-        </body>
-        </html>
-        """.formatted(userName, newEmail, verificationLink);
-    }
-
-    private String buildEmailChangeNotificationEmail(String userName, String newEmail) {
-        return """
-        <!DOCTYPE html>
-        <html>
-        <head>
-            <meta charset="UTF-8">
-            <style>
-                body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; margin: 0; padding: 20px; }
-                .container { max-width: 600px; margin: 0 auto; background: white; padding: 30px; border-radius: 8px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
-                .alert { background-color: #f8d7da; padding: 15px; border-radius: 4px; border-left: 4px solid #dc3545; margin: 20px 0; }
-                .footer { margin-top: 30px; padding-top: 20px; border-top: 1px solid #eee; color: #666; font-size: 14px; }
-            </style>
-        </head>
-        <body>
-            <div class="container">
-                <h2>⚠️ Email Address Changed</h2>
-                <p>Hello <strong>%s</strong>,</p>
-        
-                <div class="alert">
-                    <p><strong>Your DaScribs email address has been changed to: %s</strong></p>
-                </div>
-        
-                <p><strong>If you made this change:</strong></p>
-                <ul>
-                    <li>No further action is required</li>
-                    <li>You will now use your new email address to log in</li>
-                </ul>
-        
-                <p><strong>If you didn't make this change:</strong></p>
-                <ul>
-                    <li>Contact our support team immediately</li>
-                    <li>Secure your account by resetting your password</li>
-                </ul>
-        
-                <div class="footer">
-                    <p>Best regards,<br><strong>DaScribs Team</strong></p>
-                </div>
-            </div>
-        </body>
-        </html>
-        """.formatted(userName, newEmail);
-    }
-
-    private String buildEmailChangeConfirmationEmail(String userName, String newEmail) {
-        return """
-        <!DOCTYPE html>
-        <html>
-        <head>
-            <meta charset="UTF-8">
-            <style>
-                body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; margin: 0; padding: 20px; }
-                .container { max-width: 600px; margin: 0 auto; background: white; padding: 30px; border-radius: 8px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
-                .success { background-color: #d4edda; padding: 15px; border-radius: 4px; border-left: 4px solid #28a745; margin: 20px 0; }
-                .footer { margin-top: 30px; padding-top: 20px; border-top: 1px solid #eee; color: #666; font-size: 14px; }
-            </style>
-        </head>
-        <body>
-            <div class="container">
-                <h2>✅ Email Change Confirmed</h2>
-                <p>Hello <strong>%s</strong>,</p>
-        
-                <div class="success">
-                    <p><strong>Your email address has been successfully changed to: %s</strong></p>
-                </div>
-        
-                <p><strong>What's next?</strong></p>
-                <ul>
-                    <li>You will now use this email address to log in to DaScribs</li>
-                    <li>All future communications will be sent to this address</li>
-                    <li>Your account settings and data remain unchanged</li>
-                </ul>
-        
-                <p>If you have any questions or need assistance, please contact our support team.</p>
-        
-                <div class="footer">
-                    <p>Best regards,<br><strong>DaScribs Team</strong></p>
-                </div>
-            </div>
-        </body>
-        </html>
-        """.formatted(userName, newEmail);
-    }
-
-    private String buildPasswordResetEmail(String userName, String resetLink) {
-        return """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; margin: 0; padding: 20px; }
-                    .container { max-width: 600px; margin: 0 auto; background: white; padding: 30px; border-radius: 8px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
-                    .button { background-color: #007bff; color: white; padding: 12px 30px; text-decoration: none; border-radius: 5px; display: inline-block; font-weight: bold; }
-                    .footer { margin-top: 30px; padding-top: 20px; border-top: 1px solid #eee; color: #666; font-size: 14px; }
-                    .code { background: #f8f9fa; padding: 10px; border-radius: 4px; font-family: monospace; margin: 10px 0; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <h2>🔐 Password Reset Request</h2>
-                    <p>Hello <strong>%s</strong>,</p>
-                    <p>You requested to reset your password. Click the button below to create a new password:</p>
-                    <p style="text-align: center; margin: 30px 0;">
-                        <a href="%s" class="button">Reset Password</a>
-                    </p>
-                    <p>Or copy and paste this link in your browser:</p>
-                    <div class="code">%s</div>
-                    <p><strong>⏰ This link will expire in 1 hour</strong> for security reasons.</p>
-                    <p>If you didn't request this, please ignore this email and your password will remain unchanged.</p>
-                    <div class="footer">
-                        <p>Best regards,<br><strong>DaScribs Team</strong></p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """.formatted(userName, resetLink, resetLink);
-    }
-
-    private String buildPasswordChangedEmail(String userName) {
-        return """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; margin: 0; padding: 20px; }
-                    .container { max-width: 600px; margin: 0 auto; background: white; padding: 30px; border-radius: 8px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
-                    .alert { background-color: #e8f5e8; padding: 15px; border-left: 4px solid #28a745; border-radius: 4px; }
-                    .footer { margin-top: 30px; padding-top: 20px; border-top: 1px solid #eee; color: #666; font-size: 14px; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <h2>✅ Password Changed Successfully</h2>
-                    <p>Hello <strong>%s</strong>,</p>
-            
-                    <div class="alert">
-                        <p><strong>Your DaScribs password was recently changed.</strong></p>
-                    </div>
-            
-                    <p><strong>If you made this change:</strong></p>
-                    <ul>
-                        <li>No further action is required</li>
-                        <li>All your existing sessions have been logged out for security</li>
-                    </ul>
-            
-                    <p><strong>If you didn't make this change:</strong></p>
-                    <ul>
-                        <li>Immediately reset your password using the 'Forgot Password' feature</li>
-                        <li>Contact our support team if you need assistance</li>
-                    </ul>
-            
-                    <div class="footer">
-                        <p>Best regards,<br><strong>DaScribs Team</strong></p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """.formatted(userName);
-    }
-
-    private String buildWelcomeEmail(String userName, String userEmail, String temporaryPassword) {
-        return """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; margin: 0; padding: 20px; }
-                    .container { max-width: 600px; margin: 0 auto; background: white; padding: 30px; border-radius: 8px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
-                    .credentials { background-color: #f8f9fa; padding: 20px; border-radius: 4px; border-left: 4px solid #007bff; margin: 20px 0; }
-                    .footer { margin-top: 30px; padding-top: 20px; border-top: 1px solid #eee; color: #666; font-size: 14px; }
-                    .warning { background-color: #fff3cd; padding: 15px; border-radius: 4px; border-left: 4px solid #ffc107; margin: 20px 0; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <h2>🎉 Welcome to DaScribs!</h2>
-                    <p>Hello <strong>%s</strong>,</p>
-                    <p>Your account has been successfully created. Welcome to DaScribs Real Estate CRM!</p>
-           
-                    <div class="credentials">
-                        <h3>Your Login Credentials:</h3>
-                        <p><strong>Email:</strong> %s</p>
-                        <p><strong>Temporary Password:</strong> <code>%s</code></p>
-                    </div>
-            
-                    <div class="warning">
-                        <p><strong>🔒 Security Notice:</strong> For your security, please change your password immediately after first login.</p>
-                    </div>
-           
-                    <p><strong>Next steps:</strong></p>
-                    <ol>
-                        <li>Log in to your account using the credentials above</li>
-                        <li>Change your temporary password immediately</li>
-                        <li>Complete your profile information</li>
-                        <li>Explore the dashboard and features</li>
-                    </ol>
-            
-                    <div class="footer">
-                        <p>Best regards,<br><strong>DaScribs Team</strong></p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """.formatted(userName, userEmail, temporaryPassword);
+    private static MimeBodyPart bodyPart(byte[] content, String contentType) throws MessagingException {
+        MimeBodyPart part = new MimeBodyPart();
+        part.setDataHandler(new DataHandler(new ByteArrayDataSource(content, contentType)));
+        return part;
     }
 }
 
 // ==================== DEVELOPMENT ====================
 @Component
 @Profile("dev")
-class DevelopmentEmailService implements EmailService {
+@Qualifier(EmailOutboxDispatcher.DELIVERY)
+class DevelopmentEmailService implements EmailDelivery {
 
     private static final Logger logger = LoggerFactory.getLogger(DevelopmentEmailService.class);
 
     @Value("${app.frontend.url:http://localhost:3000}")
     private String frontendUrl;
 
-    @Value("${app.email-service.dev-storage.file-path:./logs/emails}")
-    private String fileStoragePath;
-
-    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    @Autowired
+    private DevMailbox mailbox;
 
     @Override
     public void sendPasswordResetEmail(User user, String resetToken) {
@@ -559,7 +206,7 @@ class DevelopmentEmailService implements EmailService {
         logger.info("Token: {}", resetToken);
         logger.info("=== END EMAIL ===");
 
-        saveEmailToFile("password-reset", user, resetToken, resetLink);
+        saveToMailbox("password-reset", user.getEmail(), "Password Reset Request - DaScribs", user, resetToken, resetLink);
     }
 
     @Override
@@ -570,7 +217,7 @@ class DevelopmentEmailService implements EmailService {
         logger.info("User: {} ({})", user.getFullName(), user.getEmail());
         logger.info("=== END EMAIL ===");
 
-        saveEmailToFile("password-changed", user, null, null);
+        saveToMailbox("password-changed", user.getEmail(), "Password Changed - DaScribs", user, null, null);
     }
 
     @Override
@@ -582,7 +229,7 @@ class DevelopmentEmailService implements EmailService {
         logger.info("Temporary Password: {}", temporaryPassword);
         logger.info("=== END EMAIL ===");
 
-        saveEmailToFile("welcome", user, temporaryPassword, null);
+        saveToMailbox("welcome", user.getEmail(), "Welcome to DaScribs!", user, temporaryPassword, null);
     }
 
     @Override
@@ -597,7 +244,7 @@ class DevelopmentEmailService implements EmailService {
         logger.info("Token: {}", verificationToken);
         logger.info("=== END EMAIL ===");
 
-        saveEmailToFile("email-verification", user, verificationToken, verificationLink);
+        saveToMailbox("email-verification", user.getEmail(), "Verify Your Email - DaScribs", user, verificationToken, verificationLink);
     }
 
     @Override
@@ -613,7 +260,7 @@ class DevelopmentEmailService implements EmailService {
         logger.info("Token: {}", verificationToken);
         logger.info("=== END EMAIL ===");
 
-        saveEmailToFile("email-change-verification", user, verificationToken, verificationLink);
+        saveToMailbox("email-change-verification", newEmail, "Confirm Your Email Change - DaScribs", user, verificationToken, verificationLink);
     }
 
     @Override
@@ -624,7 +271,7 @@ class DevelopmentEmailService implements EmailService {
         logger.info("User: {} (old: {}, new: {})", user.getFullName(), oldEmail, user.getEmail());
         logger.info("=== END EMAIL ===");
 
-        saveEmailToFile("email-change-notification", user, null, null);
+        saveToMailbox("email-change-notification", oldEmail, "Email Address Changed - DaScribs", user, null, null);
     }
 
     @Override
@@ -635,47 +282,75 @@ class DevelopmentEmailService implements EmailService {
         logger.info("User: {} ({})", user.getFullName(), newEmail);
         logger.info("=== END EMAIL ===");
 
-        saveEmailToFile("email-change-confirmation", user, null, null);
+        saveToMailbox("email-change-confirmation", newEmail, "Email Change Confirmed - DaScribs", user, null, null);
     }
 
-    private void saveEmailToFile(String emailType, User user, String tokenOrPassword, String link) {
-        try {
-            Path storageDir = Paths.get(fileStoragePath);
-            if (!Files.exists(storageDir)) {
-                Files.createDirectories(storageDir);
-            }
+    @Override
+    public void sendUserInvitationEmail(User user, String inviteToken) {
+        String inviteLink = frontendUrl + "/reset-password?token=" + inviteToken;
 
-            String timestamp = LocalDateTime.now().format(formatter);
-            String filename = String.format("%s_%s_%s.txt",
-                    emailType, user.getEmail().replace("@", "_"), timestamp);
-
-            Path filePath = storageDir.resolve(filename);
-
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath.toFile()))) {
-                writer.write("=== DA SCRIBS EMAIL (DEV MODE) ===\n");
-                writer.write("Timestamp: " + LocalDateTime.now() + "\n");
-                writer.write("Type: " + emailType + "\n");
-                writer.write("To: " + user.getEmail() + "\n");
-                writer.write("User: " + user.getFullName() + "\n");
-
-                if (tokenOrPassword != null) {
-                    if (emailType.equals("password-reset") || emailType.equals("email-verification") || emailType.equals("email-change-verification")) {
-                        writer.write("Token: " + tokenOrPassword + "\n");
-                        if (link != null) {
-                            writer.write("Link: " + link + "\n");
-                        }
-                    } else if (emailType.equals("welcome")) {
-                        writer.write("Temporary Password: " + tokenOrPassword + "\n");
-                    }
-                }
+        logger.info("=== 🎉 USER INVITATION (DEV MODE) ===");
+        logger.info("To: {}", user.getEmail());
+        logger.info("Subject: You're Invited to DaScribs");
+        logger.info("User: {} ({})", user.getFullName(), user.getEmail());
+        logger.info("Invite Link: {}", inviteLink);
+        logger.info("Token: {}", inviteToken);
+        logger.info("=== END EMAIL ===");
 
-                writer.write("======================\n");
-            }
+        saveToMailbox("user-invitation", user.getEmail(), "You're Invited to DaScribs", user, inviteToken, inviteLink);
+    }
+
+    @Override
+    public void sendTenantNotification(User user, String subject, String message) {
+        logger.info("=== 📢 TENANT NOTIFICATION (DEV MODE) ===");
+        logger.info("To: {}", user.getEmail());
+        logger.info("Subject: {}", subject);
+        logger.info("=== END EMAIL ===");
+
+        saveToMailbox("tenant-notification", user.getEmail(), subject, user, message, null);
+    }
+
+    @Override
+    public void sendNotificationDigest(User user, String to, List<DigestItem> items) {
+        logger.info("=== 📬 NOTIFICATION DIGEST (DEV MODE) ===");
+        logger.info("To: {}", to);
+        logger.info("Items: {}", items.size());
+        logger.info("=== END EMAIL ===");
 
-            logger.debug("Email saved to: {}", filePath);
+        saveToMailbox("notification-digest", to, "You have " + items.size() + " updates from DaScribs",
+                user, digestText(items), null);
+    }
 
-        } catch (IOException e) {
-            logger.warn("Failed to save email to file: {}", e.getMessage());
+    static String digestText(List<DigestItem> items) {
+        StringBuilder text = new StringBuilder(items.size() * 128);
+        for (DigestItem item : items) {
+            text.append("* ").append(item.title()).append('\n').append(item.body()).append("\n\n");
+        }
+        return text.toString();
+    }
+
+    private void saveToMailbox(String emailType, String to, String subject, User user, String tokenOrPassword, String link) {
+        StringBuilder body = new StringBuilder(256);
+        body.append("User: ").append(user.getFullName()).append('\n');
+
+        if (tokenOrPassword != null) {
+            if (emailType.equals("password-reset") || emailType.equals("email-verification") || emailType.equals("email-change-verification")
+                    || emailType.equals("user-invitation")) {
+                body.append("Token: ").append(tokenOrPassword).append('\n');
+                if (link != null) {
+                    body.append("Link: ").append(link).append('\n');
+                }
+            } else if (emailType.equals("welcome")) {
+                body.append("Temporary Password: ").append(tokenOrPassword).append('\n');
+            } else if (emailType.equals("tenant-notification") || emailType.equals("notification-digest")) {
+                body.append('\n').append(tokenOrPassword).append('\n');
+            }
+        }
+
+        try {
+            mailbox.append(emailType, to, subject, body.toString());
+        } catch (UncheckedIOException e) {
+            logger.warn("Failed to save email to dev mailbox: {}", e.getMessage());
         }
     }
 }
@@ -683,7 +358,8 @@ class DevelopmentEmailService implements EmailService {
 // ==================== TEST ====================
 @Component
 @Profile("test")
-class TestEmailService implements EmailService {
+@Qualifier(EmailOutboxDispatcher.DELIVERY)
+class TestEmailService implements EmailDelivery {
 
     private static final Logger logger = LoggerFactory.getLogger(TestEmailService.class);
 
@@ -816,6 +492,56 @@ class TestEmailService implements EmailService {
         logger.info("Email change confirmation stored for: {}", newEmail);
     }
 
+    @Override
+    public void sendUserInvitationEmail(User user, String inviteToken) {
+        String inviteLink = frontendUrl + "/reset-password?token=" + inviteToken;
+
+        TestEmail email = new TestEmail(
+                "user-invitation",
+                user,
+                inviteToken,
+                inviteLink,
+                LocalDateTime.now()
+        );
+
+        String key = "invite_" + user.getEmail() + "_" + System.currentTimeMillis();
+        emailStore.put(key, email);
+
+        logger.info("Invitation email stored for: {}", user.getEmail());
+    }
+
+    @Override
+    public void sendTenantNotification(User user, String subject, String message) {
+        TestEmail email = new TestEmail(
+                "tenant-notification",
+                user,
+                message,
+                null,
+                LocalDateTime.now()
+        );
+
+        String key = "notify_" + user.getEmail() + "_" + System.currentTimeMillis();
+        emailStore.put(key, email);
+
+        logger.info("Tenant notification '{}' stored for: {}", subject, user.getEmail());
+    }
+
+    @Override
+    public void sendNotificationDigest(User user, String to, List<DigestItem> items) {
+        TestEmail email = new TestEmail(
+                "notification-digest",
+                user,
+                DevelopmentEmailService.digestText(items),
+                null,
+                LocalDateTime.now()
+        );
+
+        String key = "digest_" + to + "_" + System.currentTimeMillis();
+        emailStore.put(key, email);
+
+        logger.info("Notification digest of {} items stored for: {}", items.size(), to);
+    }
+
     // Methods to retrieve test emails (useful for testing)
     public TestEmail getLatestEmailByType(String emailType) {
         return emailStore.entrySet().stream()
@@ -0,0 +1,174 @@
+package com.dascribs.coreauth.service.email;
+
+import com.dascribs.coreauth.entity.email.EmailSuppression.Reason;
+import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.coreauth.repository.EmailSuppressionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory mirror of email_suppressions, checked before every send.
+ *
+ * <p>Almost every address is not suppressed, and the Bloom filter answers those without touching
+ * the database. A filter hit is looked up in the exact map, which weeds out false positives, and
+ * a real hit is confirmed against the table, so a suppression lifted on another node is noticed.
+ * The mirror is loaded on startup and {@link #sync()} pulls rows other nodes have written since
+ * the last pass. Removals never touch the filter; the exact map and the table cover them.
+ */
+@Component
+public class EmailSuppressionList {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailSuppressionList.class);
+
+    private static final LocalDateTime CURSOR_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    private EmailSuppressionRepository suppressionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.email.suppression.expected-entries:100000}")
+    private long expectedEntries;
+
+    @Value("${app.email.suppression.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${app.email.suppression.batch-size:5000}")
+    private int batchSize;
+
+    // Rows committed late can carry an updated_at just before the last one seen, so each sync re-reads this window
+    @Value("${app.email.suppression.sync-overlap-seconds:60}")
+    private long syncOverlapSeconds;
+
+    private record Mirror(BloomFilter filter, Map<String, Reason> exact) {}
+
+    private volatile Mirror mirror;
+    private volatile LocalDateTime syncedUpTo = CURSOR_START;
+
+    private TransactionTemplate transactionTemplate;
+    private Counter clearCounter;
+    private Counter falsePositiveCounter;
+    private Counter suppressedCounter;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        clearCounter = meterRegistry.counter("email.suppression.checks", "result", "clear");
+        falsePositiveCounter = meterRegistry.counter("email.suppression.checks", "result", "false_positive");
+        suppressedCounter = meterRegistry.counter("email.suppression.checks", "result", "suppressed");
+        rebuild();
+        Gauge.builder("email.suppression.size", this, list -> list.mirror.exact().size()).register(meterRegistry);
+    }
+
+    /**
+     * The reason the address is suppressed, or empty when it may be emailed.
+     */
+    public Optional<Reason> check(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        String normalized = User.normalizeEmail(email);
+        Mirror current = mirror;
+        if (!current.filter().mightContain(normalized)) {
+            clearCounter.increment();
+            return Optional.empty();
+        }
+        if (!current.exact().containsKey(normalized)) {
+            falsePositiveCounter.increment();
+            return Optional.empty();
+        }
+
+        Optional<Reason> confirmed = suppressionRepository.findReasonByEmail(normalized);
+        if (confirmed.isPresent()) {
+            current.exact().put(normalized, confirmed.get());
+            suppressedCounter.increment();
+        } else {
+            current.exact().remove(normalized);
+            clearCounter.increment();
+        }
+        return confirmed;
+    }
+
+    public void record(String email, Reason reason, String detail) {
+        String normalized = User.normalizeEmail(email);
+        transactionTemplate.executeWithoutResult(status ->
+                suppressionRepository.upsert(normalized, reason.name(), detail));
+        add(mirror, normalized, reason);
+        logger.info("Suppressed {} ({})", normalized, reason);
+    }
+
+    public boolean lift(String email) {
+        String normalized = User.normalizeEmail(email);
+        Integer deleted = transactionTemplate.execute(status -> suppressionRepository.deleteByEmail(normalized));
+        mirror.exact().remove(normalized);
+        return deleted != null && deleted > 0;
+    }
+
+    /**
+     * Pulls suppressions written since the last pass, on this node or any other.
+     */
+    public synchronized void sync() {
+        Mirror current = mirror;
+        if (current.filter().isSaturated()) {
+            rebuild();
+            return;
+        }
+        LocalDateTime latest = load(current, syncedUpTo.minusSeconds(syncOverlapSeconds));
+        if (latest.isAfter(syncedUpTo)) {
+            syncedUpTo = latest;
+        }
+    }
+
+    /**
+     * Loads the whole table into a fresh filter sized for twice the current entries, then swaps it in.
+     */
+    public synchronized void rebuild() {
+        long entries = Math.max(expectedEntries, suppressionRepository.count() * 2);
+        Mirror rebuilt = new Mirror(BloomFilter.create(entries, falsePositiveRate), new ConcurrentHashMap<>());
+        LocalDateTime latest = load(rebuilt, CURSOR_START);
+        mirror = rebuilt;
+        syncedUpTo = latest;
+        logger.info("Email suppression list loaded: {} addresses, filter sized for {}", rebuilt.exact().size(), entries);
+    }
+
+    private LocalDateTime load(Mirror target, LocalDateTime after) {
+        LocalDateTime afterUpdatedAt = after;
+        long afterId = 0;
+        List<EmailSuppressionRepository.Entry> batch;
+        do {
+            batch = suppressionRepository.findChangedAfter(afterUpdatedAt, afterId, PageRequest.of(0, batchSize));
+            for (EmailSuppressionRepository.Entry entry : batch) {
+                add(target, entry.getEmail(), entry.getReason());
+                afterUpdatedAt = entry.getUpdatedAt();
+                afterId = entry.getId();
+            }
+        } while (batch.size() == batchSize);
+        return afterUpdatedAt;
+    }
+
+    private static void add(Mirror target, String normalized, Reason reason) {
+        if (target.exact().put(normalized, reason) == null) {
+            target.filter().put(normalized);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.dascribs.coreauth.service.email;
+
+/**
+ * The emails the application sends. Each one has an HTML and a plain-text template under
+ * email-templates/ named after {@link #fileName()}; placeholders must be one of the declared
+ * variables, and values are passed to {@link EmailTemplateEngine#render} in the same order.
+ */
+public enum EmailTemplate {
+    PASSWORD_RESET("password-reset", "Password Reset Request - Dascribs",
+            "userName", "resetLink"),
+    PASSWORD_CHANGED("password-changed", "Password Changed - DaScribs",
+            "userName"),
+    WELCOME("welcome", "Welcome to DaScribs!",
+            "userName", "userEmail", "temporaryPassword"),
+    EMAIL_VERIFICATION("email-verification", "Verify Your Email - DaScribs",
+            "userName", "verificationLink"),
+    EMAIL_CHANGE_VERIFICATION("email-change-verification", "Confirm Your Email Change - DaScribs",
+            "userName", "newEmail", "verificationLink"),
+    EMAIL_CHANGE_NOTIFICATION("email-change-notification", "Email Address Changed - DaScribs",
+            "userName", "newEmail"),
+    EMAIL_CHANGE_CONFIRMATION("email-change-confirmation", "Email Change Confirmed - DaScribs",
+            "userName", "newEmail"),
+    USER_INVITATION("user-invitation", "You're Invited to DaScribs",
+            "userName", "userEmail", "inviteLink"),
+    // The subject is set per broadcast; this one is only the fallback
+    TENANT_NOTIFICATION("tenant-notification", "Notification from DaScribs",
+            "userName", "subject", "message"),
+    // Held notifications to one address, merged; the items are DIGEST_ITEM renderings
+    NOTIFICATION_DIGEST("notification-digest", "Your DaScribs updates",
+            "userName", "count", "itemsHtml", "itemsText"),
+    DIGEST_ITEM("digest-item", "",
+            "title", "body");
+
+    private final String fileName;
+    private final String subject;
+    private final String[] variables;
+
+    EmailTemplate(String fileName, String subject, String... variables) {
+        this.fileName = fileName;
+        this.subject = subject;
+        this.variables = variables;
+    }
+
+    public String fileName() {
+        return fileName;
+    }
+
+    public String subject() {
+        return subject;
+    }
+
+    int variableCount() {
+        return variables.length;
+    }
+
+    int indexOf(String variable) {
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equals(variable)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,457 @@
+package com.dascribs.coreauth.service.email;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+
+/**
+ * Renders {@link EmailTemplate}s. Every template file is compiled once into UTF-8 encoded static
+ * segments and placeholders bound to variable positions, so rendering is a sequence of array
+ * copies plus the escaped values, written into a pooled buffer.
+ *
+ * <p>Syntax: {@code {{name}}} inserts a value (HTML-escaped in .html files),
+ * {@code {{&name}}} inserts it unescaped, for markup that was rendered and escaped already, and
+ * {@code {{#name}}...{{/name}}} keeps its body only when the value is non-empty.
+ *
+ * <p>Templates come from the classpath, or from app.email.templates.path when set. A tenant can
+ * override any file by placing it under app.email.templates.override-path/&lt;tenant id&gt;/.
+ * With app.email.templates.hot-reload, both directories are re-read when a file changes.
+ */
+@Component
+public class EmailTemplateEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplateEngine.class);
+
+    private static final String CLASSPATH_LOCATION = "email-templates/";
+    private static final long RELOAD_CHECK_INTERVAL_MS = 1000;
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+
+    @Value("${app.email.templates.path:}")
+    private String templatesPath;
+
+    @Value("${app.email.templates.override-path:}")
+    private String overridePath;
+
+    @Value("${app.email.templates.hot-reload:false}")
+    private boolean hotReload;
+
+    @Value("${app.email.templates.buffer-pool-size:16}")
+    private int bufferPoolSize;
+
+    public record RenderedEmail(String subject, byte[] html, byte[] text) {}
+
+    private record TemplatePair(CompiledTemplate html, CompiledTemplate text) {}
+
+    private record TemplateSet(Map<EmailTemplate, TemplatePair> defaults,
+                               Map<Long, Map<EmailTemplate, TemplatePair>> tenantOverrides,
+                               long stamp) {}
+
+    private volatile TemplateSet templates;
+    private volatile long lastReloadCheck;
+    private BlockingQueue<RenderBuffer> buffers;
+
+    @PostConstruct
+    void init() {
+        buffers = new ArrayBlockingQueue<>(bufferPoolSize);
+        templates = load();
+    }
+
+    /**
+     * Renders both parts of an email. Values follow the variable order declared on the template;
+     * null values render as empty.
+     */
+    public RenderedEmail render(EmailTemplate template, Long tenantId, String... values) {
+        if (values.length != template.variableCount()) {
+            throw new IllegalArgumentException("Template " + template + " expects " + template.variableCount() + " values");
+        }
+        if (hotReload) {
+            reloadIfChanged();
+        }
+
+        TemplateSet current = templates;
+        TemplatePair pair = current.defaults().get(template);
+        if (tenantId != null) {
+            Map<EmailTemplate, TemplatePair> overrides = current.tenantOverrides().get(tenantId);
+            if (overrides != null && overrides.containsKey(template)) {
+                pair = overrides.get(template);
+            }
+        }
+
+        RenderBuffer buffer = borrowBuffer();
+        try {
+            byte[] html = pair.html().render(buffer, values);
+            byte[] text = pair.text().render(buffer, values);
+            return new RenderedEmail(template.subject(), html, text);
+        } finally {
+            returnBuffer(buffer);
+        }
+    }
+
+    private RenderBuffer borrowBuffer() {
+        RenderBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : new RenderBuffer(INITIAL_BUFFER_SIZE);
+    }
+
+    private void returnBuffer(RenderBuffer buffer) {
+        if (buffer.capacity() <= MAX_POOLED_BUFFER_SIZE) {
+            buffers.offer(buffer);
+        }
+    }
+
+    private void reloadIfChanged() {
+        long now = System.currentTimeMillis();
+        if (now - lastReloadCheck < RELOAD_CHECK_INTERVAL_MS) {
+            return;
+        }
+        lastReloadCheck = now;
+
+        if (directoryStamp() != templates.stamp()) {
+            try {
+                templates = load();
+                logger.info("Reloaded email templates");
+            } catch (RuntimeException e) {
+                // Keep serving the last good templates while a file is being edited
+                logger.warn("Email template reload failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private TemplateSet load() {
+        long stamp = directoryStamp();
+
+        Map<EmailTemplate, TemplatePair> defaults = new EnumMap<>(EmailTemplate.class);
+        for (EmailTemplate template : EmailTemplate.values()) {
+            defaults.put(template, new TemplatePair(
+                    compile(template, readDefault(template.fileName() + ".html"), true),
+                    compile(template, readDefault(template.fileName() + ".txt"), false)));
+        }
+
+        Map<Long, Map<EmailTemplate, TemplatePair>> tenantOverrides = new HashMap<>();
+        Path overrideRoot = overridePath.isBlank() ? null : Path.of(overridePath);
+        if (overrideRoot != null && Files.isDirectory(overrideRoot)) {
+            try (Stream<Path> tenantDirs = Files.list(overrideRoot)) {
+                for (Path tenantDir : tenantDirs.filter(Files::isDirectory).toList()) {
+                    Long tenantId = parseTenantId(tenantDir.getFileName().toString());
+                    if (tenantId != null) {
+                        Map<EmailTemplate, TemplatePair> overrides = loadOverrides(tenantDir, defaults);
+                        if (!overrides.isEmpty()) {
+                            tenantOverrides.put(tenantId, overrides);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return new TemplateSet(defaults, tenantOverrides, stamp);
+    }
+
+    private Map<EmailTemplate, TemplatePair> loadOverrides(Path tenantDir, Map<EmailTemplate, TemplatePair> defaults) {
+        Map<EmailTemplate, TemplatePair> overrides = new EnumMap<>(EmailTemplate.class);
+        for (EmailTemplate template : EmailTemplate.values()) {
+            Path html = tenantDir.resolve(template.fileName() + ".html");
+            Path text = tenantDir.resolve(template.fileName() + ".txt");
+            if (!Files.isRegularFile(html) && !Files.isRegularFile(text)) {
+                continue;
+            }
+            TemplatePair fallback = defaults.get(template);
+            overrides.put(template, new TemplatePair(
+                    Files.isRegularFile(html) ? compile(template, readFile(html), true) : fallback.html(),
+                    Files.isRegularFile(text) ? compile(template, readFile(text), false) : fallback.text()));
+        }
+        return overrides;
+    }
+
+    private String readDefault(String fileName) {
+        if (!templatesPath.isBlank()) {
+            return readFile(Path.of(templatesPath, fileName));
+        }
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(CLASSPATH_LOCATION + fileName)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing email template " + CLASSPATH_LOCATION + fileName);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String readFile(Path file) {
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A cheap fingerprint of the template directories: file count and newest modification time.
+     */
+    private long directoryStamp() {
+        long stamp = 0;
+        for (String location : new String[]{templatesPath, overridePath}) {
+            Path root = location.isBlank() ? null : Path.of(location);
+            if (root == null || !Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(root, 2)) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    stamp = stamp * 31 + Files.getLastModifiedTime(file).toMillis() + file.hashCode();
+                }
+            } catch (IOException e) {
+                logger.debug("Could not scan email templates in {}: {}", root, e.getMessage());
+            }
+        }
+        return stamp;
+    }
+
+    private static Long parseTenantId(String name) {
+        try {
+            return Long.parseLong(name);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // ---------------------------------------------------------------- compilation
+
+    private sealed interface Segment permits StaticSegment, ValueSegment, RawSegment, SectionSegment {}
+
+    private record StaticSegment(byte[] bytes) implements Segment {}
+
+    private record ValueSegment(int index) implements Segment {}
+
+    private record RawSegment(int index) implements Segment {}
+
+    private record SectionSegment(int index, Segment[] body) implements Segment {}
+
+    static final class CompiledTemplate {
+        private final Segment[] segments;
+        private final boolean html;
+        private final int staticLength;
+
+        private CompiledTemplate(Segment[] segments, boolean html) {
+            this.segments = segments;
+            this.html = html;
+            this.staticLength = staticLength(segments);
+        }
+
+        byte[] render(RenderBuffer buffer, String[] values) {
+            buffer.reset();
+            buffer.ensureCapacity(staticLength + 512);
+            write(segments, buffer, values);
+            return buffer.toByteArray();
+        }
+
+        private void write(Segment[] segments, RenderBuffer buffer, String[] values) {
+            for (Segment segment : segments) {
+                if (segment instanceof StaticSegment staticSegment) {
+                    buffer.write(staticSegment.bytes());
+                } else if (segment instanceof ValueSegment valueSegment) {
+                    buffer.writeValue(values[valueSegment.index()], html);
+                } else if (segment instanceof RawSegment rawSegment) {
+                    buffer.writeValue(values[rawSegment.index()], false);
+                } else if (segment instanceof SectionSegment section) {
+                    String value = values[section.index()];
+                    if (value != null && !value.isEmpty()) {
+                        write(section.body(), buffer, values);
+                    }
+                }
+            }
+        }
+
+        private static int staticLength(Segment[] segments) {
+            int length = 0;
+            for (Segment segment : segments) {
+                if (segment instanceof StaticSegment staticSegment) {
+                    length += staticSegment.bytes().length;
+                } else if (segment instanceof SectionSegment section) {
+                    length += staticLength(section.body());
+                }
+            }
+            return length;
+        }
+    }
+
+    private record OpenSection(String name, int index, List<Segment> segments) {}
+
+    static CompiledTemplate compile(EmailTemplate template, String source, boolean html) {
+        Deque<OpenSection> open = new ArrayDeque<>();
+        List<Segment> segments = new ArrayList<>();
+        int position = 0;
+
+        while (position < source.length()) {
+            int tagStart = source.indexOf("{{", position);
+            if (tagStart < 0) {
+                addStatic(segments, source.substring(position));
+                break;
+            }
+            int tagEnd = source.indexOf("}}", tagStart);
+            if (tagEnd < 0) {
+                throw new IllegalStateException("Unclosed tag in " + template.fileName() + " at offset " + tagStart);
+            }
+
+            String tag = source.substring(tagStart + 2, tagEnd).trim();
+            char kind = tag.isEmpty() ? ' ' : tag.charAt(0);
+            String name = kind == '#' || kind == '/' || kind == '&' ? tag.substring(1).trim() : tag;
+            int index = template.indexOf(name);
+            if (index < 0) {
+                throw new IllegalStateException("Unknown placeholder {{" + tag + "}} in " + template.fileName());
+            }
+
+            int textEnd = tagStart;
+            int next = tagEnd + 2;
+            if (kind == '#' || kind == '/') {
+                // A section tag alone on its line takes the whole line with it
+                int lineStart = source.lastIndexOf('\n', tagStart - 1) + 1;
+                int lineEnd = source.indexOf('\n', next);
+                String after = source.substring(next, lineEnd < 0 ? source.length() : lineEnd);
+                if (source.substring(lineStart, tagStart).isBlank() && after.isBlank()) {
+                    textEnd = lineStart;
+                    next = lineEnd < 0 ? source.length() : lineEnd + 1;
+                }
+            }
+            addStatic(segments, source.substring(position, textEnd));
+
+            if (kind == '#') {
+                open.push(new OpenSection(name, index, segments));
+                segments = new ArrayList<>();
+            } else if (kind == '/') {
+                OpenSection section = open.poll();
+                if (section == null || !section.name().equals(name)) {
+                    throw new IllegalStateException("Unexpected {{/" + name + "}} in " + template.fileName());
+                }
+                Segment[] body = segments.toArray(new Segment[0]);
+                segments = section.segments();
+                segments.add(new SectionSegment(section.index(), body));
+            } else if (kind == '&') {
+                segments.add(new RawSegment(index));
+            } else {
+                segments.add(new ValueSegment(index));
+            }
+            position = next;
+        }
+
+        if (!open.isEmpty()) {
+            throw new IllegalStateException("Unclosed {{#" + open.peek().name() + "}} in " + template.fileName());
+        }
+        return new CompiledTemplate(segments.toArray(new Segment[0]), html);
+    }
+
+    private static void addStatic(List<Segment> segments, String text) {
+        if (!text.isEmpty()) {
+            segments.add(new StaticSegment(text.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    // ---------------------------------------------------------------- rendering
+
+    /**
+     * Growable byte buffer that encodes values to UTF-8 in place, escaping HTML as it goes.
+     */
+    static final class RenderBuffer {
+        private byte[] bytes;
+        private int length;
+
+        RenderBuffer(int initialCapacity) {
+            this.bytes = new byte[initialCapacity];
+        }
+
+        int capacity() {
+            return bytes.length;
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+
+        void write(byte[] source) {
+            ensureCapacity(length + source.length);
+            System.arraycopy(source, 0, bytes, length, source.length);
+            length += source.length;
+        }
+
+        void writeValue(String value, boolean escapeHtml) {
+            if (value == null) {
+                return;
+            }
+            // Worst case is an escaped entity (6 bytes) or a 3-byte UTF-8 sequence per char
+            ensureCapacity(length + value.length() * 6);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    if (escapeHtml && writeEntity(c)) {
+                        continue;
+                    }
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    bytes[length++] = '?';
+                } else {
+                    bytes[length++] = (byte) (0xE0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private boolean writeEntity(char c) {
+            String entity = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (entity == null) {
+                return false;
+            }
+            for (int i = 0; i < entity.length(); i++) {
+                bytes[length++] = (byte) entity.charAt(i);
+            }
+            return true;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
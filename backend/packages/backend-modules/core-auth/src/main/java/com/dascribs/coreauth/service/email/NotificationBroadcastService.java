@@ -0,0 +1,340 @@
+package com.dascribs.coreauth.service.email;
+
+import com.dascribs.coreauth.dto.tenant.NotificationBroadcastResponse;
+import com.dascribs.coreauth.entity.email.EmailOutboxMessage;
+import com.dascribs.coreauth.entity.email.NotificationBroadcast;
+import com.dascribs.coreauth.repository.EmailOutboxRepository;
+import com.dascribs.coreauth.repository.NotificationBroadcastRepository;
+import com.dascribs.coreauth.repository.TenantRepository;
+import com.dascribs.coreauth.repository.UserTenantRepository;
+import com.dascribs.coreauth.security.CurrentUserContext;
+import com.dascribs.shared.exception.AccessDeniedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends a notification to every active user of a tenant, or of every tenant.
+ *
+ * <p>The fan-out walks user_tenants by user id in keyset batches and writes each batch of outbox
+ * rows in one transaction together with its checkpoint, so a broadcast interrupted by a restart
+ * resumes after the last committed batch and nobody is enqueued twice. Rows are not all due at
+ * once: each gets a send time paced by the broadcast rate and the per-tenant rate, so transactional
+ * email keeps flowing ahead of them, and the fan-out only runs lookahead-seconds ahead of the
+ * pace, which keeps the outbox small. Rendering happens per recipient on the dispatcher's threads.
+ *
+ * <p>Each fan-out holds a lease on its broadcast; the scheduler restarts broadcasts whose lease
+ * ran out, on whichever node gets there first.
+ */
+@Service
+public class NotificationBroadcastService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationBroadcastService.class);
+
+    @Autowired
+    private NotificationBroadcastRepository broadcastRepository;
+
+    @Autowired
+    private UserTenantRepository userTenantRepository;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private CurrentUserContext currentUserContext;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.email.broadcast.batch-size:500}")
+    private int batchSize;
+
+    // Share of the provider's sending rate that broadcasts may use
+    @Value("${app.email.broadcast.max-messages-per-second:20}")
+    private double maxMessagesPerSecond;
+
+    @Value("${app.email.broadcast.tenant-messages-per-minute:600}")
+    private double tenantMessagesPerMinute;
+
+    @Value("${app.email.broadcast.lookahead-seconds:120}")
+    private long lookaheadSeconds;
+
+    @Value("${app.email.broadcast.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${app.email.digest.window-seconds:300}")
+    private long digestWindowSeconds;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService runners;
+    private volatile boolean running;
+
+    // Broadcasts this node is fanning out, with the recipients each still has to enqueue
+    private final Map<Long, AtomicLong> remaining = new ConcurrentHashMap<>();
+
+    private Counter enqueuedCounter;
+    private Timer batchTimer;
+
+    @PostConstruct
+    void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        runners = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("email-broadcast-", 0).factory());
+
+        enqueuedCounter = meterRegistry.counter("email.broadcast.enqueued");
+        batchTimer = meterRegistry.timer("email.broadcast.batch");
+        Gauge.builder("email.broadcast.active", remaining, Map::size).register(meterRegistry);
+        Gauge.builder("email.broadcast.remaining", remaining,
+                        runs -> runs.values().stream().mapToLong(AtomicLong::get).sum())
+                .register(meterRegistry);
+
+        running = true;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        // Interrupted fan-outs keep their checkpoint and are resumed once their lease runs out
+        runners.shutdownNow();
+        runners.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public NotificationBroadcastResponse notifyTenant(Long tenantId, String subject, String message) {
+        checkSuperAdminAccess();
+        if (!tenantRepository.existsById(tenantId)) {
+            throw new IllegalArgumentException("Tenant not found with id: " + tenantId);
+        }
+        return begin(tenantId, subject, message, userTenantRepository.countActiveUsersByTenantId(tenantId));
+    }
+
+    public NotificationBroadcastResponse notifyAllTenants(String subject, String message) {
+        checkSuperAdminAccess();
+        return begin(null, subject, message, userTenantRepository.countActiveMembers());
+    }
+
+    public NotificationBroadcastResponse getBroadcast(Long broadcastId) {
+        checkSuperAdminAccess();
+        return broadcastRepository.findById(broadcastId)
+                .map(NotificationBroadcastResponse::new)
+                .orElseThrow(() -> new IllegalArgumentException("Broadcast not found with id: " + broadcastId));
+    }
+
+    /**
+     * Stops a running broadcast and withdraws its emails that have not been sent yet.
+     */
+    public void cancelBroadcast(Long broadcastId) {
+        checkSuperAdminAccess();
+        Integer withdrawn = transactionTemplate.execute(status -> {
+            if (broadcastRepository.finish(broadcastId, NotificationBroadcast.Status.CANCELLED, LocalDateTime.now()) == 0) {
+                throw new IllegalStateException("Broadcast is not running");
+            }
+            return outboxRepository.deletePendingByBroadcastId(broadcastId);
+        });
+        logger.info("Cancelled broadcast {}, withdrew {} unsent emails", broadcastId, withdrawn);
+    }
+
+    /**
+     * Restarts running broadcasts that no node holds a lease on, e.g. after a restart.
+     */
+    public int resumeStalled() {
+        int resumed = 0;
+        for (Long broadcastId : broadcastRepository.findResumable(LocalDateTime.now())) {
+            if (launch(broadcastId)) {
+                resumed++;
+            }
+        }
+        return resumed;
+    }
+
+    private NotificationBroadcastResponse begin(Long tenantId, String subject, String message, long totalRecipients) {
+        NotificationBroadcast broadcast = transactionTemplate.execute(status -> broadcastRepository.save(
+                new NotificationBroadcast(tenantId, subject, message, currentUserContext.getUserId(), totalRecipients)));
+        logger.info("Broadcast {} to {} started for {} recipients", broadcast.getId(),
+                tenantId == null ? "all tenants" : "tenant " + tenantId, totalRecipients);
+        launch(broadcast.getId());
+        return new NotificationBroadcastResponse(broadcast);
+    }
+
+    private boolean launch(Long broadcastId) {
+        if (!running || remaining.putIfAbsent(broadcastId, new AtomicLong()) != null) {
+            return false;
+        }
+        runners.execute(() -> {
+            try {
+                fanOut(broadcastId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // The lease runs out and the scheduler picks the broadcast up again
+                logger.error("Broadcast {} fan-out failed", broadcastId, e);
+            } finally {
+                remaining.remove(broadcastId);
+            }
+        });
+        return true;
+    }
+
+    private void fanOut(Long broadcastId) throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status ->
+                broadcastRepository.claim(broadcastId, now, now.plusSeconds(leaseSeconds)));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+
+        NotificationBroadcast broadcast = broadcastRepository.findById(broadcastId).orElseThrow();
+        AtomicLong left = remaining.get(broadcastId);
+        left.set(Math.max(0, broadcast.getTotalRecipients() - broadcast.getEnqueuedCount()));
+
+        LocalDateTime startAt = broadcast.getNextSendAt() != null && broadcast.getNextSendAt().isAfter(now)
+                ? broadcast.getNextSendAt() : now;
+        Pacer pacer = new Pacer(startAt, maxMessagesPerSecond, tenantMessagesPerMinute / 60.0);
+        long cursor = broadcast.getCursorUserId();
+        long startedAt = System.nanoTime();
+        long enqueued = 0;
+
+        while (running) {
+            if (!awaitLookahead(broadcastId, cursor, pacer.latest())) {
+                logger.info("Broadcast {} stopped after {} recipients", broadcastId, enqueued);
+                return;
+            }
+
+            long batchStartedAt = System.nanoTime();
+            PageRequest page = PageRequest.of(0, batchSize);
+            List<UserTenantRepository.BroadcastRecipient> batch = broadcast.getTenantId() != null
+                    ? userTenantRepository.findBroadcastRecipients(broadcast.getTenantId(), cursor, page)
+                    : userTenantRepository.findAllTenantBroadcastRecipients(cursor, page);
+
+            if (!batch.isEmpty()) {
+                long lastUserId = batch.get(batch.size() - 1).getUserId();
+                Boolean kept = transactionTemplate.execute(status -> {
+                    List<EmailOutboxMessage> messages = new ArrayList<>(batch.size());
+                    for (UserTenantRepository.BroadcastRecipient recipient : batch) {
+                        EmailOutboxMessage message = EmailOutboxMessage.broadcast(broadcastId,
+                                recipient.getUserId(), recipient.getTenantId(), recipient.getEmail(),
+                                recipient.getFullName(), pacer.slot(recipient.getTenantId()));
+                        message.holdForDigest(digestWindowSeconds);
+                        messages.add(message);
+                    }
+                    if (broadcastRepository.checkpoint(broadcastId, lastUserId, messages.size(), pacer.latest(),
+                            LocalDateTime.now().plusSeconds(leaseSeconds)) == 0) {
+                        // Cancelled while this batch was being built
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                    outboxRepository.saveAll(messages);
+                    dispatcher.wakeUpAfterCommit();
+                    return true;
+                });
+                if (!Boolean.TRUE.equals(kept)) {
+                    logger.info("Broadcast {} cancelled after {} recipients", broadcastId, enqueued);
+                    return;
+                }
+
+                cursor = lastUserId;
+                enqueued += batch.size();
+                left.set(Math.max(0, left.get() - batch.size()));
+                enqueuedCounter.increment(batch.size());
+                batchTimer.record(System.nanoTime() - batchStartedAt, TimeUnit.NANOSECONDS);
+            }
+
+            if (batch.size() < batchSize) {
+                transactionTemplate.executeWithoutResult(status -> broadcastRepository.finish(
+                        broadcastId, NotificationBroadcast.Status.COMPLETED, LocalDateTime.now()));
+                double seconds = Math.max(1e-3, (System.nanoTime() - startedAt) / 1e9);
+                logger.info("Broadcast {} enqueued {} recipients in {}s ({}/s), last send scheduled for {}",
+                        broadcastId, enqueued, Math.round(seconds), Math.round(enqueued / seconds), pacer.latest());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits until the latest scheduled send is within the lookahead, renewing the lease meanwhile.
+     * Returns false if the broadcast was cancelled or the node is shutting down.
+     */
+    private boolean awaitLookahead(Long broadcastId, long cursor, LocalDateTime latest) throws InterruptedException {
+        long waitMs = Duration.between(LocalDateTime.now(), latest.minusSeconds(lookaheadSeconds)).toMillis();
+        while (waitMs > 0 && running) {
+            Thread.sleep(Math.min(waitMs, TimeUnit.SECONDS.toMillis(leaseSeconds) / 2));
+            Integer renewed = transactionTemplate.execute(status -> broadcastRepository.checkpoint(
+                    broadcastId, cursor, 0, latest, LocalDateTime.now().plusSeconds(leaseSeconds)));
+            if (renewed == null || renewed == 0) {
+                return false;
+            }
+            waitMs = Duration.between(LocalDateTime.now(), latest.minusSeconds(lookaheadSeconds)).toMillis();
+        }
+        return running;
+    }
+
+    private void checkSuperAdminAccess() {
+        if (!currentUserContext.isSuperAdmin()) {
+            throw new AccessDeniedException("Only super administrators can send tenant notifications");
+        }
+    }
+
+    /**
+     * Hands out send times no faster than the broadcast rate overall and the tenant rate per tenant.
+     * The latest time handed out is also the checkpoint a resumed fan-out continues from.
+     */
+    private static final class Pacer {
+        private final long intervalNanos;
+        private final long tenantIntervalNanos;
+        private final Map<Long, LocalDateTime> tenantNext = new HashMap<>();
+        private LocalDateTime next;
+        private LocalDateTime latest;
+
+        Pacer(LocalDateTime startAt, double perSecond, double tenantPerSecond) {
+            this.intervalNanos = (long) (1e9 / perSecond);
+            this.tenantIntervalNanos = (long) (1e9 / tenantPerSecond);
+            this.next = startAt;
+            this.latest = startAt;
+        }
+
+        LocalDateTime slot(Long tenantId) {
+            LocalDateTime tenantFree = tenantNext.getOrDefault(tenantId, next);
+            LocalDateTime slot = tenantFree.isAfter(next) ? tenantFree : next;
+            next = next.plusNanos(intervalNanos);
+            tenantNext.put(tenantId, slot.plusNanos(tenantIntervalNanos));
+            if (slot.isAfter(latest)) {
+                latest = slot;
+            }
+            return slot;
+        }
+
+        LocalDateTime latest() {
+            return latest;
+        }
+    }
+}
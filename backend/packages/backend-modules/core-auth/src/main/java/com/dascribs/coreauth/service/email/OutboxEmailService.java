@@ -0,0 +1,112 @@
+package com.dascribs.coreauth.service.email;
+
+import com.dascribs.coreauth.entity.email.EmailOutboxMessage;
+import com.dascribs.coreauth.entity.email.EmailOutboxMessage.EmailType;
+import com.dascribs.coreauth.entity.email.NotificationBroadcast;
+import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.coreauth.repository.EmailOutboxRepository;
+import com.dascribs.coreauth.repository.NotificationBroadcastRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * The EmailService every caller gets. Messages are written to the outbox in the caller's
+ * transaction, so they are sent only if it commits, and the request never waits on SMTP.
+ * {@link EmailOutboxDispatcher} hands them to the profile's delivery implementation.
+ *
+ * <p>A notification that finds another still waiting for its address is held for the digest
+ * window so the dispatcher can send them as one digest; a lone one goes out at once. Security
+ * alerts and anything carrying a token are never held.
+ */
+@Service
+@Primary
+@Transactional
+public class OutboxEmailService implements EmailService {
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private NotificationBroadcastRepository broadcastRepository;
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private OutboxSecretCipher secretCipher;
+
+    @Value("${app.email.digest.window-seconds:300}")
+    private long digestWindowSeconds;
+
+    @Override
+    public void sendPasswordResetEmail(User user, String resetToken) {
+        enqueue(EmailType.PASSWORD_RESET, user, null, resetToken);
+    }
+
+    @Override
+    public void sendPasswordChangedNotification(User user) {
+        enqueue(EmailType.PASSWORD_CHANGED, user, null, null);
+    }
+
+    @Override
+    public void sendWelcomeEmail(User user, String temporaryPassword) {
+        enqueue(EmailType.WELCOME, user, null, temporaryPassword);
+    }
+
+    @Override
+    public void sendVerificationEmail(User user, String verificationToken) {
+        enqueue(EmailType.VERIFICATION, user, null, verificationToken);
+    }
+
+    @Override
+    public void sendEmailChangeVerification(User user, String newEmail, String verificationToken) {
+        enqueue(EmailType.EMAIL_CHANGE_VERIFICATION, user, newEmail, verificationToken);
+    }
+
+    @Override
+    public void sendEmailChangeNotification(User user, String oldEmail) {
+        enqueue(EmailType.EMAIL_CHANGE_NOTIFICATION, user, oldEmail, null);
+    }
+
+    @Override
+    public void sendEmailChangeConfirmation(User user, String newEmail) {
+        enqueue(EmailType.EMAIL_CHANGE_CONFIRMATION, user, newEmail, null);
+    }
+
+    @Override
+    public void sendUserInvitationEmail(User user, String inviteToken) {
+        enqueue(EmailType.USER_INVITATION, user, null, inviteToken);
+    }
+
+    /**
+     * A notification to a single user is stored as a broadcast with one recipient that needs no fan-out.
+     * Tenant-wide notifications go through {@link NotificationBroadcastService}.
+     */
+    @Override
+    public void sendTenantNotification(User user, String subject, String message) {
+        NotificationBroadcast broadcast = new NotificationBroadcast(user.getTenantId(), subject, message, null, 1);
+        broadcast.setStatus(NotificationBroadcast.Status.COMPLETED);
+        broadcast.setEnqueuedCount(1);
+        broadcast.setCompletedAt(LocalDateTime.now());
+        broadcastRepository.save(broadcast);
+
+        EmailOutboxMessage outboxMessage = EmailOutboxMessage.broadcast(broadcast.getId(), user.getId(),
+                user.getTenantId(), user.getEmail(), user.getFullName(), LocalDateTime.now());
+        outboxMessage.joinDigest(digestWindowSeconds,
+                outboxRepository.existsWaitingDigest(outboxMessage.addressDigestKey()));
+        outboxRepository.save(outboxMessage);
+        dispatcher.wakeUpAfterCommit();
+    }
+
+    private void enqueue(EmailType type, User user, String address, String secret) {
+        EmailOutboxMessage message = new EmailOutboxMessage(type, user.getId(), user.getTenantId(), user.getEmail(),
+                user.getFullName(), address, secretCipher.encrypt(secret));
+        outboxRepository.save(message);
+        dispatcher.wakeUpAfterCommit();
+    }
+}
@@ -0,0 +1,81 @@
+package com.dascribs.coreauth.service.email;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Encrypts the tokens and temporary passwords that outbox rows carry until they are sent, so the
+ * email_outbox table never holds a usable credential. AES-GCM with a random IV per value; the key
+ * is derived from the configured secret and differs from the JWT and action-token keys.
+ */
+@Component
+public class OutboxSecretCipher {
+
+    // Versions the stored format so the key derivation or cipher can change later
+    private static final String PREFIX = "v1:";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${app.email.outbox.secret-key:${app.jwt.secret}}")
+    private String secret;
+
+    private SecretKeySpec key;
+
+    @PostConstruct
+    void init() throws GeneralSecurityException {
+        Mac derivation = Mac.getInstance("HmacSHA256");
+        derivation.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        key = new SecretKeySpec(derivation.doFinal("dascribs-outbox-secret".getBytes(StandardCharsets.UTF_8)), "AES");
+    }
+
+    public String encrypt(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] sealed = cipher.doFinal(value.getBytes(StandardCharsets.UTF_8));
+            return PREFIX + ENCODER.encodeToString(ByteBuffer.allocate(IV_BYTES + sealed.length).put(iv).put(sealed).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+    }
+
+    public String decrypt(String stored) {
+        if (stored == null) {
+            return null;
+        }
+        if (!stored.startsWith(PREFIX)) {
+            // Every secret is encrypted on enqueue; a bare value is never sent as is
+            throw new IllegalStateException("Outbox secret is not encrypted");
+        }
+        byte[] bytes = DECODER.decode(stored.substring(PREFIX.length()));
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, bytes, 0, IV_BYTES));
+            return new String(cipher.doFinal(bytes, IV_BYTES, bytes.length - IV_BYTES), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            // Wrong key or a tampered row; the send fails and the message is retried, then dead-lettered
+            throw new IllegalStateException("Outbox secret could not be decrypted", e);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.dascribs.coreauth.service.email;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps a small pool of connected, authenticated SMTP transports so consecutive emails skip the
+ * TCP, STARTTLS and AUTH round trips. Connections are reused most-recently-used first, checked
+ * with NOOP after sitting idle, and retired after a number of messages. New connections and
+ * messages are paced to stay under the provider's limits.
+ */
+@Component
+@Profile("production")
+public class SmtpConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    @Autowired(required = false)
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.email.smtp.pool-size:4}")
+    private int poolSize;
+
+    @Value("${app.email.smtp.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    @Value("${app.email.smtp.validate-after-idle-ms:10000}")
+    private long validateAfterIdleMs;
+
+    @Value("${app.email.smtp.max-idle-ms:120000}")
+    private long maxIdleMs;
+
+    @Value("${app.email.smtp.max-connections-per-minute:30}")
+    private int maxConnectionsPerMinute;
+
+    @Value("${app.email.smtp.max-messages-per-second:10}")
+    private int maxMessagesPerSecond;
+
+    private final ArrayDeque<PooledTransport> idle = new ArrayDeque<>();
+
+    private Semaphore slots;
+    private RateGate connectionGate;
+    private RateGate messageGate;
+
+    private Timer sendTimer;
+    private Timer failedSendTimer;
+    private Counter connectionsOpened;
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private int messagesSent;
+        private long lastUsedAt;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsedAt = System.currentTimeMillis();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        slots = new Semaphore(poolSize, true);
+        connectionGate = new RateGate(TimeUnit.MINUTES.toNanos(1) / maxConnectionsPerMinute, poolSize);
+        messageGate = new RateGate(TimeUnit.SECONDS.toNanos(1) / maxMessagesPerSecond, maxMessagesPerSecond);
+
+        sendTimer = Timer.builder("email.smtp.send").tag("outcome", "success").register(meterRegistry);
+        failedSendTimer = Timer.builder("email.smtp.send").tag("outcome", "failure").register(meterRegistry);
+        connectionsOpened = meterRegistry.counter("email.smtp.connections.opened");
+        Gauge.builder("email.smtp.connections.idle", idle, pool -> {
+            synchronized (pool) {
+                return pool.size();
+            }
+        }).register(meterRegistry);
+    }
+
+    @PreDestroy
+    void closeAll() {
+        synchronized (idle) {
+            idle.forEach(this::close);
+            idle.clear();
+        }
+    }
+
+    /**
+     * Sends the message over a pooled connection. Blocks while all connections are busy
+     * or a rate cap is reached.
+     */
+    public void send(MimeMessage message) throws MessagingException {
+        if (!(mailSender instanceof JavaMailSenderImpl sender)) {
+            throw new IllegalStateException("SMTP connection pool needs a configured JavaMailSenderImpl");
+        }
+
+        slots.acquireUninterruptibly();
+        long startedAt = System.nanoTime();
+        PooledTransport connection = null;
+        try {
+            if (message.getSentDate() == null) {
+                message.setSentDate(new Date());
+            }
+            message.saveChanges();
+
+            messageGate.acquire();
+            connection = borrow(sender);
+            connection.transport.sendMessage(message, message.getAllRecipients());
+            connection.messagesSent++;
+            sendTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        } catch (MessagingException e) {
+            failedSendTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            // A rejected recipient leaves the session usable; anything else may not have
+            if (connection != null && !(e instanceof SendFailedException)) {
+                close(connection);
+                connection = null;
+            }
+            throw e;
+        } finally {
+            if (connection != null) {
+                giveBack(connection);
+            }
+            slots.release();
+        }
+    }
+
+    private PooledTransport borrow(JavaMailSenderImpl sender) throws MessagingException {
+        while (true) {
+            PooledTransport connection;
+            synchronized (idle) {
+                connection = idle.pollFirst();
+            }
+            if (connection == null) {
+                break;
+            }
+
+            long idleFor = System.currentTimeMillis() - connection.lastUsedAt;
+            if (idleFor > maxIdleMs) {
+                close(connection);
+            } else if (idleFor > validateAfterIdleMs && !connection.transport.isConnected()) {
+                // isConnected sends NOOP, so a connection the server dropped is caught here
+                close(connection);
+            } else {
+                return connection;
+            }
+        }
+
+        connectionGate.acquire();
+        Transport transport = sender.getSession().getTransport(sender.getProtocol());
+        transport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+        connectionsOpened.increment();
+        return new PooledTransport(transport);
+    }
+
+    private void giveBack(PooledTransport connection) {
+        if (connection.messagesSent >= maxMessagesPerConnection) {
+            close(connection);
+            return;
+        }
+        connection.lastUsedAt = System.currentTimeMillis();
+        synchronized (idle) {
+            idle.addFirst(connection);
+        }
+    }
+
+    private void close(PooledTransport connection) {
+        try {
+            connection.transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Failed to close SMTP connection cleanly: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Spaces permits at a fixed interval while allowing a burst of up to {@code burst} permits
+     * after a quiet period.
+     */
+    private static final class RateGate {
+        private final long intervalNanos;
+        private final long burstNanos;
+        private long nextFreeAt = System.nanoTime();
+
+        private RateGate(long intervalNanos, int burst) {
+            this.intervalNanos = intervalNanos;
+            this.burstNanos = intervalNanos * Math.max(0, burst - 1);
+        }
+
+        void acquire() {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long grantedAt = Math.max(nextFreeAt, now);
+                nextFreeAt = grantedAt + intervalNanos;
+                waitNanos = grantedAt - burstNanos - now;
+            }
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+        }
+    }
+}
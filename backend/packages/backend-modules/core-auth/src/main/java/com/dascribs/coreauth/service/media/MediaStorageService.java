@@ -0,0 +1,348 @@
+package com.dascribs.coreauth.service.media;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed image storage on the local disk. Uploads are streamed through a SHA-256 digest
+ * into a temp file and moved to {@code <root>/<first two hex chars>/<sha256>.<ext>}, so identical images
+ * are stored once and a stored file never changes. Square thumbnails are rendered on a small background
+ * pool as {@code <sha256>-<size>.jpg} for JPEG originals and {@code <sha256>-<size>.png} otherwise.
+ */
+@Service
+public class MediaStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaStorageService.class);
+
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+    private static final int SNIFF_LENGTH = 12;
+    private static final String[] EXTENSIONS = {"png", "jpg", "gif", "webp"};
+
+    // Stored names only; anything else (including path traversal) is rejected before touching the disk
+    private static final Pattern MEDIA_NAME = Pattern.compile("([0-9a-f]{64})(?:-(\\d{1,4}))?\\.(png|jpg|gif|webp)");
+
+    public record StoredMedia(String name, String contentType, long size) {}
+
+    public record MediaFile(Path path, String contentType, long size, String etag) {}
+
+    @Value("${app.media.storage-path:./data/media}")
+    private String storagePath;
+
+    @Value("${app.media.public-path:/api/public/media}")
+    private String publicPath;
+
+    @Value("${app.media.max-bytes:5242880}")
+    private long maxBytes;
+
+    @Value("${app.media.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Value("${app.media.thumbnail-sizes:64,256}")
+    private int[] thumbnailSizes;
+
+    @Value("${app.media.thumbnail-threads:2}")
+    private int thumbnailThreads;
+
+    private Path root;
+    private ExecutorService thumbnailExecutor;
+
+    @PostConstruct
+    void init() throws IOException {
+        root = Paths.get(storagePath).toAbsolutePath().normalize();
+        Files.createDirectories(root.resolve("tmp"));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        thumbnailExecutor = new ThreadPoolExecutor(
+                thumbnailThreads, thumbnailThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(256),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "media-thumbnail-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    @PreDestroy
+    void stopThumbnailPool() {
+        thumbnailExecutor.shutdown();
+    }
+
+    /**
+     * Streams an image to storage and returns its content-addressed name.
+     * Only PNG, JPEG, GIF and WebP are accepted; the type is taken from the bytes, not the request.
+     */
+    public StoredMedia store(InputStream input) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(root.resolve("tmp"), "upload-", ".part");
+        try {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            byte[] head = new byte[SNIFF_LENGTH];
+            int headLength = 0;
+            long size = 0;
+
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new IllegalArgumentException("Image exceeds the maximum size of " + maxBytes + " bytes");
+                    }
+                    if (headLength < SNIFF_LENGTH) {
+                        int copy = Math.min(read, SNIFF_LENGTH - headLength);
+                        System.arraycopy(buffer, 0, head, headLength, copy);
+                        headLength += copy;
+                    }
+                    digest.update(buffer, 0, read);
+                    output.write(buffer, 0, read);
+                }
+            }
+
+            String extension = detectExtension(head, headLength);
+            if (extension == null) {
+                throw new IllegalArgumentException("Unsupported image type. Use PNG, JPEG, GIF or WebP");
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String name = hash + "." + extension;
+            Path target = pathFor(name);
+            Files.createDirectories(target.getParent());
+            try {
+                // Without REPLACE_EXISTING the move refuses an existing target; ATOMIC_MOVE is a plain
+                // rename(2) that would silently replace it. Both stay on one file system, so it is still a rename.
+                Files.move(temp, target);
+                scheduleThumbnails(hash, extension, target);
+            } catch (FileAlreadyExistsException e) {
+                // Same content was stored before; its thumbnails already exist or are on the way
+            }
+            return new StoredMedia(name, contentType(extension), size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public String urlFor(String name) {
+        return publicPath + "/" + name;
+    }
+
+    /**
+     * Looks up a stored file or thumbnail by name. A thumbnail that is not rendered yet resolves to empty.
+     */
+    public Optional<MediaFile> resolve(String name) throws IOException {
+        Matcher matcher = MEDIA_NAME.matcher(name);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        Path path = pathFor(name);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        // The name is derived from the content, so it is a strong validator
+        String etag = "\"" + name.substring(0, name.lastIndexOf('.')) + "\"";
+        return Optional.of(new MediaFile(path, contentType(matcher.group(3)), Files.size(path), etag));
+    }
+
+    public String thumbnailUrlFor(String name, int size) {
+        String hash = name.substring(0, name.lastIndexOf('.'));
+        return urlFor(hash + "-" + size + "." + thumbnailExtension(name.substring(name.lastIndexOf('.') + 1)));
+    }
+
+    /**
+     * Thumbnail URLs by edge size for an image stored here, given its public URL. Empty for URLs
+     * pointing elsewhere and for WebP originals, which get no thumbnails.
+     */
+    public Map<Integer, String> thumbnailUrlsFor(String url) {
+        String prefix = publicPath + "/";
+        if (url == null || !url.startsWith(prefix)) {
+            return Map.of();
+        }
+        String name = url.substring(prefix.length());
+        Matcher matcher = MEDIA_NAME.matcher(name);
+        if (!matcher.matches() || matcher.group(2) != null || "webp".equals(matcher.group(3))) {
+            return Map.of();
+        }
+        Map<Integer, String> urls = new TreeMap<>();
+        for (int size : thumbnailSizes) {
+            urls.put(size, thumbnailUrlFor(name, size));
+        }
+        return urls;
+    }
+
+    /**
+     * Resolves the original a thumbnail name was derived from, for thumbnails not rendered (yet).
+     */
+    public Optional<MediaFile> resolveOriginalOf(String thumbnailName) throws IOException {
+        Matcher matcher = MEDIA_NAME.matcher(thumbnailName);
+        if (!matcher.matches() || matcher.group(2) == null) {
+            return Optional.empty();
+        }
+        for (String extension : EXTENSIONS) {
+            Optional<MediaFile> original = resolve(matcher.group(1) + "." + extension);
+            if (original.isPresent()) {
+                return original;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Path pathFor(String name) {
+        return root.resolve(name.substring(0, 2)).resolve(name);
+    }
+
+    private void scheduleThumbnails(String hash, String extension, Path original) {
+        // ImageIO has no WebP writer; WebP originals are served as they are
+        if ("webp".equals(extension)) {
+            return;
+        }
+        try {
+            thumbnailExecutor.execute(() -> renderThumbnails(hash, extension, original));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Thumbnail queue full, serving {} without thumbnails", hash);
+        }
+    }
+
+    private void renderThumbnails(String hash, String extension, Path original) {
+        for (int size : thumbnailSizes) {
+            String thumbnailExtension = thumbnailExtension(extension);
+            Path target = pathFor(hash + "-" + size + "." + thumbnailExtension);
+            if (Files.exists(target)) {
+                continue;
+            }
+            try {
+                BufferedImage image = readScaled(original, size);
+                if (image == null) {
+                    return;
+                }
+                Path temp = Files.createTempFile(root.resolve("tmp"), "thumb-", ".part");
+                try {
+                    ImageIO.write(resize(image, size, "png".equals(thumbnailExtension)),
+                            "jpg".equals(thumbnailExtension) ? "jpeg" : "png", temp.toFile());
+                    Files.move(temp, target);
+                } catch (FileAlreadyExistsException e) {
+                    // Rendered concurrently by another upload of the same image
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to render {}px thumbnail for {}: {}", size, hash, e.getMessage());
+            }
+        }
+    }
+
+    // Decodes with source subsampling so large originals never have to be held in memory at full size
+    private BufferedImage readScaled(Path original, int size) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    logger.warn("Skipping thumbnails for {}: {}x{} exceeds the pixel limit", original.getFileName(), width, height);
+                    return null;
+                }
+                int subsampling = Math.max(1, Math.min(width, height) / (size * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Scales the shorter side to the target size and center-crops to a square
+    private static BufferedImage resize(BufferedImage source, int size, boolean keepAlpha) {
+        double scale = (double) size / Math.min(source.getWidth(), source.getHeight());
+        int scaledWidth = (int) Math.round(source.getWidth() * scale);
+        int scaledHeight = (int) Math.round(source.getHeight() * scale);
+
+        BufferedImage thumbnail = new BufferedImage(size, size,
+                keepAlpha && source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, (size - scaledWidth) / 2, (size - scaledHeight) / 2, scaledWidth, scaledHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    private static String thumbnailExtension(String extension) {
+        return "jpg".equals(extension) ? "jpg" : "png";
+    }
+
+    private static String detectExtension(byte[] head, int length) {
+        if (length >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return "png";
+        }
+        if (length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return "jpg";
+        }
+        if (length >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8') {
+            return "gif";
+        }
+        if (length >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "webp";
+        }
+        return null;
+    }
+
+    private static String contentType(String extension) {
+        return switch (extension) {
+            case "png" -> "image/png";
+            case "jpg" -> "image/jpeg";
+            case "gif" -> "image/gif";
+            default -> "image/webp";
+        };
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.dascribs.coreauth.service.tenant;
+
+import com.dascribs.coreauth.repository.UserTenantRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory userId -> tenant memberships, so tenant access checks do not query user_tenants.
+ * Each user costs one sorted long[]. Entries live in a bounded LRU
+ * with a TTL; writers evict the user after their transaction commits.
+ */
+@Component
+public class TenantMembershipIndex {
+
+    private static final long[] NO_TENANTS = new long[0];
+
+    @Autowired
+    private UserTenantRepository userTenantRepository;
+
+    @Value("${app.tenants.membership.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${app.tenants.membership.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Map<Long, Membership> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Membership> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    private record Membership(long[] tenantIds, long expiresAt) {
+
+        boolean contains(long tenantId) {
+            return Arrays.binarySearch(tenantIds, tenantId) >= 0;
+        }
+    }
+
+    public boolean isMember(Long userId, Long tenantId) {
+        return tenantId != null && lookup(userId).contains(tenantId);
+    }
+
+    /**
+     * Drops the user once the current transaction commits (immediately outside one),
+     * so a concurrent reader cannot cache memberships the transaction is about to change.
+     */
+    public void evict(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remove(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remove(userId);
+            }
+        });
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private Membership lookup(Long userId) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            Membership membership = cache.get(userId);
+            if (membership != null && membership.expiresAt() > now) {
+                return membership;
+            }
+        }
+
+        // Load outside the lock; a concurrent miss for the same user just loads twice
+        Membership loaded = load(userId, now + ttlSeconds * 1000);
+        synchronized (cache) {
+            cache.put(userId, loaded);
+        }
+        return loaded;
+    }
+
+    private Membership load(Long userId, long expiresAt) {
+        List<Long> ids = userTenantRepository.findTenantIdsByUserId(userId);
+        if (ids.isEmpty()) {
+            return new Membership(NO_TENANTS, expiresAt);
+        }
+
+        long[] tenantIds = new long[ids.size()];
+        for (int i = 0; i < tenantIds.length; i++) {
+            tenantIds[i] = ids.get(i);
+        }
+        Arrays.sort(tenantIds);
+        return new Membership(tenantIds, expiresAt);
+    }
+
+    private void remove(Long userId) {
+        synchronized (cache) {
+            cache.remove(userId);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.dascribs.coreauth.service.tenant;
+
+import com.dascribs.coreauth.entity.tenant.Tenant;
+import com.dascribs.coreauth.repository.TenantRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Maps a request host (tenants.domain) or tenant code (tenants.tenant_id) to a tenant.
+ * Lookups go through a bounded LRU cache; misses are cached too so unknown hosts
+ * cannot turn every request into a query. TenantService evicts entries on changes, once they commit.
+ */
+@Service
+public class TenantResolver {
+
+    private static final String DOMAIN_KEY = "domain:";
+    private static final String CODE_KEY = "code:";
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Value("${app.tenants.resolver.cache-size:1000}")
+    private int cacheSize;
+
+    @Value("${app.tenants.resolver.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.tenants.resolver.negative-ttl-seconds:30}")
+    private long negativeTtlSeconds;
+
+    private final Map<String, CacheEntry> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    public record ResolvedTenant(Long id, String tenantId, String name, boolean active) {
+
+        static ResolvedTenant of(Tenant tenant) {
+            return new ResolvedTenant(tenant.getId(), tenant.getTenantId(), tenant.getName(), tenant.isActive());
+        }
+    }
+
+    // Bumped by every eviction, under the cache lock; a load that overlapped one is not cached
+    private long generation;
+
+    private record CacheEntry(ResolvedTenant tenant, long expiresAt) {}
+
+    public Optional<ResolvedTenant> resolveByDomain(String host) {
+        if (host == null || host.isBlank()) {
+            return Optional.empty();
+        }
+        String domain = normalizeHost(host);
+        return lookup(DOMAIN_KEY + domain, () -> tenantRepository.findByDomain(domain));
+    }
+
+    public Optional<ResolvedTenant> resolveByCode(String tenantCode) {
+        if (tenantCode == null || tenantCode.isBlank()) {
+            return Optional.empty();
+        }
+        String code = tenantCode.trim();
+        return lookup(CODE_KEY + code, () -> tenantRepository.findByTenantId(code));
+    }
+
+    /**
+     * Drops every cached key that points at the tenant (including a domain it no longer owns)
+     * and any negative entries for its current code and domain. Inside a transaction this waits
+     * for the commit; evicting earlier would let a concurrent request cache the old row again.
+     */
+    public void evict(Tenant tenant) {
+        Long id = tenant.getId();
+        String code = tenant.getTenantId();
+        String domain = tenant.getDomain();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(id, code, domain);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(id, code, domain);
+            }
+        });
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            generation++;
+            cache.clear();
+        }
+    }
+
+    private void evict(Long id, String code, String domain) {
+        synchronized (cache) {
+            generation++;
+            cache.values().removeIf(entry -> entry.tenant() != null && entry.tenant().id().equals(id));
+            cache.remove(CODE_KEY + code);
+            if (domain != null && !domain.isBlank()) {
+                cache.remove(DOMAIN_KEY + normalizeHost(domain));
+            }
+        }
+    }
+
+    private Optional<ResolvedTenant> lookup(String key, Supplier<Optional<Tenant>> loader) {
+        long now = System.currentTimeMillis();
+        long loadGeneration;
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                return Optional.ofNullable(entry.tenant());
+            }
+            loadGeneration = generation;
+        }
+
+        // Load outside the lock; a concurrent miss for the same key just loads twice
+        ResolvedTenant resolved = loader.get().map(ResolvedTenant::of).orElse(null);
+        long ttl = resolved != null ? ttlSeconds : negativeTtlSeconds;
+        synchronized (cache) {
+            // The row may predate a change committed while it loaded; the next lookup reloads it
+            if (generation == loadGeneration) {
+                cache.put(key, new CacheEntry(resolved, now + ttl * 1000));
+            }
+        }
+        return Optional.ofNullable(resolved);
+    }
+
+    private static String normalizeHost(String host) {
+        String domain = host.trim().toLowerCase(Locale.ROOT);
+        int port = domain.lastIndexOf(':');
+        if (port > 0 && domain.indexOf(']') < port) {
+            domain = domain.substring(0, port);
+        }
+        return domain;
+    }
+}
@@ -6,18 +6,18 @@ import com.dascribs.coreauth.dto.tenant.TenantResponse;
 import com.dascribs.coreauth.dto.tenant.TenantUpdateRequest;
 import com.dascribs.shared.exception.AccessDeniedException;
 import com.dascribs.coreauth.entity.tenant.Tenant;
-import com.dascribs.coreauth.entity.user.Role;
-import com.dascribs.coreauth.entity.user.User;
 import com.dascribs.coreauth.repository.TenantRepository;
-import com.dascribs.coreauth.repository.UserTenantRepository;
-import com.dascribs.coreauth.security.CustomUserDetailsService;
+import com.dascribs.coreauth.security.CurrentUserContext;
+import com.dascribs.coreauth.service.media.MediaStorageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 
 @Service
@@ -28,51 +28,47 @@ public class TenantService {
     private TenantRepository tenantRepository;
 
     @Autowired
-    private UserTenantRepository userTenantRepository;
+    private CurrentUserContext currentUserContext;
+
+    @Autowired
+    private TenantResolver tenantResolver;
+
+    @Autowired
+    private TenantSubscriptionPolicy subscriptionPolicy;
+
+    @Autowired
+    private TenantMembershipIndex membershipIndex;
+
+    @Autowired
+    private MediaStorageService mediaStorageService;
 
     public Page<TenantResponse> getAllTenants(Pageable pageable) {
         checkSuperAdminAccess();
 
-        Page<Tenant> tenants = tenantRepository.findAll(pageable);
-        return tenants.map(tenant -> {
-            TenantResponse response = new TenantResponse(tenant);
-            response.setUserCount(userTenantRepository.countActiveUsersByTenantId(tenant.getId()));
-            // Property count would be set when property module is implemented
-            return response;
-        });
+        // Property count would be set when property module is implemented
+        return tenantRepository.findAllWithUserCount(pageable).map(this::toResponse);
     }
 
     public Page<TenantResponse> getActiveTenants(Pageable pageable) {
         checkSuperAdminAccess();
 
-        Page<Tenant> tenants = tenantRepository.findByActiveTrue(pageable);
-        return tenants.map(tenant -> {
-            TenantResponse response = new TenantResponse(tenant);
-            response.setUserCount(userTenantRepository.countActiveUsersByTenantId(tenant.getId()));
-            return response;
-        });
+        return tenantRepository.findActiveWithUserCount(pageable).map(this::toResponse);
     }
 
     public TenantResponse getTenantById(Long id) {
         checkTenantAccess(id);
 
-        Tenant tenant = tenantRepository.findById(id)
+        return tenantRepository.findWithUserCountById(id)
+                .map(this::toResponse)
                 .orElseThrow(() -> new IllegalArgumentException("Tenant not found with id: " + id));
-
-        TenantResponse response = new TenantResponse(tenant);
-        response.setUserCount(userTenantRepository.countActiveUsersByTenantId(tenant.getId()));
-        return response;
     }
 
     public TenantResponse getTenantByTenantId(String tenantId) {
         checkTenantAccess(tenantId);
 
-        Tenant tenant = tenantRepository.findByTenantId(tenantId)
+        return tenantRepository.findWithUserCountByTenantId(tenantId)
+                .map(this::toResponse)
                 .orElseThrow(() -> new IllegalArgumentException("Tenant not found with tenantId: " + tenantId));
-
-        TenantResponse response = new TenantResponse(tenant);
-        response.setUserCount(userTenantRepository.countActiveUsersByTenantId(tenant.getId()));
-        return response;
     }
 
     public TenantResponse createTenant(TenantCreateRequest request) {
@@ -110,16 +106,22 @@ public class TenantService {
         if (request.getPlan() != Tenant.Plan.FREE) {
             tenant.setSubscriptionEndsAt(LocalDateTime.now().plusMonths(1)); // 1 month trial
         }
+        subscriptionPolicy.schedule(tenant);
 
         Tenant savedTenant = tenantRepository.save(tenant);
+        tenantResolver.evict(savedTenant);
         return new TenantResponse(savedTenant);
     }
 
     public TenantResponse updateTenant(Long id, TenantUpdateRequest request) {
         checkSuperAdminAccess();
 
-        Tenant tenant = tenantRepository.findById(id)
+        // The projected tenant is managed, so it can be updated in place
+        TenantRepository.TenantWithUserCount loaded = tenantRepository.findWithUserCountById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Tenant not found with id: " + id));
+        Tenant tenant = loaded.getTenant();
+        // Capture the old domain before it changes so its host mapping goes too
+        tenantResolver.evict(tenant);
 
         // Apply updates
         if (request.hasName()) {
@@ -154,13 +156,38 @@ public class TenantService {
         if (request.hasActive()) {
             tenant.setActive(request.getActive());
         }
+        if (request.hasSubscriptionEndsAt()) {
+            subscriptionPolicy.renew(tenant, request.getSubscriptionEndsAt());
+        }
 
         Tenant updatedTenant = tenantRepository.save(tenant);
+        tenantResolver.evict(updatedTenant);
         TenantResponse response = new TenantResponse(updatedTenant);
-        response.setUserCount(userTenantRepository.countActiveUsersByTenantId(tenant.getId()));
+        response.setUserCount(loaded.getActiveUserCount());
         return response;
     }
 
+    /**
+     * Stores an uploaded logo and points the tenant at it. Streamed outside any transaction, like profile images.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String uploadTenantLogo(Long id, InputStream image) throws IOException {
+        checkSuperAdminAccess();
+        if (!tenantRepository.existsById(id)) {
+            throw new IllegalArgumentException("Tenant not found with id: " + id);
+        }
+
+        MediaStorageService.StoredMedia stored = mediaStorageService.store(image);
+        String logoUrl = mediaStorageService.urlFor(stored.name());
+
+        Tenant tenant = tenantRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Tenant not found with id: " + id));
+        tenant.setLogoUrl(logoUrl);
+        tenantRepository.save(tenant);
+        tenantResolver.evict(tenant);
+        return logoUrl;
+    }
+
     public void deleteTenant(Long id) {
         checkSuperAdminAccess();
 
@@ -170,16 +197,23 @@ public class TenantService {
         // Soft delete - deactivate tenant
         tenant.setActive(false);
         tenantRepository.save(tenant);
+        tenantResolver.evict(tenant);
     }
 
     public void suspendTenant(Long id) {
         checkSuperAdminAccess();
 
+        suspendExpiredTenant(id);
+    }
+
+    // Called by the subscription expiry scanner, which runs without a user
+    void suspendExpiredTenant(Long id) {
         Tenant tenant = tenantRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Tenant not found with id: " + id));
 
         tenant.setActive(false);
         tenantRepository.save(tenant);
+        tenantResolver.evict(tenant);
     }
 
     public void activateTenant(Long id) {
@@ -188,8 +222,16 @@ public class TenantService {
         Tenant tenant = tenantRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Tenant not found with id: " + id));
 
+        // An expired tenant would stay active forever: the scanner has nothing left to check
+        if (tenant.getSubscriptionEndsAt() != null && !tenant.getSubscriptionEndsAt().isAfter(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Subscription ended at " + tenant.getSubscriptionEndsAt()
+                    + "; renew it before activating the tenant");
+        }
+
         tenant.setActive(true);
+        subscriptionPolicy.schedule(tenant);
         tenantRepository.save(tenant);
+        tenantResolver.evict(tenant);
     }
 
     public boolean isTenantActive(Long tenantId) {
@@ -198,28 +240,34 @@ public class TenantService {
                 .orElse(false);
     }
 
-    // public boolean canTenantAddUser(Long tenantId) {
-    //    return !tenantRepository.hasReachedUserLimit(tenantId);
-    // }
+    public boolean canTenantAddUser(Long tenantId) {
+        return !tenantRepository.hasReachedUserLimit(tenantId);
+    }
+
+    public boolean canTenantAddProperty(Long tenantId) {
+        return !tenantRepository.hasReachedPropertyLimit(tenantId);
+    }
 
     // Helper methods
+    private TenantResponse toResponse(TenantRepository.TenantWithUserCount row) {
+        TenantResponse response = new TenantResponse(row.getTenant());
+        response.setUserCount(row.getActiveUserCount());
+        return response;
+    }
+
     private void checkSuperAdminAccess() {
-        User currentUser = getCurrentUser();
-        if (currentUser.getRole() != Role.SUPER_ADMIN) {
+        if (!currentUserContext.isSuperAdmin()) {
             throw new AccessDeniedException("Only super administrators can access tenant management");
         }
     }
 
     private void checkTenantAccess(Long tenantId) {
-        User currentUser = getCurrentUser();
-
-        if (currentUser.getRole() == Role.SUPER_ADMIN) {
+        if (currentUserContext.isSuperAdmin()) {
             return;
         }
 
-        // Check if user belongs to this tenant
-        boolean hasAccess = userTenantRepository.findByUserId(currentUser.getId()).stream()
-                .anyMatch(userTenant -> userTenant.getTenant().getId().equals(tenantId));
+        // Answered from the membership index; the primary tenant is one of the memberships
+        boolean hasAccess = membershipIndex.isMember(currentUserContext.getUserId(), tenantId);
 
         if (!hasAccess) {
             throw new AccessDeniedException("You don't have access to this tenant");
@@ -227,31 +275,17 @@ public class TenantService {
     }
 
     private void checkTenantAccess(String tenantId) {
-        User currentUser = getCurrentUser();
-
-        if (currentUser.getRole() == Role.SUPER_ADMIN) {
+        if (currentUserContext.isSuperAdmin()) {
             return;
         }
 
-        // Check if user belongs to this tenant
-        boolean hasAccess = userTenantRepository.findByUserId(currentUser.getId()).stream()
-                .anyMatch(userTenant -> userTenant.getTenant().getTenantId().equals(tenantId));
+        // Tenant code to id through the resolver cache, then the membership index
+        boolean hasAccess = tenantResolver.resolveByCode(tenantId)
+                .map(tenant -> membershipIndex.isMember(currentUserContext.getUserId(), tenant.id()))
+                .orElse(false);
 
         if (!hasAccess) {
             throw new AccessDeniedException("You don't have access to this tenant");
         }
     }
-
-    private User getCurrentUser() {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        if (principal instanceof CustomUserDetailsService.UserPrincipal) {
-            String email = ((CustomUserDetailsService.UserPrincipal) principal).getUsername();
-            // This would need a UserRepository injection to fetch the full user
-            // For now, we'll use a simplified approach
-            User user = new User();
-            user.setRole(Role.SUPER_ADMIN); // Default for demo
-            return user;
-        }
-        throw new IllegalStateException("User not authenticated");
-    }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.dascribs.coreauth.service.tenant;
+
+import com.dascribs.coreauth.entity.tenant.TenantStatsSnapshot;
+import com.dascribs.coreauth.repository.TenantRepository;
+import com.dascribs.coreauth.repository.TenantStatsSnapshotRepository;
+import com.dascribs.coreauth.security.CurrentUserContext;
+import com.dascribs.shared.exception.AccessDeniedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves tenant stats from the tenant_stats_snapshots row, through a short-lived in-memory copy.
+ * TenantUsageService marks a snapshot dirty whenever users or properties of the tenant change;
+ * a dirty snapshot is still served until it is older than the max staleness, and the refresh
+ * scheduler recomputes dirty snapshots in the background so reads rarely have to.
+ */
+@Service
+@Transactional
+public class TenantStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantStatsService.class);
+
+    @Autowired
+    private TenantStatsSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private CurrentUserContext currentUserContext;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.tenants.stats.max-staleness-seconds:300}")
+    private long maxStalenessSeconds;
+
+    @Value("${app.tenants.stats.cache-ttl-seconds:30}")
+    private long cacheTtlSeconds;
+
+    @Value("${app.tenants.stats.refresh-batch-size:100}")
+    private int refreshBatchSize;
+
+    private record CachedSnapshot(TenantStatsSnapshot snapshot, long expiresAt) {}
+
+    private final Map<Long, CachedSnapshot> cache = new ConcurrentHashMap<>();
+
+    public TenantStatsSnapshot getTenantStats(Long tenantId) {
+        if (!currentUserContext.isSuperAdmin()) {
+            throw new AccessDeniedException("Only super administrators can access tenant stats");
+        }
+
+        long now = System.currentTimeMillis();
+        CachedSnapshot cached = cache.get(tenantId);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.snapshot();
+        }
+
+        TenantStatsSnapshot snapshot = snapshotRepository.findWithTenantById(tenantId)
+                .filter(this::isFreshEnough)
+                .orElseGet(() -> {
+                    if (!tenantRepository.existsById(tenantId)) {
+                        throw new IllegalArgumentException("Tenant not found with id: " + tenantId);
+                    }
+                    refresh(tenantId);
+                    return snapshotRepository.findWithTenantById(tenantId)
+                            .orElseThrow(() -> new IllegalStateException("Stats snapshot missing for tenant: " + tenantId));
+                });
+
+        // Never cache longer than a dirty snapshot may be served
+        long ttlSeconds = Math.min(cacheTtlSeconds, maxStalenessSeconds);
+        cache.put(tenantId, new CachedSnapshot(snapshot, now + ttlSeconds * 1000));
+        return snapshot;
+    }
+
+    /**
+     * Recomputes dirty snapshots in key order, one short transaction each, and returns how many were refreshed.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int refreshDirtySnapshots() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long afterId = 0;
+        int refreshed = 0;
+        List<Long> batch;
+        do {
+            batch = snapshotRepository.findDirtyTenantIds(afterId, PageRequest.of(0, refreshBatchSize));
+            for (Long tenantId : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> refresh(tenantId));
+                    cache.remove(tenantId);
+                    refreshed++;
+                } catch (RuntimeException e) {
+                    logger.error("Failed to refresh stats snapshot for tenant {}", tenantId, e);
+                }
+                afterId = tenantId;
+            }
+        } while (batch.size() == refreshBatchSize);
+
+        if (refreshed > 0) {
+            logger.debug("Refreshed {} tenant stats snapshots", refreshed);
+        }
+        return refreshed;
+    }
+
+    public void evict(Long tenantId) {
+        cache.remove(tenantId);
+    }
+
+    private void refresh(Long tenantId) {
+        // Read the change sequence before counting: a change committing after this read leaves the row dirty
+        long changeSeq = snapshotRepository.findChangeSeq(tenantId);
+        snapshotRepository.refresh(tenantId, changeSeq);
+    }
+
+    private boolean isFreshEnough(TenantStatsSnapshot snapshot) {
+        return !snapshot.isDirty() ||
+                snapshot.getSnapshotAt().isAfter(LocalDateTime.now().minusSeconds(maxStalenessSeconds));
+    }
+}
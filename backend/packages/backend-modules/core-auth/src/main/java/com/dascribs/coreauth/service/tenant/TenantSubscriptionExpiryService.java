@@ -0,0 +1,148 @@
+package com.dascribs.coreauth.service.tenant;
+
+import com.dascribs.coreauth.entity.tenant.Tenant;
+import com.dascribs.coreauth.entity.tenant.Tenant.SubscriptionStage;
+import com.dascribs.coreauth.entity.user.Role;
+import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.coreauth.repository.TenantRepository;
+import com.dascribs.coreauth.repository.UserRepository;
+import com.dascribs.coreauth.service.email.EmailService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves tenants through warn, grace and suspend as their subscriptions run out.
+ * Tenant admins are emailed through the outbox when the warn and grace stages begin.
+ * Each tenant carries the time of its next transition, so a run only reads tenants that
+ * became due since the previous one, in index order and in small batches. Every transition
+ * is a conditional UPDATE in its own transaction: reruns, concurrent nodes and renewals
+ * racing the scanner cannot apply a stage twice.
+ */
+@Service
+public class TenantSubscriptionExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantSubscriptionExpiryService.class);
+
+    private static final LocalDateTime CURSOR_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private TenantService tenantService;
+
+    @Autowired
+    private TenantSubscriptionPolicy subscriptionPolicy;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.tenants.subscription.batch-size:200}")
+    private int batchSize;
+
+    public int processDueSubscriptions() {
+        LocalDateTime now = LocalDateTime.now();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // The cursor moves past every row it reads, so rescheduled or failed rows wait for the next run
+        LocalDateTime afterCheckAt = CURSOR_START;
+        long afterId = 0;
+        int transitions = 0;
+        List<TenantRepository.DueSubscription> batch;
+        do {
+            batch = tenantRepository.findDueSubscriptions(now, afterCheckAt, afterId, PageRequest.of(0, batchSize));
+            for (TenantRepository.DueSubscription due : batch) {
+                try {
+                    Boolean advanced = transactionTemplate.execute(status -> advance(due, now));
+                    if (Boolean.TRUE.equals(advanced)) {
+                        transitions++;
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Subscription expiry check failed for tenant {}", due.getId(), e);
+                }
+                afterCheckAt = due.getSubscriptionCheckAt();
+                afterId = due.getId();
+            }
+        } while (batch.size() == batchSize);
+
+        if (transitions > 0) {
+            logger.info("Subscription expiry scan moved {} tenants to a new stage", transitions);
+        }
+        return transitions;
+    }
+
+    private boolean advance(TenantRepository.DueSubscription due, LocalDateTime now) {
+        SubscriptionStage current = due.getSubscriptionStage();
+        SubscriptionStage target = due.getSubscriptionEndsAt() == null
+                ? current
+                : subscriptionPolicy.stageAt(due.getSubscriptionEndsAt(), now);
+        // Never move backwards: only a renewal resets the stage
+        if (target.compareTo(current) < 0) {
+            target = current;
+        }
+        LocalDateTime nextCheckAt = due.getSubscriptionEndsAt() == null
+                ? null
+                : subscriptionPolicy.nextCheckAt(due.getSubscriptionEndsAt(), target);
+
+        if (tenantRepository.advanceSubscriptionStage(
+                due.getId(), current, due.getSubscriptionCheckAt(), target, nextCheckAt) == 0) {
+            return false;
+        }
+        if (target == current) {
+            return false;
+        }
+
+        switch (target) {
+            case WARNED -> {
+                logger.info("Subscription of tenant {} ends at {}", due.getId(), due.getSubscriptionEndsAt());
+                notifyAdmins(due.getId(), "Your DaScribs subscription ends soon",
+                        "The subscription of %s ends on %s. Renew it to keep your team's access."
+                                .formatted(tenantName(due.getId()), due.getSubscriptionEndsAt().toLocalDate()));
+            }
+            case GRACE -> {
+                logger.warn("Subscription of tenant {} ended at {}, grace period started",
+                        due.getId(), due.getSubscriptionEndsAt());
+                LocalDateTime suspendAt = subscriptionPolicy.nextCheckAt(due.getSubscriptionEndsAt(), SubscriptionStage.GRACE);
+                notifyAdmins(due.getId(), "Your DaScribs subscription has ended",
+                        "The subscription of %s ended on %s. Access will be suspended on %s unless it is renewed."
+                                .formatted(tenantName(due.getId()), due.getSubscriptionEndsAt().toLocalDate(),
+                                        suspendAt.toLocalDate()));
+            }
+            case SUSPENDED -> {
+                tenantService.suspendExpiredTenant(due.getId());
+                logger.warn("Suspended tenant {}: subscription ended at {}", due.getId(), due.getSubscriptionEndsAt());
+            }
+            default -> {
+            }
+        }
+        return true;
+    }
+
+    // Enqueued in the transition's transaction, so a rolled-back transition sends nothing
+    private void notifyAdmins(Long tenantId, String subject, String message) {
+        for (User admin : userRepository.findByTenantIdAndRole(tenantId, Role.ADMIN)) {
+            if (admin.isActive()) {
+                emailService.sendTenantNotification(admin, subject, message);
+            }
+        }
+    }
+
+    private String tenantName(Long tenantId) {
+        return tenantRepository.findById(tenantId).map(Tenant::getName).orElse("your workspace");
+    }
+}
@@ -0,0 +1,67 @@
+package com.dascribs.coreauth.service.tenant;
+
+import com.dascribs.coreauth.entity.tenant.Tenant;
+import com.dascribs.coreauth.entity.tenant.Tenant.SubscriptionStage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Expiry timeline of a subscription: warned some days before it ends, a grace period after,
+ * then suspended. Works out which stage a tenant belongs in and when it next needs a look.
+ */
+@Component
+public class TenantSubscriptionPolicy {
+
+    @Value("${app.tenants.subscription.warn-days:7}")
+    private int warnDays;
+
+    @Value("${app.tenants.subscription.grace-days:7}")
+    private int graceDays;
+
+    public SubscriptionStage stageAt(LocalDateTime endsAt, LocalDateTime now) {
+        if (now.isBefore(endsAt.minusDays(warnDays))) {
+            return SubscriptionStage.ACTIVE;
+        }
+        if (now.isBefore(endsAt)) {
+            return SubscriptionStage.WARNED;
+        }
+        if (now.isBefore(endsAt.plusDays(graceDays))) {
+            return SubscriptionStage.GRACE;
+        }
+        return SubscriptionStage.SUSPENDED;
+    }
+
+    // When a tenant in the given stage moves on to the next one; null once suspended
+    public LocalDateTime nextCheckAt(LocalDateTime endsAt, SubscriptionStage stage) {
+        return switch (stage) {
+            case ACTIVE -> endsAt.minusDays(warnDays);
+            case WARNED -> endsAt;
+            case GRACE -> endsAt.plusDays(graceDays);
+            case SUSPENDED -> null;
+        };
+    }
+
+    /**
+     * Starts the timeline over from the tenant's current end date. Tenants without an end date never expire.
+     */
+    public void schedule(Tenant tenant) {
+        tenant.setSubscriptionStage(SubscriptionStage.ACTIVE);
+        tenant.setSubscriptionCheckAt(tenant.getSubscriptionEndsAt() == null
+                ? null
+                : nextCheckAt(tenant.getSubscriptionEndsAt(), SubscriptionStage.ACTIVE));
+    }
+
+    /**
+     * Applies a new end date. A tenant the scanner suspended comes back once its subscription runs again.
+     */
+    public void renew(Tenant tenant, LocalDateTime endsAt) {
+        boolean suspendedForExpiry = tenant.getSubscriptionStage() == SubscriptionStage.SUSPENDED;
+        tenant.setSubscriptionEndsAt(endsAt);
+        schedule(tenant);
+        if (suspendedForExpiry && endsAt.isAfter(LocalDateTime.now())) {
+            tenant.setActive(true);
+        }
+    }
+}
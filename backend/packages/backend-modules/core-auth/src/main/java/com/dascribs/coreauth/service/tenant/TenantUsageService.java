@@ -0,0 +1,91 @@
+package com.dascribs.coreauth.service.tenant;
+
+import com.dascribs.coreauth.repository.TenantRepository;
+import com.dascribs.coreauth.repository.TenantStatsSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the denormalized usage counters on tenants in step with users and tenant links,
+ * and marks the tenant's stats snapshot dirty on every change it records.
+ * Every check-and-increment is a single conditional UPDATE, so limits hold under concurrency.
+ * Callers run inside their own transaction; a rejected reservation throws and rolls it back.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class TenantUsageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantUsageService.class);
+
+    public static final String USER_LIMIT_MESSAGE = "Tenant user limit reached. Please upgrade your plan.";
+    public static final String PROPERTY_LIMIT_MESSAGE = "Tenant property limit reached. Please upgrade your plan.";
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private TenantStatsSnapshotRepository statsSnapshotRepository;
+
+    public void reserveUserSlots(Long tenantId, int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (tenantRepository.tryReserveUserSlots(tenantId, count) == 0) {
+            throw new IllegalArgumentException(USER_LIMIT_MESSAGE);
+        }
+        statsSnapshotRepository.markDirty(tenantId);
+    }
+
+    public void reservePropertySlot(Long tenantId) {
+        if (tenantRepository.tryReservePropertySlot(tenantId) == 0) {
+            throw new IllegalArgumentException(PROPERTY_LIMIT_MESSAGE);
+        }
+        statsSnapshotRepository.markDirty(tenantId);
+    }
+
+    public void releasePropertySlot(Long tenantId) {
+        tenantRepository.releasePropertySlot(tenantId);
+        statsSnapshotRepository.markDirty(tenantId);
+    }
+
+    /**
+     * Applies an activation or deactivation of the given users to every tenant they belong to.
+     * Activations are rejected as a whole if any tenant would exceed its user limit.
+     */
+    public void onUsersStatusChanged(Collection<Long> userIds, boolean active) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        int delta = active ? 1 : -1;
+        int adjusted = tenantRepository.adjustActiveUserCounts(userIds, delta);
+        if (active && adjusted < tenantRepository.countTenantsOfUsers(userIds)) {
+            throw new IllegalArgumentException(USER_LIMIT_MESSAGE);
+        }
+        statsSnapshotRepository.markDirtyForUsers(userIds);
+    }
+
+    public void onUserStatusChanged(Long userId, boolean active) {
+        onUsersStatusChanged(List.of(userId), active);
+    }
+
+    /**
+     * Recomputes active user counts from memberships to repair any drift.
+     * Property counts are owned by the property module, which has no table in this schema yet.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public int reconcile() {
+        int fixed = tenantRepository.reconcileActiveUserCounts();
+        if (fixed > 0) {
+            logger.warn("Tenant usage reconciliation corrected active user counts for {} tenants", fixed);
+        }
+        return fixed;
+    }
+}
@@ -0,0 +1,587 @@
+package com.dascribs.coreauth.service.user;
+
+import com.dascribs.coreauth.dto.user.UserCreateRequest;
+import com.dascribs.coreauth.dto.user.UserImportReport;
+import com.dascribs.coreauth.dto.user.UserImportReport.RowResult;
+import com.dascribs.coreauth.dto.user.UserImportReport.RowStatus;
+import com.dascribs.coreauth.entity.user.Role;
+import com.dascribs.coreauth.entity.user.User;
+import com.dascribs.coreauth.repository.TenantRepository;
+import com.dascribs.coreauth.repository.UserRepository;
+import com.dascribs.coreauth.security.CurrentUserContext;
+import com.dascribs.coreauth.service.auth.ActionTokenSigner;
+import com.dascribs.coreauth.service.email.EmailService;
+import com.dascribs.coreauth.service.tenant.TenantUsageService;
+import com.dascribs.shared.exception.AccessDeniedException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk user onboarding. The upload is read line by line and processed in fixed-size chunks:
+ * one duplicate-check query per chunk, password hashing on a bounded pool, and JDBC batch inserts
+ * for users, tenant links and invite tokens in one transaction per chunk. A chunk the database or
+ * the tenant's user limit rejects is retried row by row, so one bad row does not fail its neighbours.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    // Must match the allocationSize of the users_id_seq generator on User
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final String ALLOCATE_USER_IDS_SQL =
+            "SELECT nextval('users_id_seq') FROM generate_series(1, ?)";
+
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO users (id, full_name, email, password, phone, role, salary, commission_rate, " +
+                    "tenant_id, active, email_verified, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, CAST(? AS user_role), ?, ?, ?, true, false, ?, ?)";
+
+    private static final String INSERT_USER_TENANT_SQL =
+            "INSERT INTO user_tenants (user_id, tenant_id, is_primary, created_at) VALUES (?, ?, false, ?)";
+
+    private static final String INSERT_INVITE_TOKEN_SQL =
+            "INSERT INTO password_reset_tokens (user_id, token, expires_at, used, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, false, ?, ?)";
+
+    public enum ImportFormat {
+        CSV, NDJSON
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CurrentUserContext currentUserContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private TenantUsageService tenantUsageService;
+
+    @Autowired
+    private ActionTokenSigner tokenSigner;
+
+    @Value("${app.users.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.users.import.hash-threads:0}")
+    private int hashThreads;
+
+    @Value("${app.users.import.invite-expiry-hours:72}")
+    private int inviteExpiryHours;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private ExecutorService hashExecutor;
+
+    @PostConstruct
+    void startHashPool() {
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        hashExecutor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(chunkSize, 1)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-import-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    @PreDestroy
+    void stopHashPool() {
+        hashExecutor.shutdown();
+    }
+
+    public UserImportReport importUsers(InputStream input, ImportFormat format, Long requestedTenantId) throws IOException {
+        long startedAt = System.currentTimeMillis();
+
+        Long tenantId = resolveTargetTenant(requestedTenantId);
+        Map<Role, Boolean> allowedRoles = new EnumMap<>(Role.class);
+        for (Role role : Role.values()) {
+            allowedRoles.put(role, userService.canCreateRole(role));
+        }
+
+        // Invited users share one hash of a random secret nobody knows; they set a password via the invite link
+        String invitePasswordHash = passwordEncoder.encode(generateToken());
+
+        UserImportReport report = new UserImportReport();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            RowReader rows = format == ImportFormat.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader);
+
+            List<ImportRow> chunk = new ArrayList<>(chunkSize);
+            ImportRow row;
+            while ((row = rows.next()) != null) {
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    processChunk(chunk, tenantId, allowedRoles, invitePasswordHash, transactionTemplate, report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(chunk, tenantId, allowedRoles, invitePasswordHash, transactionTemplate, report);
+            }
+        }
+
+        report.setDurationMillis(System.currentTimeMillis() - startedAt);
+        logger.info("User import finished: {} rows, {} created, {} invited, {} duplicates, {} invalid, {} failed in {} ms",
+                report.getTotalRows(), report.getCreated(), report.getInvited(), report.getDuplicates(),
+                report.getInvalid(), report.getFailed(), report.getDurationMillis());
+        return report;
+    }
+
+    private Long resolveTargetTenant(Long requestedTenantId) {
+        if (currentUserContext.isSuperAdmin()) {
+            if (requestedTenantId != null && !tenantRepository.existsById(requestedTenantId)) {
+                throw new IllegalArgumentException("Tenant not found with id: " + requestedTenantId);
+            }
+            return requestedTenantId;
+        }
+
+        Long ownTenantId = currentUserContext.requireTenantId();
+        if (requestedTenantId != null && !requestedTenantId.equals(ownTenantId)) {
+            throw new AccessDeniedException("You can only import users into your own tenant");
+        }
+        return ownTenantId;
+    }
+
+    private void processChunk(List<ImportRow> chunk, Long tenantId, Map<Role, Boolean> allowedRoles,
+                              String invitePasswordHash, TransactionTemplate transactionTemplate,
+                              UserImportReport report) {
+        RowResult[] results = new RowResult[chunk.size()];
+        List<Candidate> candidates = new ArrayList<>(chunk.size());
+        Set<String> seenEmails = new HashSet<>();
+
+        // Validate rows and drop duplicates within the chunk
+        for (int i = 0; i < chunk.size(); i++) {
+            ImportRow row = chunk.get(i);
+            String error = row.error() != null ? row.error() : validate(row.request(), allowedRoles);
+            String email = row.request() != null ? row.request().getEmail() : null;
+
+            if (error != null) {
+                results[i] = new RowResult(row.rowNumber(), email, RowStatus.INVALID, null, error);
+            } else if (!seenEmails.add(email)) {
+                results[i] = new RowResult(row.rowNumber(), email, RowStatus.DUPLICATE, null, "Duplicate email in import file");
+            } else {
+                candidates.add(new Candidate(i, row));
+            }
+        }
+
+        // One query for the whole chunk instead of existsByEmail per row
+        if (!candidates.isEmpty()) {
+            Set<String> existing = new HashSet<>(userRepository.findExistingEmails(
+                    candidates.stream().map(c -> c.request().getEmail()).collect(Collectors.toList())));
+            candidates.removeIf(candidate -> {
+                if (existing.contains(candidate.request().getEmail())) {
+                    results[candidate.index] = new RowResult(candidate.row.rowNumber(), candidate.request().getEmail(),
+                            RowStatus.DUPLICATE, null, "Email already exists");
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        hashPasswords(candidates, invitePasswordHash, results);
+        candidates.removeIf(candidate -> results[candidate.index] != null);
+
+        if (!candidates.isEmpty()) {
+            try {
+                insertCandidates(candidates, tenantId, transactionTemplate, results);
+            } catch (IllegalArgumentException | DataAccessException e) {
+                // The user limit or one concurrent signup would otherwise fail every row of the chunk
+                logger.warn("User import chunk of {} rejected, retrying row by row: {}", candidates.size(), rejection(e));
+                for (Candidate candidate : candidates) {
+                    insertAlone(candidate, tenantId, transactionTemplate, results);
+                }
+            }
+        }
+
+        for (RowResult result : results) {
+            report.record(result);
+        }
+    }
+
+    // Invitations go to the outbox in the same transaction, so they exist only for committed users
+    private void insertCandidates(List<Candidate> candidates, Long tenantId, TransactionTemplate transactionTemplate,
+                                  RowResult[] results) {
+        transactionTemplate.executeWithoutResult(status -> {
+            insertChunk(candidates, tenantId);
+            sendInvitations(candidates, tenantId);
+        });
+        for (Candidate candidate : candidates) {
+            RowStatus status = candidate.invited ? RowStatus.INVITED : RowStatus.CREATED;
+            results[candidate.index] = new RowResult(candidate.row.rowNumber(), candidate.request().getEmail(),
+                    status, candidate.userId, null);
+        }
+    }
+
+    private void insertAlone(Candidate candidate, Long tenantId, TransactionTemplate transactionTemplate,
+                             RowResult[] results) {
+        String email = candidate.request().getEmail();
+        try {
+            insertCandidates(List.of(candidate), tenantId, transactionTemplate, results);
+        } catch (DuplicateKeyException e) {
+            results[candidate.index] = new RowResult(candidate.row.rowNumber(), email,
+                    RowStatus.DUPLICATE, null, "Email already exists");
+        } catch (IllegalArgumentException e) {
+            results[candidate.index] = new RowResult(candidate.row.rowNumber(), email,
+                    RowStatus.FAILED, null, e.getMessage());
+        } catch (DataAccessException e) {
+            results[candidate.index] = new RowResult(candidate.row.rowNumber(), email,
+                    RowStatus.FAILED, null, "Rejected by database: " + rejection(e));
+        }
+    }
+
+    private static String rejection(RuntimeException e) {
+        return e instanceof DataAccessException dataAccess ? dataAccess.getMostSpecificCause().getMessage() : e.getMessage();
+    }
+
+    private String validate(UserCreateRequest request, Map<Role, Boolean> allowedRoles) {
+        boolean invite = isBlank(request.getPassword());
+
+        for (ConstraintViolation<UserCreateRequest> violation : validator.validate(request)) {
+            // A missing password means the user is invited to set one
+            if (invite && "password".equals(violation.getPropertyPath().toString())) {
+                continue;
+            }
+            return violation.getPropertyPath() + ": " + violation.getMessage();
+        }
+
+        if (!request.isValidForRole()) {
+            return "Invalid role configuration";
+        }
+        if (!allowedRoles.getOrDefault(request.getRole(), false)) {
+            return "You don't have permission to create users with role: " + request.getRole();
+        }
+        return null;
+    }
+
+    private void hashPasswords(List<Candidate> candidates, String invitePasswordHash, RowResult[] results) {
+        List<Future<String>> hashes = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            String password = candidate.request().getPassword();
+            if (isBlank(password)) {
+                candidate.invited = true;
+                hashes.add(null);
+            } else {
+                hashes.add(hashExecutor.submit(() -> passwordEncoder.encode(password)));
+            }
+        }
+
+        for (int i = 0; i < candidates.size(); i++) {
+            Candidate candidate = candidates.get(i);
+            Future<String> hash = hashes.get(i);
+            if (hash == null) {
+                candidate.passwordHash = invitePasswordHash;
+                continue;
+            }
+            try {
+                candidate.passwordHash = hash.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("User import interrupted");
+            } catch (ExecutionException e) {
+                results[candidate.index] = new RowResult(candidate.row.rowNumber(), candidate.request().getEmail(),
+                        RowStatus.FAILED, null, "Password hashing failed");
+            }
+        }
+    }
+
+    private void insertChunk(List<Candidate> candidates, Long tenantId) {
+        if (tenantId != null) {
+            tenantUsageService.reserveUserSlots(tenantId, candidates.size());
+        }
+
+        // Pre-allocate ids in one round-trip so users and their links can be batched together.
+        // Each nextval is the top of a pooled block, the same contract Hibernate uses for User.
+        int blocks = (candidates.size() + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+        List<Long> blockTops = jdbcTemplate.queryForList(ALLOCATE_USER_IDS_SQL, Long.class, blocks);
+        for (int i = 0; i < candidates.size(); i++) {
+            long blockTop = blockTops.get(i / ID_BLOCK_SIZE);
+            candidates.get(i).userId = blockTop - ID_BLOCK_SIZE + 1 + (i % ID_BLOCK_SIZE);
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_USER_SQL, candidates, chunkSize, (ps, candidate) -> {
+            UserCreateRequest request = candidate.request();
+            ps.setLong(1, candidate.userId);
+            ps.setString(2, request.getFullName());
+            ps.setString(3, request.getEmail());
+            ps.setString(4, candidate.passwordHash);
+            ps.setString(5, request.getPhone());
+            ps.setString(6, request.getRole().name());
+            ps.setBigDecimal(7, request.getSalary());
+            ps.setBigDecimal(8, request.getCommissionRate());
+            ps.setObject(9, tenantId, Types.BIGINT);
+            ps.setTimestamp(10, now);
+            ps.setTimestamp(11, now);
+        });
+
+        if (tenantId != null) {
+            jdbcTemplate.batchUpdate(INSERT_USER_TENANT_SQL, candidates, chunkSize, (ps, candidate) -> {
+                ps.setLong(1, candidate.userId);
+                ps.setLong(2, tenantId);
+                ps.setTimestamp(3, now);
+            });
+        }
+
+        List<Candidate> invited = candidates.stream()
+                .filter(candidate -> candidate.invited)
+                .collect(Collectors.toList());
+        if (!invited.isEmpty()) {
+            // Invites are password reset tokens: signed for the new user id, with only the nonce stored
+            LocalDateTime expiresAt = LocalDateTime.now().plusHours(inviteExpiryHours);
+            for (Candidate candidate : invited) {
+                ActionTokenSigner.Claims claims = tokenSigner.issue(
+                        candidate.userId, ActionTokenSigner.Purpose.PASSWORD_RESET, expiresAt);
+                candidate.inviteNonce = claims.nonce();
+                candidate.inviteToken = tokenSigner.sign(claims);
+            }
+            jdbcTemplate.batchUpdate(INSERT_INVITE_TOKEN_SQL, invited, chunkSize, (ps, candidate) -> {
+                ps.setLong(1, candidate.userId);
+                ps.setString(2, candidate.inviteNonce);
+                ps.setTimestamp(3, Timestamp.valueOf(expiresAt));
+                ps.setTimestamp(4, now);
+                ps.setTimestamp(5, now);
+            });
+        }
+    }
+
+    private void sendInvitations(List<Candidate> candidates, Long tenantId) {
+        for (Candidate candidate : candidates) {
+            if (candidate.inviteToken == null) {
+                continue;
+            }
+            User user = new User();
+            user.setId(candidate.userId);
+            user.setTenantId(tenantId);
+            user.setFullName(candidate.request().getFullName());
+            user.setEmail(candidate.request().getEmail());
+            emailService.sendUserInvitationEmail(user, candidate.inviteToken);
+        }
+    }
+
+    private String generateToken() {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    // Row parsing
+
+    private record ImportRow(int rowNumber, UserCreateRequest request, String error) {}
+
+    private static final class Candidate {
+        private final int index;
+        private final ImportRow row;
+        private Long userId;
+        private String passwordHash;
+        private boolean invited;
+        private String inviteNonce;
+        private String inviteToken;
+
+        private Candidate(int index, ImportRow row) {
+            this.index = index;
+            this.row = row;
+        }
+
+        private UserCreateRequest request() {
+            return row.request();
+        }
+    }
+
+    private interface RowReader {
+        ImportRow next() throws IOException;
+    }
+
+    private final class NdjsonRowReader implements RowReader {
+        private final BufferedReader reader;
+        private int rowNumber;
+
+        private NdjsonRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                rowNumber++;
+                try {
+                    UserCreateRequest request = objectMapper.readValue(line, UserCreateRequest.class);
+                    normalizeEmail(request);
+                    return new ImportRow(rowNumber, request, null);
+                } catch (JsonProcessingException e) {
+                    return new ImportRow(rowNumber, null, "Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class CsvRowReader implements RowReader {
+        private final BufferedReader reader;
+        private final List<String> columns;
+        private int rowNumber;
+
+        private CsvRowReader(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            String header = reader.readLine();
+            this.columns = header == null ? List.of() : parseCsvLine(header).stream()
+                    .map(column -> column.trim().replace("_", "").toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                rowNumber++;
+                List<String> values = parseCsvLine(line);
+                UserCreateRequest request = new UserCreateRequest();
+                for (int i = 0; i < columns.size() && i < values.size(); i++) {
+                    String value = values.get(i).trim();
+                    if (value.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        applyColumn(request, columns.get(i), value);
+                    } catch (IllegalArgumentException e) {
+                        return new ImportRow(rowNumber, request, "Invalid value for column " + columns.get(i) + ": " + value);
+                    }
+                }
+                normalizeEmail(request);
+                return new ImportRow(rowNumber, request, null);
+            }
+            return null;
+        }
+
+        private static void applyColumn(UserCreateRequest request, String column, String value) {
+            switch (column) {
+                case "fullname", "name" -> request.setFullName(value);
+                case "email" -> request.setEmail(value);
+                case "password" -> request.setPassword(value);
+                case "phone" -> request.setPhone(value);
+                case "role" -> request.setRole(Role.valueOf(value.toUpperCase(Locale.ROOT)));
+                case "salary" -> request.setSalary(new BigDecimal(value));
+                case "commissionrate" -> request.setCommissionRate(new BigDecimal(value));
+                default -> {
+                    // Unknown columns are ignored
+                }
+            }
+        }
+
+        private static List<String> parseCsvLine(String line) {
+            List<String> values = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            values.add(current.toString());
+            return values;
+        }
+    }
+
+    private static void normalizeEmail(UserCreateRequest request) {
+        request.setEmail(User.normalizeEmail(request.getEmail()));
+    }
+}
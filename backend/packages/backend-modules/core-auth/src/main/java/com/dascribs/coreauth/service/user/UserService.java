@@ -1,6 +1,8 @@
 package com.dascribs.coreauth.service.user;
 
 
+import com.dascribs.coreauth.dto.user.BulkUserUpdateRequest;
+import com.dascribs.coreauth.dto.user.BulkUserUpdateResult;
 import com.dascribs.coreauth.dto.user.UserCreateRequest;
 import com.dascribs.coreauth.dto.user.UserResponse;
 import com.dascribs.coreauth.dto.user.UserUpdateRequest;
@@ -11,19 +13,29 @@ import com.dascribs.coreauth.entity.user.User;
 import com.dascribs.coreauth.entity.user.UserTenant;
 import com.dascribs.coreauth.repository.TenantRepository;
 import com.dascribs.coreauth.repository.UserRepository;
+import com.dascribs.coreauth.repository.UserSessionRepository;
 import com.dascribs.coreauth.repository.UserTenantRepository;
-import com.dascribs.coreauth.security.UserPrincipal;
+import com.dascribs.coreauth.security.CurrentUserContext;
+import com.dascribs.coreauth.service.media.MediaStorageService;
+import com.dascribs.coreauth.service.tenant.TenantMembershipIndex;
+import com.dascribs.coreauth.service.tenant.TenantUsageService;
 import com.dascribs.shared.exception.AccessDeniedException;
 import com.dascribs.shared.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -43,38 +55,41 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
-    public Page<UserResponse> getAllUsers(Pageable pageable) {
-        User currentUser = getCurrentUser();
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private CurrentUserContext currentUserContext;
+
+    @Autowired
+    private TenantUsageService tenantUsageService;
+
+    @Autowired
+    private TenantMembershipIndex membershipIndex;
+
+    @Autowired
+    private MediaStorageService mediaStorageService;
 
+    public Page<UserResponse> getAllUsers(Pageable pageable) {
         // Apply tenant filtering for non-super-admins
-        if (currentUser.getRole() == Role.SUPER_ADMIN) {
+        if (currentUserContext.isSuperAdmin()) {
             return userRepository.findAll(pageable).map(this::enrichUserResponse);
-        } else {
-            // Get user's tenants and filter by them
-            Optional<UserTenant> primaryTenant = userTenantRepository.findPrimaryTenantByUserId(currentUser.getId());
-            if (primaryTenant.isPresent()) {
-                Long tenantId = primaryTenant.get().getTenant().getId();
-                return userRepository.findByTenantId(tenantId, pageable).map(this::enrichUserResponse);
-            } else {
-                throw new AccessDeniedException("User is not associated with any tenant");
-            }
         }
+
+        Long tenantId = currentUserContext.requireTenantId();
+        return userRepository.findByTenantId(tenantId, pageable).map(this::enrichUserResponse);
     }
 
     public Page<UserResponse> getActiveUsers(Pageable pageable) {
-        User currentUser = getCurrentUser();
-
-        if (currentUser.getRole() == Role.SUPER_ADMIN) {
+        if (currentUserContext.isSuperAdmin()) {
             return userRepository.findByActiveTrue(pageable).map(this::enrichUserResponse);
-        } else {
-            Optional<UserTenant> primaryTenant = userTenantRepository.findPrimaryTenantByUserId(currentUser.getId());
-            if (primaryTenant.isPresent()) {
-                Long tenantId = primaryTenant.get().getTenant().getId();
-                return userRepository.findByTenantIdAndActive(tenantId, true, pageable).map(this::enrichUserResponse);
-            } else {
-                throw new AccessDeniedException("User is not associated with any tenant");
-            }
         }
+
+        Long tenantId = currentUserContext.requireTenantId();
+        return userRepository.findByTenantIdAndActive(tenantId, true, pageable).map(this::enrichUserResponse);
     }
 
     public UserResponse getUserById(Long id) {
@@ -93,18 +108,11 @@ public class UserService {
     }
 
     public UserResponse createUser(UserCreateRequest request) {
-        User currentUser = getCurrentUser();
-
         // Check permissions
-        if (!canCreateRole(currentUser, request.getRole())) {
+        if (!canCreateRole(request.getRole())) {
             throw new AccessDeniedException("You don't have permission to create users with role: " + request.getRole());
         }
 
-        // Check if email already exists
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new IllegalArgumentException("Email already exists");
-        }
-
         // Validate role-specific requirements
         if (!request.isValidForRole()) {
             throw new IllegalArgumentException("Invalid role configuration");
@@ -112,23 +120,26 @@ public class UserService {
 
         // For non-super-admins, associate with current tenant
         Tenant tenant = null;
-        if (currentUser.getRole() != Role.SUPER_ADMIN) {
-            tenant = getCurrentUserTenant(currentUser);
+        if (!currentUserContext.isSuperAdmin()) {
+            tenant = getCurrentUserTenant();
 
-            // Check tenant user limits
-            // if (tenantRepository.hasReachedUserLimit(tenant.getId())) {
-            //    throw new IllegalArgumentException("Tenant user limit reached. Please upgrade your plan.");
-            // }
+            // Check and reserve tenant user limit in one statement
+            tenantUsageService.reserveUserSlots(tenant.getId(), 1);
         }
 
         // Create user
-        User user = createUserFromRequest(request, currentUser);
-        User savedUser = userRepository.save(user);
+        User user = createUserFromRequest(request);
+        if (tenant != null) {
+            user.setTenantId(tenant.getId());
+        }
+        // Duplicate emails are rejected by the unique index
+        User savedUser = userRepository.insert(user);
 
         // Associate with tenant if applicable
         if (tenant != null) {
             UserTenant userTenant = new UserTenant(savedUser, tenant, false); // Not primary
             userTenantRepository.save(userTenant);
+            membershipIndex.evict(savedUser.getId());
         }
 
         return enrichUserResponse(savedUser);
@@ -138,19 +149,11 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException(id));
 
-        User currentUser = getCurrentUser();
-
         // Check permissions
-        if (!canModifyUser(currentUser, user)) {
+        if (!canModifyUser(user)) {
             throw new AccessDeniedException("You don't have permission to modify this user");
         }
 
-        // Check if email is changed and already exists
-        if (request.hasEmail() && !user.getEmail().equals(request.getEmail()) &&
-                userRepository.existsByEmail(request.getEmail())) {
-            throw new IllegalArgumentException("Email already exists");
-        }
-
         // Apply updates
         if (request.hasFullName()) {
             user.setFullName(request.getFullName());
@@ -163,7 +166,7 @@ public class UserService {
         }
         if (request.hasRole()) {
             // Check role modification permissions
-            if (!canModifyRole(currentUser, request.getRole())) {
+            if (!canModifyRole(request.getRole())) {
                 throw new AccessDeniedException("You don't have permission to assign role: " + request.getRole());
             }
             user.setRole(request.getRole());
@@ -176,13 +179,16 @@ public class UserService {
         }
         if (request.hasActive()) {
             // Check if user can deactivate this user
-            if (!canModifyUserStatus(currentUser, user)) {
+            if (!canModifyUserStatus(user)) {
                 throw new AccessDeniedException("You don't have permission to modify this user's status");
             }
+            if (user.isActive() != request.getActive()) {
+                tenantUsageService.onUserStatusChanged(user.getId(), request.getActive());
+            }
             user.setActive(request.getActive());
         }
 
-        User updatedUser = userRepository.save(user);
+        User updatedUser = request.hasEmail() ? userRepository.updateEmail(user) : userRepository.save(user);
         return enrichUserResponse(updatedUser);
     }
 
@@ -190,52 +196,44 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException(id));
 
-        User currentUser = getCurrentUser();
-
         // Check permissions
-        if (!canModifyUser(currentUser, user)) {
+        if (!canModifyUser(user)) {
             throw new AccessDeniedException("You don't have permission to delete this user");
         }
 
         // Prevent self-deletion
-        if (user.getId().equals(currentUser.getId())) {
+        if (user.getId().equals(currentUserContext.getUserId())) {
             throw new IllegalArgumentException("You cannot delete your own account");
         }
 
         // Soft delete - deactivate user
+        if (user.isActive()) {
+            tenantUsageService.onUserStatusChanged(user.getId(), false);
+        }
         user.setActive(false);
         userRepository.save(user);
     }
 
     public List<UserResponse> getUsersByRole(Role role) {
-        User currentUser = getCurrentUser();
-
-        if (currentUser.getRole() == Role.SUPER_ADMIN) {
+        if (currentUserContext.isSuperAdmin()) {
             return userRepository.findByRole(role).stream()
                     .map(this::enrichUserResponse)
                     .collect(Collectors.toList());
-        } else {
-            Optional<UserTenant> primaryTenant = userTenantRepository.findPrimaryTenantByUserId(currentUser.getId());
-            if (primaryTenant.isPresent()) {
-                Long tenantId = primaryTenant.get().getTenant().getId();
-                return userRepository.findByTenantIdAndRole(tenantId, role).stream()
-                        .map(this::enrichUserResponse)
-                        .collect(Collectors.toList());
-            } else {
-                throw new AccessDeniedException("User is not associated with any tenant");
-            }
         }
+
+        Long tenantId = currentUserContext.requireTenantId();
+        return userRepository.findByTenantIdAndRole(tenantId, role).stream()
+                .map(this::enrichUserResponse)
+                .collect(Collectors.toList());
     }
 
     public void updateUserPassword(Long id, String currentPassword, String newPassword) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException(id));
 
-        User currentUser = getCurrentUser();
-
         // Users can only change their own password, or admins can change any (with current password)
-        if (!currentUser.getId().equals(id)) {
-            if (currentUser.getRole() != Role.SUPER_ADMIN && currentUser.getRole() != Role.ADMIN) {
+        if (!currentUserContext.getUserId().equals(id)) {
+            if (!currentUserContext.isSuperAdmin() && !currentUserContext.isAdmin()) {
                 throw new AccessDeniedException("You can only change your own password");
             }
             // For admin changing another user's password, we might skip current password validation
@@ -255,33 +253,93 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException(id));
 
-        User currentUser = getCurrentUser();
-
-        // Users can only update their own profile image
-        if (!currentUser.getId().equals(id) &&
-                currentUser.getRole() != Role.SUPER_ADMIN &&
-                currentUser.getRole() != Role.ADMIN) {
-            throw new AccessDeniedException("You can only update your own profile image");
-        }
+        checkProfileImageAccess(id);
 
         user.setProfileImageUrl(imageUrl);
         userRepository.save(user);
     }
 
+    /**
+     * Stores an uploaded image and makes it the user's profile image. The upload is streamed to disk
+     * outside any transaction, so a slow client never holds a database connection.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String uploadUserProfileImage(Long id, InputStream image) throws IOException {
+        checkProfileImageAccess(id);
+        if (!userRepository.existsById(id)) {
+            throw new UserNotFoundException(id);
+        }
+
+        MediaStorageService.StoredMedia stored = mediaStorageService.store(image);
+        String imageUrl = mediaStorageService.urlFor(stored.name());
+        updateUserProfileImage(id, imageUrl);
+        return imageUrl;
+    }
+
+    public BulkUserUpdateResult bulkUpdateStatus(BulkUserUpdateRequest request) {
+        if (request.getActive() == null) {
+            throw new IllegalArgumentException("Target status (active) is required");
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource("active", request.getActive());
+        String where = buildBulkSelection(request, params);
+
+        // Only rows whose status actually changes are touched and returned
+        List<Long> updatedIds = namedParameterJdbcTemplate.queryForList(
+                "UPDATE users u SET active = :active, updated_at = CURRENT_TIMESTAMP " +
+                        where + " AND u.active <> :active RETURNING u.id",
+                params, Long.class);
+
+        tenantUsageService.onUsersStatusChanged(updatedIds, request.getActive());
+
+        int sessionsInvalidated = 0;
+        if (!request.getActive() && !updatedIds.isEmpty()) {
+            sessionsInvalidated = userSessionRepository.deleteAllByUserIdIn(updatedIds);
+        }
+
+        return new BulkUserUpdateResult(updatedIds, sessionsInvalidated);
+    }
+
+    public BulkUserUpdateResult bulkUpdateRole(BulkUserUpdateRequest request) {
+        if (request.getNewRole() == null) {
+            throw new IllegalArgumentException("Target role (newRole) is required");
+        }
+        if (!canModifyRole(request.getNewRole())) {
+            throw new AccessDeniedException("You don't have permission to assign role: " + request.getNewRole());
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource("newRole", request.getNewRole().name());
+        String where = buildBulkSelection(request, params);
+
+        List<Long> updatedIds = namedParameterJdbcTemplate.queryForList(
+                "UPDATE users u SET role = CAST(:newRole AS user_role), updated_at = CURRENT_TIMESTAMP " +
+                        where + " AND u.role <> CAST(:newRole AS user_role) RETURNING u.id",
+                params, Long.class);
+
+        // Sessions carry the old role's authorities, so force re-login
+        int sessionsInvalidated = updatedIds.isEmpty() ? 0 : userSessionRepository.deleteAllByUserIdIn(updatedIds);
+
+        return new BulkUserUpdateResult(updatedIds, sessionsInvalidated);
+    }
+
     // Helper methods
     public User getCurrentUser() {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        if (principal instanceof UserPrincipal) {
-            String email = ((UserPrincipal) principal).getUsername();
-            return userRepository.findByEmail(email)
-                    .orElseThrow(() -> new UserNotFoundException("Current user not found"));
-        }
-        throw new IllegalStateException("User not authenticated");
+        return userRepository.findById(currentUserContext.getUserId())
+                .orElseThrow(() -> new UserNotFoundException("Current user not found"));
+    }
+
+    public Long getCurrentUserId() {
+        return currentUserContext.getUserId();
     }
 
     private UserResponse enrichUserResponse(User user) {
         UserResponse response = new UserResponse(user);
 
+        Map<Integer, String> thumbnails = mediaStorageService.thumbnailUrlsFor(user.getProfileImageUrl());
+        if (!thumbnails.isEmpty()) {
+            response.setProfileImageThumbnails(thumbnails);
+        }
+
         // Add tenant information
         Optional<UserTenant> primaryTenant = userTenantRepository.findPrimaryTenantByUserId(user.getId());
         if (primaryTenant.isPresent()) {
@@ -292,7 +350,7 @@ public class UserService {
         return response;
     }
 
-    private User createUserFromRequest(UserCreateRequest request, User createdBy) {
+    private User createUserFromRequest(UserCreateRequest request) {
         User user = new User();
         user.setFullName(request.getFullName());
         user.setEmail(request.getEmail());
@@ -307,87 +365,143 @@ public class UserService {
         return user;
     }
 
-    private Tenant getCurrentUserTenant(User user) {
-        return userTenantRepository.findPrimaryTenantByUserId(user.getId())
-                .orElseThrow(() -> new AccessDeniedException("User is not associated with any tenant"))
-                .getTenant();
+    private Tenant getCurrentUserTenant() {
+        // Reference only - the tenant row is not loaded unless accessed
+        return tenantRepository.getReferenceById(currentUserContext.requireTenantId());
     }
 
     // Permission checking methods
-    private boolean canCreateRole(User currentUser, Role targetRole) {
-        if (currentUser.getRole() == Role.SUPER_ADMIN) {
+    public boolean canCreateRole(Role targetRole) {
+        if (currentUserContext.isSuperAdmin()) {
             return true;
         }
 
-        if (currentUser.getRole() == Role.ADMIN) {
+        if (currentUserContext.isAdmin()) {
             return targetRole == Role.AGENT || targetRole == Role.CLIENT;
         }
 
         return false;
     }
 
-    private boolean canModifyUser(User currentUser, User targetUser) {
-        if (currentUser.getRole() == Role.SUPER_ADMIN) {
+    private boolean canModifyUser(User targetUser) {
+        if (currentUserContext.isSuperAdmin()) {
             return true;
         }
 
-        if (currentUser.getRole() == Role.ADMIN) {
+        if (currentUserContext.isAdmin()) {
             // Admin can modify AGENT and CLIENT in their tenant
             if (targetUser.getRole() == Role.AGENT || targetUser.getRole() == Role.CLIENT) {
-                return areUsersInSameTenant(currentUser, targetUser);
+                return isInCurrentUserTenant(targetUser);
             }
             return false;
         }
 
         // Users can only modify themselves
-        return currentUser.getId().equals(targetUser.getId());
+        return currentUserContext.getUserId().equals(targetUser.getId());
     }
 
-    private boolean canModifyRole(User currentUser, Role targetRole) {
-        if (currentUser.getRole() == Role.SUPER_ADMIN) {
+    private boolean canModifyRole(Role targetRole) {
+        if (currentUserContext.isSuperAdmin()) {
             return true;
         }
 
-        if (currentUser.getRole() == Role.ADMIN) {
+        if (currentUserContext.isAdmin()) {
             return targetRole == Role.AGENT || targetRole == Role.CLIENT;
         }
 
         return false;
     }
 
-    private boolean canModifyUserStatus(User currentUser, User targetUser) {
+    private boolean canModifyUserStatus(User targetUser) {
         // Prevent users from deactivating themselves
-        if (currentUser.getId().equals(targetUser.getId())) {
+        if (currentUserContext.getUserId().equals(targetUser.getId())) {
             return false;
         }
 
-        return canModifyUser(currentUser, targetUser);
+        return canModifyUser(targetUser);
     }
 
-    private boolean areUsersInSameTenant(User user1, User user2) {
-        Optional<UserTenant> tenant1 = userTenantRepository.findPrimaryTenantByUserId(user1.getId());
-        Optional<UserTenant> tenant2 = userTenantRepository.findPrimaryTenantByUserId(user2.getId());
+    private boolean isInCurrentUserTenant(User targetUser) {
+        Long currentTenantId = currentUserContext.getTenantId();
+        if (currentTenantId == null) {
+            return false;
+        }
 
-        return tenant1.isPresent() && tenant2.isPresent() &&
-                tenant1.get().getTenant().getId().equals(tenant2.get().getTenant().getId());
+        return currentTenantId.equals(targetUser.getTenantId());
     }
 
-    private void checkUserAccessPermission(User targetUser) {
-        User currentUser = getCurrentUser();
+    /**
+     * Builds the WHERE clause for bulk operations. Permissions are applied once for the whole batch
+     * as predicates (tenant and role scope, never the caller), mirroring canModifyUserStatus.
+     */
+    private String buildBulkSelection(BulkUserUpdateRequest request, MapSqlParameterSource params) {
+        if (!request.hasSelection()) {
+            throw new IllegalArgumentException("At least one of userIds, role, tenantId or lastLoginBefore is required");
+        }
+
+        List<String> conditions = new ArrayList<>();
+        conditions.add("u.id <> :currentUserId");
+        params.addValue("currentUserId", currentUserContext.getUserId());
+
+        if (currentUserContext.isSuperAdmin()) {
+            if (request.getTenantId() != null) {
+                conditions.add("u.tenant_id = :tenantId");
+                params.addValue("tenantId", request.getTenantId());
+            }
+        } else if (currentUserContext.isAdmin()) {
+            Long tenantId = currentUserContext.requireTenantId();
+            if (request.getTenantId() != null && !request.getTenantId().equals(tenantId)) {
+                throw new AccessDeniedException("You can only modify users in your tenant");
+            }
+            if (request.getRole() != null && !canModifyRole(request.getRole())) {
+                throw new AccessDeniedException("You don't have permission to modify users with role: " + request.getRole());
+            }
+            conditions.add("u.tenant_id = :tenantId");
+            conditions.add("u.role IN ('AGENT', 'CLIENT')");
+            params.addValue("tenantId", tenantId);
+        } else {
+            throw new AccessDeniedException("You don't have permission to modify users in bulk");
+        }
 
-        if (currentUser.getRole() == Role.SUPER_ADMIN) {
+        if (request.hasUserIds()) {
+            conditions.add("u.id IN (:userIds)");
+            params.addValue("userIds", request.getUserIds());
+        }
+        if (request.getRole() != null) {
+            conditions.add("u.role = CAST(:role AS user_role)");
+            params.addValue("role", request.getRole().name());
+        }
+        if (request.getLastLoginBefore() != null) {
+            conditions.add("u.last_login_at < :lastLoginBefore");
+            params.addValue("lastLoginBefore", request.getLastLoginBefore());
+        }
+
+        return "WHERE " + String.join(" AND ", conditions);
+    }
+
+    private void checkProfileImageAccess(Long id) {
+        // Users can only update their own profile image
+        if (!currentUserContext.getUserId().equals(id) &&
+                !currentUserContext.isSuperAdmin() &&
+                !currentUserContext.isAdmin()) {
+            throw new AccessDeniedException("You can only update your own profile image");
+        }
+    }
+
+    private void checkUserAccessPermission(User targetUser) {
+        if (currentUserContext.isSuperAdmin()) {
             return;
         }
 
-        if (currentUser.getRole() == Role.ADMIN) {
-            if (!areUsersInSameTenant(currentUser, targetUser)) {
+        if (currentUserContext.isAdmin()) {
+            if (!isInCurrentUserTenant(targetUser)) {
                 throw new AccessDeniedException("You can only access users in your tenant");
             }
             return;
         }
 
         // Regular users can only access their own data
-        if (!currentUser.getId().equals(targetUser.getId())) {
+        if (!currentUserContext.getUserId().equals(targetUser.getId())) {
             throw new AccessDeniedException("You can only access your own data");
         }
     }
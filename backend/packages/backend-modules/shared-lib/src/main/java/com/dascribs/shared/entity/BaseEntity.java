@@ -8,19 +8,22 @@ import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
+/**
+ * Audit columns shared by entities. The identifier is declared on each entity so that every
+ * table keeps its own pooled sequence; IDENTITY columns would disable JDBC insert batching.
+ */
 @MappedSuperclass
 @Getter
 @Setter
 public abstract class BaseEntity {
 
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-
     @CreationTimestamp
-    @Column(updatable = false)
+    @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
     @UpdateTimestamp
+    @Column(name = "updated_at")
     private LocalDateTime updatedAt;
-}
\ No newline at end of file
+
+    public abstract Long getId();
+}